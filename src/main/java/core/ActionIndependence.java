@@ -0,0 +1,169 @@
+package core;
+
+import environment.NetworkNode;
+import knowledge.NetworkKnowledge;
+import knowledge.NodeKnowledge;
+import knowledge.SoftwareKnowledge;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Decides whether two node actions are independent in a state, i.e. executing one of them neither enables, disables
+ * nor changes the result of the other one, so both orders reach the same state. The knowledge of a state is split
+ * into facets (e.g. the access level of a node or its software knowledge). For every node action the facets it may
+ * read in its pre- and postcondition are derived from the implementation of the AdversaryAction, the facets it writes
+ * are taken from its delta. Two actions are independent, if neither writes a facet the other one reads.
+ * Every node action has an index, so sets of node actions can be stored compactly.
+ */
+final class ActionIndependence {
+    private static final int TYPES = NetworkNode.TYPE.values().length;
+    private static final int ACTIONS = AdversaryAction.values().length * TYPES * TYPES;
+
+    //facets of the node knowledge, every node has its own bits
+    private static final int KNOWN = 0;
+    private static final int ACCESS = 1;
+    private static final int ADDRESS = 2;
+    private static final int OS = 3;
+    private static final int DATA = 4;
+    private static final int SOFTWARE = 5;
+    private static final int NODE_FACETS = 6;
+    //facets of the network knowledge
+    private static final int SNIFFED = 1 << (NODE_FACETS * TYPES);
+    private static final int START = 1 << (NODE_FACETS * TYPES + 1);
+
+    private static final NodeAction[] nodeActions = new NodeAction[ACTIONS];
+    private static final int[] reads = new int[ACTIONS];
+
+    static {
+        for (AdversaryAction action : AdversaryAction.values()) {
+            for (NetworkNode.TYPE actor : NetworkNode.TYPE.values()) {
+                for (NetworkNode.TYPE target : NetworkNode.TYPE.values()) {
+                    NodeAction nodeAction = new NodeAction(target, actor, action);
+                    nodeActions[index(nodeAction)] = nodeAction;
+                    //every action needs access on the actor
+                    reads[index(nodeAction)] = reads(nodeAction) | facet(actor, KNOWN) | facet(actor, ACCESS);
+                }
+            }
+        }
+    }
+
+    private ActionIndependence() {
+    }
+
+    /**
+     * Returns the index of the node action, all indices are smaller than count().
+     */
+    static int index(NodeAction nodeAction) {
+        return (nodeAction.action.ordinal() * TYPES + nodeAction.currentActor.ordinal()) * TYPES + nodeAction.target.ordinal();
+    }
+
+    static NodeAction nodeAction(int index) {
+        return nodeActions[index];
+    }
+
+    static int count() {
+        return ACTIONS;
+    }
+
+    /**
+     * Checks whether two actions are independent in a state.
+     * @param a - index of the first action
+     * @param aWrites - facets written by the first action in the state
+     * @param b - index of the second action
+     * @param bWrites - facets written by the second action in the state
+     * @return - true if both orders of the actions reach the same state
+     */
+    static boolean isIndependent(int a, int aWrites, int b, int bWrites) {
+        return (aWrites & reads[b]) == 0 && (bWrites & reads[a]) == 0;
+    }
+
+    /**
+     * Returns the facets, which are changed by the delta.
+     * @param delta - delta of an action
+     * @return - the written facets
+     */
+    static int writes(StateDelta delta) {
+        State state = delta.getState();
+        int writes = delta.leavesStartState() ? START : 0;
+        NetworkKnowledge networkKnowledge = delta.getModifiedNetworkKnowledge();
+        if (networkKnowledge != null
+                && !networkKnowledge.getSniffedDataMap().equals(state.getNetworkKnowledge().getSniffedDataMap())) {
+            writes |= SNIFFED;
+        }
+        for (Map.Entry<NetworkNode.TYPE, NodeKnowledge> node : delta.getModifiedNodeKnowledge().entrySet()) {
+            writes |= writes(node.getKey(), state.getNodeKnowledgeMap().get(node.getKey()), node.getValue());
+        }
+        for (Map.Entry<NetworkNode.TYPE, Set<SoftwareKnowledge>> software : delta.getModifiedSoftwareKnowledge().entrySet()) {
+            if (!software.getValue().equals(state.getSoftwareKnowledgeMap().get(software.getKey()))) {
+                writes |= facet(software.getKey(), SOFTWARE);
+            }
+        }
+        return writes;
+    }
+
+    private static int writes(NetworkNode.TYPE node, NodeKnowledge before, NodeKnowledge after) {
+        if (before == null) {
+            return facet(node, KNOWN) | facet(node, ACCESS) | facet(node, ADDRESS) | facet(node, OS) | facet(node, DATA);
+        }
+        int writes = 0;
+        if (before.getAccessLevel() != after.getAccessLevel()) {
+            writes |= facet(node, ACCESS);
+        }
+        if (!Objects.equals(before.getPubIp(), after.getPubIp()) || !Objects.equals(before.getPrivIp(), after.getPrivIp())
+                || !Objects.equals(before.getHostname(), after.getHostname())) {
+            writes |= facet(node, ADDRESS);
+        }
+        if (!Objects.equals(before.getOperatingSystem(), after.getOperatingSystem())
+                || !Objects.equals(before.getOSVersion(), after.getOSVersion())) {
+            writes |= facet(node, OS);
+        }
+        if (!before.getKnownData().equals(after.getKnownData())) {
+            writes |= facet(node, DATA);
+        }
+        return writes;
+    }
+
+    private static int reads(NodeAction nodeAction) {
+        NetworkNode.TYPE target = nodeAction.target;
+        switch (nodeAction.action) {
+            case ACTIVE_SCAN_IP_PORT:
+                //the router relays the scan to the webserver and the admin pc
+                int scanned = START | facet(target, KNOWN) | facet(target, ADDRESS) | facet(target, SOFTWARE);
+                if (target.equals(NetworkNode.TYPE.ROUTER)) {
+                    for (NetworkNode.TYPE relayTarget : new NetworkNode.TYPE[]{NetworkNode.TYPE.WEBSERVER, NetworkNode.TYPE.ADMINPC}) {
+                        scanned |= facet(relayTarget, KNOWN) | facet(relayTarget, ADDRESS) | facet(relayTarget, SOFTWARE);
+                    }
+                }
+                return scanned;
+            case ACTIVE_SCAN_VULNERABILITY:
+                return START | facet(target, KNOWN) | facet(target, OS) | facet(target, SOFTWARE);
+            case EXPLOIT_PUBLIC_FACING_APPLICATION:
+            case EXPLOIT_FOR_CLIENT_EXECUTION:
+            case VALID_ACCOUNTS_VULN:
+                return facet(target, KNOWN) | facet(target, ACCESS) | facet(target, ADDRESS) | facet(target, SOFTWARE);
+            case EXPLOIT_FOR_PRIVILEGE_ESCALATION:
+                return facet(target, KNOWN) | facet(target, ACCESS) | facet(target, SOFTWARE);
+            case VALID_ACCOUNTS_CRED:
+                //credentials may be found in the data of every node and in the sniffed data
+                int credentials = SNIFFED;
+                for (NetworkNode.TYPE node : NetworkNode.TYPE.values()) {
+                    credentials |= facet(node, KNOWN) | facet(node, ACCESS) | facet(node, DATA);
+                }
+                return credentials;
+            case MAN_IN_THE_MIDDLE:
+                return SNIFFED;
+            case SOFTWARE_DISCOVERY:
+                return facet(target, SOFTWARE);
+            case DATA_FROM_LOCAL_SYSTEM:
+                return facet(target, ACCESS) | facet(target, DATA);
+            default:
+                throw new IllegalArgumentException("Unknown action: " + nodeAction.action);
+        }
+    }
+
+    private static int facet(NetworkNode.TYPE node, int facet) {
+        return 1 << (node.ordinal() * NODE_FACETS + facet);
+    }
+}
@@ -5,10 +5,8 @@ import knowledge.NodeKnowledge;
 import knowledge.SoftwareKnowledge;
 import run.Simulation;
 
-import java.io.*;
+import java.io.Serializable;
 import java.util.*;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 /**
  * This class implements all Actions (ATT&CK techniques) available to the adversary. For each technique both pre- & postcondition
@@ -32,19 +30,17 @@ public enum AdversaryAction implements Serializable {
         }
 
         @Override
-        public State executePostConditionOnTarget(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor) {
+        public StateDelta getPostConditionDelta(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor) {
             NetworkNode node = Simulation.getNodeByType(target);
-            State newState = (State) deepCopy(currentState);
-            assert newState != null;
+            StateDelta delta = new StateDelta(currentState);
             if (currentState.isStartState()){
-                newState.setStartState(false);
+                delta.leaveStartState();
             }
-            Set<NetworkNode.TYPE> knownNodes = newState.getNetworkKnowledge().getKnownNodes();
-            addIPKnowledge(newState, knownNodes, target);
+            addIPKnowledge(delta, target);
             //implement router port forwarding
             if (target.equals(NetworkNode.TYPE.ROUTER)){
                 for (NetworkNode.TYPE relayTarget: Set.of(NetworkNode.TYPE.WEBSERVER, NetworkNode.TYPE.ADMINPC)){
-                    addIPKnowledge(newState, knownNodes, relayTarget);
+                    addIPKnowledge(delta, relayTarget);
                 }
             }
             Set<NetworkNode.TYPE> internal = Simulation.getSimWorld().getInternalNodes();
@@ -52,43 +48,43 @@ public enum AdversaryAction implements Serializable {
             Map<NetworkNode.TYPE, Set<Software>> remotelyVisibleSWInNetwork = NetworkTopology.getRemoteSWMapByScanningNode(currentActor);
             //internal scans also reveal Priv IP
             if (internal.contains(currentActor)){
-                if (!newState.getNodeKnowledgeMap().get(target).hasPrivIp()){
-                    newState.addNodePrivIp(target, node.getPriv_ip());
+                if (!delta.getNodeKnowledge(target).hasPrivIp()){
+                    delta.addNodePrivIp(target, node.getPriv_ip());
                 }
-                addRemoteSw(remotelyVisibleSWInNetwork, target, newState);
+                addRemoteSw(remotelyVisibleSWInNetwork, target, delta);
             } else if (!internal.contains(currentActor) && target.equals(NetworkNode.TYPE.ROUTER)){
                 //for ROUTER we relay
                 Set<NetworkNode.TYPE> targets = Set.of(NetworkNode.TYPE.WEBSERVER, NetworkNode.TYPE.ADMINPC);
                 for (NetworkNode.TYPE scanned:targets){
-                    addRemoteSw(remotelyVisibleSWInNetwork, scanned, newState);
+                    addRemoteSw(remotelyVisibleSWInNetwork, scanned, delta);
                 }
             }else {
                 //from outside against WS/ADMIN PC
-                addRemoteSw(remotelyVisibleSWInNetwork, target, newState);
+                addRemoteSw(remotelyVisibleSWInNetwork, target, delta);
             }
-            return newState;
+            return delta;
         }
 
-        private void addRemoteSw(Map<NetworkNode.TYPE, Set<Software>> remotelyVisibleSWInNetwork, NetworkNode.TYPE target, State newState){
+        private void addRemoteSw(Map<NetworkNode.TYPE, Set<Software>> remotelyVisibleSWInNetwork, NetworkNode.TYPE target, StateDelta delta){
             if (!remotelyVisibleSWInNetwork.containsKey(target)){
                 return;
             }
             for (Software sw: remotelyVisibleSWInNetwork.get(target)){
-                if (!newState.getSoftwareKnowledgeMap().containsKey(target) || !newState.isSoftwareContainedInSet(sw.getName(), newState.getSoftwareKnowledgeMap().get(target))){
-                    newState.addNodeRemoteSoftwareName(target, sw.getName(), true);
+                if (delta.getSoftwareKnowledge(target) == null || findSoftwareByName(delta.getSoftwareKnowledge(target), sw.getName()) == null){
+                    delta.addNodeRemoteSoftwareName(target, sw.getName(), true);
                 }
             }
         }
 
-        private void addIPKnowledge(State newState, Set<NetworkNode.TYPE> knownNodes, NetworkNode.TYPE target){
-            if (!knownNodes.contains(target)){
-                newState.addNodeKnowledge(target);
+        private void addIPKnowledge(StateDelta delta, NetworkNode.TYPE target){
+            if (!delta.getNetworkKnowledge().getKnownNodes().contains(target)){
+                delta.addNodeKnowledge(target);
             }
-            if (!newState.getNodeKnowledgeMap().get(target).hasPubIp()){
-                newState.addNodePubIp(target, Simulation.getNodeByType(target).getPub_ip());
+            if (!delta.getNodeKnowledge(target).hasPubIp()){
+                delta.addNodePubIp(target, Simulation.getNodeByType(target).getPub_ip());
             }
-            if (!newState.getNodeKnowledgeMap().get(target).hasHostname()){
-                newState.addNodeHostname(target, Simulation.getNodeByType(target).getHostname());
+            if (!delta.getNodeKnowledge(target).hasHostname()){
+                delta.addNodeHostname(target, Simulation.getNodeByType(target).getHostname());
             }
         }
     },
@@ -117,42 +113,37 @@ public enum AdversaryAction implements Serializable {
         }
 
         @Override
-        public State executePostConditionOnTarget(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor) {
-            State newState = (State) deepCopy(currentState);
-            assert newState != null;
+        public StateDelta getPostConditionDelta(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor) {
+            StateDelta delta = new StateDelta(currentState);
             NetworkNode actualTarget = Simulation.getNodeByType(target);
-            NodeKnowledge knownNode = newState.getNodeKnowledgeMap().get(target);
             //scanning for Router(no SW) and from WS to DB (inner firewall) is disabled
             if (!target.equals(NetworkNode.TYPE.ROUTER)
                     && !(target.equals(NetworkNode.TYPE.DATABASE) && currentActor.equals(NetworkNode.TYPE.WEBSERVER))){
-                Set<SoftwareKnowledge> knownSoftware = newState.getSoftwareKnowledgeMap().get(target);
                 Map<NetworkNode.TYPE, Set<Software>> remoteSW = NetworkTopology.getRemoteSWMapByScanningNode(currentActor);
                 if (remoteSW.containsKey(target)){
                     // add to every software we know the version and the vulnerabilities
-                    addVersionAndVulnerabilities(remoteSW.get(target), knownSoftware);
+                    addVersionAndVulnerabilities(remoteSW.get(target), target, delta);
                 }
             }
-            if (!knownNode.hasOperatingSystem()){
-                newState.addNodeOS(target, actualTarget.getOperatingSystem());
+            if (!delta.getNodeKnowledge(target).hasOperatingSystem()){
+                delta.addNodeOS(target, actualTarget.getOperatingSystem());
             }
-            if (!knownNode.hasOSVersion()){
-                newState.addNodeOSVersion(target, actualTarget.getOsVersion());
+            if (!delta.getNodeKnowledge(target).hasOSVersion()){
+                delta.addNodeOSVersion(target, actualTarget.getOsVersion());
             }
-            return newState;
+            return delta;
         }
 
-        private void addVersionAndVulnerabilities(Set<Software> actualSoftware, Set<SoftwareKnowledge> knownSoftware) {
+        private void addVersionAndVulnerabilities(Set<Software> actualSoftware, NetworkNode.TYPE target, StateDelta delta) {
             for(Software s : actualSoftware){
-                SoftwareKnowledge foundSw = findSoftwareByName(knownSoftware,s.getName());
+                SoftwareKnowledge foundSw = findSoftwareByName(delta.getSoftwareKnowledge(target), s.getName());
                 if(foundSw!=null){
-                    knownSoftware.remove(foundSw);
                     if (!foundSw.hasVersion()){
-                        foundSw.addVersion(s.getVersion());
+                        delta.addNodeSoftwareVersion(target, s.getName(), s.getVersion());
                     }
                     if (foundSw.getVulnerabilities().isEmpty()){
-                        foundSw.addVulnerabilities(s.getVulnerabilities());
+                        delta.addNodeSoftwareVulnerabilities(target, s.getName(), s.getVulnerabilities());
                     }
-                    knownSoftware.add(foundSw);
                 }
             }
         }
@@ -171,18 +162,17 @@ public enum AdversaryAction implements Serializable {
         }
 
         @Override
-        public State executePostConditionOnTarget(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor) {
-            State newState = (State) deepCopy(currentState);
-            assert newState != null;
+        public StateDelta getPostConditionDelta(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor) {
+            StateDelta delta = new StateDelta(currentState);
             // check if we have not root access so we do not override it
-            if(!newState.getNodeKnowledgeMap().get(target).hasAccessLevelRoot()) {
-                newState.getNodeKnowledgeMap().get(target).addAccessLevel(NetworkNode.ACCESS_LEVEL.USER);
+            if(!delta.getNodeKnowledge(target).hasAccessLevelRoot()) {
+                delta.addNodeAccessLevel(target, NetworkNode.ACCESS_LEVEL.USER);
                 //learn own IP if new
-                if (!newState.getNodeKnowledgeMap().get(target).hasPrivIp()){
-                    newState.addNodePrivIp(target, Simulation.getNodeByType(target).getPriv_ip());
+                if (!delta.getNodeKnowledge(target).hasPrivIp()){
+                    delta.addNodePrivIp(target, Simulation.getNodeByType(target).getPriv_ip());
                 }
             }
-            return newState;
+            return delta;
         }
     },
     VALID_ACCOUNTS_VULN {
@@ -199,25 +189,23 @@ public enum AdversaryAction implements Serializable {
         }
 
         @Override
-        public State executePostConditionOnTarget(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor) {
-            State newState = (State) deepCopy(currentState);
-            assert newState != null;
-            NodeKnowledge targetNodeKnowledge = newState.getNodeKnowledgeMap().get(target);
+        public StateDelta getPostConditionDelta(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor) {
+            StateDelta delta = new StateDelta(currentState);
             //or learned by auth bypass (DB and Admin)
-            if(!targetNodeKnowledge.hasAccessLevelRoot()){
-                targetNodeKnowledge.addAccessLevel(NetworkNode.ACCESS_LEVEL.ROOT);
+            if(!delta.getNodeKnowledge(target).hasAccessLevelRoot()){
+                delta.addNodeAccessLevel(target, NetworkNode.ACCESS_LEVEL.ROOT);
             }
             //learn own IP if new
-            if (!targetNodeKnowledge.hasPrivIp()){
-                newState.addNodePrivIp(target, Simulation.getNodeByType(target).getPriv_ip());
+            if (!delta.getNodeKnowledge(target).hasPrivIp()){
+                delta.addNodePrivIp(target, Simulation.getNodeByType(target).getPriv_ip());
             }
-            return newState;
+            return delta;
         }
     },
     VALID_ACCOUNTS_CRED{
         @Override
         public Set<NetworkNode.TYPE> getTargetsWhichFulfillPrecondition(State currentState, NetworkNode.TYPE currentActor) {
-            Set<NetworkNode.TYPE> viewableNodes = getViewableNodes(currentActor);
+            Set<NetworkNode.TYPE> viewableNodes = new HashSet<>(getViewableNodes(currentActor));
             Set<NetworkNode.TYPE> nodesWithCredentials = new HashSet<>();
             Map<NetworkNode.TYPE, NodeKnowledge> knownNodes = currentState.getNodeKnowledgeMap();
             //we can also use valid acc locally for priv esc (password file)
@@ -258,23 +246,20 @@ public enum AdversaryAction implements Serializable {
         }
 
         @Override
-        public State executePostConditionOnTarget(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor) {
-            State newState = (State) deepCopy(currentState);
-            assert newState != null;
-            Map<NetworkNode.TYPE, NodeKnowledge> map = newState.getNodeKnowledgeMap();
-            NodeKnowledge targetNodeKnowledge = map.get(target);
-            Set<Credentials> credentials = getAllCredentialsFromData(map, newState.getNetworkKnowledge().getSniffedDataMap());
+        public StateDelta getPostConditionDelta(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor) {
+            StateDelta delta = new StateDelta(currentState);
+            Set<Credentials> credentials = getAllCredentialsFromData(currentState.getNodeKnowledgeMap(), currentState.getNetworkKnowledge().getSniffedDataMap());
             for (Credentials creds : credentials) {
                 Credentials.ACCESS_GRANT_LEVEL acLevel = creds.getAccessGrantLevel();
-                if (!targetNodeKnowledge.hasAccessLevelRoot()) {
+                if (!delta.getNodeKnowledge(target).hasAccessLevelRoot()) {
                     if (acLevel == Credentials.ACCESS_GRANT_LEVEL.ROOT) {
-                        targetNodeKnowledge.addAccessLevel(NetworkNode.ACCESS_LEVEL.ROOT);
+                        delta.addNodeAccessLevel(target, NetworkNode.ACCESS_LEVEL.ROOT);
                     } else {
-                        targetNodeKnowledge.addAccessLevel(NetworkNode.ACCESS_LEVEL.USER);
+                        delta.addNodeAccessLevel(target, NetworkNode.ACCESS_LEVEL.USER);
                     }
                 }
             }
-            return newState;
+            return delta;
         }
     },
     EXPLOIT_FOR_CLIENT_EXECUTION {
@@ -288,17 +273,16 @@ public enum AdversaryAction implements Serializable {
         }
 
         @Override
-        public State executePostConditionOnTarget(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor) {
-            State newState = (State) deepCopy(currentState);
-            assert newState != null;
+        public StateDelta getPostConditionDelta(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor) {
+            StateDelta delta = new StateDelta(currentState);
             // check if we have not root access so we do not override it
-            if(!newState.getNodeKnowledgeMap().get(target).hasAccessLevelRoot())
-                newState.getNodeKnowledgeMap().get(target).addAccessLevel(NetworkNode.ACCESS_LEVEL.USER);
+            if(!delta.getNodeKnowledge(target).hasAccessLevelRoot())
+                delta.addNodeAccessLevel(target, NetworkNode.ACCESS_LEVEL.USER);
             //learn own IP if new
-            if (!newState.getNodeKnowledgeMap().get(target).hasPrivIp()){
-                newState.addNodePrivIp(target, Simulation.getNodeByType(target).getPriv_ip());
+            if (!delta.getNodeKnowledge(target).hasPrivIp()){
+                delta.addNodePrivIp(target, Simulation.getNodeByType(target).getPriv_ip());
             }
-            return newState;
+            return delta;
         }
     },
     EXPLOIT_FOR_PRIVILEGE_ESCALATION {
@@ -320,11 +304,10 @@ public enum AdversaryAction implements Serializable {
         }
 
         @Override
-        public State executePostConditionOnTarget(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor) {
-            State newState = (State) deepCopy(currentState);
-            assert newState != null;
-            newState.getNodeKnowledgeMap().get(target).addAccessLevel(NetworkNode.ACCESS_LEVEL.ROOT);
-            return newState;
+        public StateDelta getPostConditionDelta(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor) {
+            StateDelta delta = new StateDelta(currentState);
+            delta.addNodeAccessLevel(target, NetworkNode.ACCESS_LEVEL.ROOT);
+            return delta;
         }
     },
     MAN_IN_THE_MIDDLE {
@@ -338,17 +321,15 @@ public enum AdversaryAction implements Serializable {
         }
 
         @Override
-        public State executePostConditionOnTarget(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor) {
-            State newState = (State) deepCopy(currentState);
-            assert newState != null;
-            Set<Integer> knownSniffedData = newState.getNetworkKnowledge().getSniffedDataMap().keySet();
+        public StateDelta getPostConditionDelta(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor) {
+            StateDelta delta = new StateDelta(currentState);
             Map<Integer, Data> actualDataMap = Simulation.getSimWorld().getSniffableData();
             for (int ID: actualDataMap.keySet()){
-                if (!knownSniffedData.contains(ID)){
-                    newState.addNetworkData(actualDataMap.get(ID));
+                if (!delta.getNetworkKnowledge().getSniffedDataMap().containsKey(ID)){
+                    delta.addNetworkData(actualDataMap.get(ID));
                 }
             }
-            return newState;
+            return delta;
         }
     },
     SOFTWARE_DISCOVERY {
@@ -362,41 +343,13 @@ public enum AdversaryAction implements Serializable {
         }
 
         @Override
-        public State executePostConditionOnTarget(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor) {
-            State newState = (State) deepCopy(currentState);
-            assert newState != null;
+        public StateDelta getPostConditionDelta(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor) {
+            StateDelta delta = new StateDelta(currentState);
             NetworkNode node = Simulation.getNodeByType(target);
             Set<Software> swToFind = new HashSet<>(node.getLocalSoftware());
             swToFind.addAll(node.getRemoteSoftware());
-            // check if node is already in our software knowledge map
-            if(newState.getSoftwareKnowledgeMap().containsKey(node.getType())) {
-                Set<SoftwareKnowledge> softwareKnowledgeSet = newState.getSoftwareKnowledgeMap().get(target);
-                for(Software s : swToFind){
-                    //get software knowledge if already exist for a specific softare
-                    SoftwareKnowledge softwareKnowledge =AdversaryAction.findSoftwareByName(softwareKnowledgeSet, s.getName());
-                    if(softwareKnowledge!=null){
-                        softwareKnowledgeSet.remove(softwareKnowledge);
-                        softwareKnowledge.addVersion(s.getVersion());
-                        softwareKnowledge.addVulnerabilities(s.getVulnerabilities());
-                        softwareKnowledgeSet.add(softwareKnowledge);
-                    }else{
-                        softwareKnowledge = SoftwareKnowledge.addNew(s.getName(), false);
-                        softwareKnowledge.addVersion(s.getVersion());
-                        softwareKnowledge.addVulnerabilities(s.getVulnerabilities());
-                        softwareKnowledgeSet.add(softwareKnowledge);
-                    }
-                }
-            }else{
-                Set<SoftwareKnowledge> softwareKnowledgeSet = new HashSet<>();
-                for(Software s : swToFind){
-                    SoftwareKnowledge softwareKnowledge = SoftwareKnowledge.addNew(s.getName(), false);
-                    softwareKnowledge.addVersion(s.getVersion());
-                    softwareKnowledge.addVulnerabilities(s.getVulnerabilities());
-                    softwareKnowledgeSet.add(softwareKnowledge);
-                }
-                newState.getSoftwareKnowledgeMap().put(target,softwareKnowledgeSet);
-            }
-            return newState;
+            delta.addNodeLocalSoftware(target, swToFind);
+            return delta;
         }
     },
     DATA_FROM_LOCAL_SYSTEM {
@@ -410,9 +363,9 @@ public enum AdversaryAction implements Serializable {
         }
 
         @Override
-        public State executePostConditionOnTarget(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor) {
-            State newState = (State) deepCopy(currentState);
-            NodeKnowledge targetKnowledge = newState.getNodeKnowledgeMap().get(target);
+        public StateDelta getPostConditionDelta(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor) {
+            StateDelta delta = new StateDelta(currentState);
+            NodeKnowledge targetKnowledge = delta.getNodeKnowledge(target);
             Set<Integer> knowndataSet = targetKnowledge.getKnownData().keySet();
             //assume ID always increases by one and starts with 0
             Map<Integer, Data> actualDataMap = Simulation.getNodeByType(target).getDataSet();
@@ -422,11 +375,11 @@ public enum AdversaryAction implements Serializable {
                     if(targetKnowledge.hasAccessLevelRoot()
                             || actualDataMap.get(ID).getAccess().equals(Data.ACCESS_REQUIRED.USER)
                             || actualDataMap.get(ID).getAccess().equals(Data.ACCESS_REQUIRED.ALL)){
-                        newState.addNodeData(target, ID, actualDataMap.get(ID));
+                        delta.addNodeData(target, ID, actualDataMap.get(ID));
                     }
                 }
             }
-            return newState;
+            return delta;
         }
     };
 
@@ -446,15 +399,27 @@ public enum AdversaryAction implements Serializable {
     public abstract Set<NetworkNode.TYPE> getTargetsWhichFulfillPrecondition(State currentState, NetworkNode.TYPE currentActor);
 
     /**
-     * This abstract method executes all changes to the state for a particular Action applied to a target in a particular state,
-     * resulting in a new state.
+     * This abstract method computes all changes to the state for a particular Action applied to a target in a
+     * particular state without building the new state.
      * The changes (post-condition) are different for each Action.
      * @param target - A single particular target
      * @param currentState - current state
      * @param currentActor - current actor
+     * @return - The changes of the state, which are empty if the state does not change
+     */
+    public abstract StateDelta getPostConditionDelta(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor);
+
+    /**
+     * Executes all changes to the state for a particular Action applied to a target in a particular state,
+     * resulting in a new state.
+     * @param target - A single particular target
+     * @param currentState - current state
+     * @param currentActor - current actor
      * @return - The new state
      */
-    public abstract State executePostConditionOnTarget(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor);
+    public State executePostConditionOnTarget(NetworkNode.TYPE target, State currentState, NetworkNode.TYPE currentActor) {
+        return getPostConditionDelta(target, currentState, currentActor).apply();
+    }
 
     /**
      * For a given target set and a current state and actor, calculate if the Action applied for a particular target
@@ -467,8 +432,7 @@ public enum AdversaryAction implements Serializable {
     Set<NetworkNode.TYPE> getTargetsWhereActionResultsInStateChange(Set<NetworkNode.TYPE> targets, State currentState, NetworkNode.TYPE currentActor){
         Set<NetworkNode.TYPE> usefulTargets = new HashSet<>(targets);
         for (NetworkNode.TYPE target : targets){
-            State simulatedNewState = executePostConditionOnTarget(target, currentState, currentActor);
-            if (simulatedNewState.equals(currentState)){
+            if (getPostConditionDelta(target, currentState, currentActor).isEmpty()){
                 usefulTargets.remove(target);
             }
         }
@@ -481,7 +445,7 @@ public enum AdversaryAction implements Serializable {
      * @param swName - Software product name
      * @return - SoftwareKnowledge
      */
-    private static SoftwareKnowledge findSoftwareByName(Set<SoftwareKnowledge> softwareKnowledgeSet, String swName){
+    static SoftwareKnowledge findSoftwareByName(Set<SoftwareKnowledge> softwareKnowledgeSet, String swName){
         for(SoftwareKnowledge softwareKnowledge: softwareKnowledgeSet){
             if(softwareKnowledge.getName().equals(swName))
                 return softwareKnowledge;
@@ -509,16 +473,10 @@ public enum AdversaryAction implements Serializable {
     /**
      * Calculates a set of all nodes a current actor may see in the network.
      * @param currentActor - current actor
-     * @return - set of all visible nodes
+     * @return - set of all visible nodes, which can not be modified
      */
     private static Set<NetworkNode.TYPE> getViewableNodes(NetworkNode.TYPE currentActor){
-        Set<NetworkNode.TYPE> viewableNodeTypes = new HashSet<>();
-        Predicate<NetworkNode> isConnected = node -> NetworkTopology.getConnectedHosts(currentActor).contains(node.getType());
-        Set<NetworkNode> viewableNodes = Simulation.getSimWorld().getNodes().stream().filter(isConnected).collect(Collectors.toSet());
-        for (NetworkNode n : viewableNodes) {
-            viewableNodeTypes.add(n.getType());
-        }
-        return viewableNodeTypes;
+        return NetworkTopology.getViewableNodes(currentActor);
     }
 
     /**
@@ -532,7 +490,7 @@ public enum AdversaryAction implements Serializable {
         Set<NetworkNode.TYPE> attackableNodes = new HashSet<>();
         for(NetworkNode.TYPE node: swMap.keySet()){
             //check if we could attack the node from our current location
-            if(getViewableNodes(currentActor).contains(node)) {
+            if(NetworkTopology.isViewable(currentActor, node)) {
                 for (SoftwareKnowledge softwareKnowledge : swMap.get(node)) {
                     for (Vulnerability v : softwareKnowledge.getVulnerabilities()) {
                         if (v.getExploitType().equals(exploit)) {
@@ -559,22 +517,4 @@ public enum AdversaryAction implements Serializable {
         }
         return attackableNodes;
     }
-
-    /**
-     * Makes a deep copy of any Java object that is passed.
-     */
-    private static Object deepCopy(Object object) {
-        try {
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            ObjectOutputStream outputStrm = new ObjectOutputStream(outputStream);
-            outputStrm.writeObject(object);
-            ByteArrayInputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
-            ObjectInputStream objInputStream = new ObjectInputStream(inputStream);
-            return objInputStream.readObject();
-        }
-        catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
-    }
 }
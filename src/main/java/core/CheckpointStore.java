@@ -0,0 +1,121 @@
+package core;
+
+import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stores checkpoints of long running computations (e.g. the enumeration of the state space) in a directory, so they
+ * can be resumed after the JVM died. Every checkpoint is a serialized object in its own file together with the
+ * fingerprint of the world it was computed for. Checkpoints of another world are ignored when loading.
+ * A checkpoint is written to a temporary file first and then moved, so a crash while writing keeps the previous one.
+ *
+ * NOTE: Since states are serialized, the world has to be set up before a checkpoint is loaded.
+ */
+public class CheckpointStore {
+    private static final Logger LOGGER = Logger.getLogger(CheckpointStore.class.getName());
+    private static final String SUFFIX = ".ckpt";
+
+    private final Path directory;
+    private final long worldFingerprint;
+    private final long intervalMillis;
+    private long lastSave;
+
+    /**
+     * @param directory - the directory of the checkpoints, it is created if it does not exist
+     * @param worldFingerprint - identifies the world configuration, see Simulation.getWorldFingerprint
+     * @param intervalMillis - minimum time between two checkpoints, see isDue
+     * @throws UncheckedIOException if the directory can not be created
+     */
+    public CheckpointStore(Path directory, long worldFingerprint, long intervalMillis) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create checkpoint directory " + directory, e);
+        }
+        this.directory = directory;
+        this.worldFingerprint = worldFingerprint;
+        this.intervalMillis = intervalMillis;
+        this.lastSave = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns true if the interval passed since the last checkpoint was saved.
+     */
+    public boolean isDue() {
+        return System.currentTimeMillis() - lastSave >= intervalMillis;
+    }
+
+    /**
+     * Saves a checkpoint and replaces the previous one with the same name. A checkpoint which can not be written is
+     * logged and skipped, since the computation can go on without it.
+     * @param name - the name of the checkpoint
+     * @param checkpoint - the checkpoint
+     */
+    public void save(String name, Serializable checkpoint) {
+        long start = System.currentTimeMillis();
+        Path file = file(name);
+        Path temporary = directory.resolve(name + SUFFIX + ".tmp");
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeLong(worldFingerprint);
+            out.writeObject(checkpoint);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not write checkpoint " + file, e);
+            return;
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not write checkpoint " + file, e);
+            return;
+        }
+        lastSave = System.currentTimeMillis();
+        LOGGER.info(String.format("Saved checkpoint %s (%d ms)", file, lastSave - start));
+    }
+
+    /**
+     * Loads a checkpoint.
+     * @param name - the name of the checkpoint
+     * @param type - the class of the checkpoint
+     * @return - the checkpoint or null if there is none for this world
+     */
+    public <T> T load(String name, Class<T> type) {
+        Path file = file(name);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readLong() != worldFingerprint) {
+                LOGGER.info(String.format("Ignoring checkpoint %s of another world", file));
+                return null;
+            }
+            T checkpoint = type.cast(in.readObject());
+            LOGGER.info(String.format("Resuming from checkpoint %s", file));
+            return checkpoint;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            LOGGER.log(Level.WARNING, "Could not read checkpoint " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Deletes all checkpoints, e.g. after the computation finished.
+     */
+    public void clear() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not delete checkpoints in " + directory, e);
+        }
+    }
+
+    private Path file(String name) {
+        return directory.resolve(name + SUFFIX);
+    }
+}
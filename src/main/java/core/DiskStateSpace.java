@@ -0,0 +1,222 @@
+package core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * The result of an enumeration, which stores the states on disk instead of the heap. Every state is appended as its
+ * packed facts (see StateEncoding) to a memory mapped file, so the file contains the states in the order they were
+ * found and every breadth first layer is a range of records. Only a hash index of the 64 bit fingerprints of the
+ * packed facts and the record numbers is kept in memory, which needs 16 bytes per slot.
+ * The transitions are not stored, only counted.
+ *
+ * NOTE: The file is a scratch file, which is only valid as long as this object is open. It is overwritten when the
+ * enumeration starts.
+ */
+public class DiskStateSpace implements Closeable, Iterable<State> {
+    //size of a mapped segment of the file, it is rounded down to a multiple of the record size
+    private static final int SEGMENT_BYTES = 1 << 26;
+    private static final int INITIAL_INDEX_CAPACITY = 1 << 12;
+
+    private final FileChannel channel;
+    private final int words;
+    private final int recordBytes;
+    private final int recordsPerSegment;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private long size;
+
+    //open addressing hash index, a slot is empty if its record is 0, otherwise it contains record + 1
+    private long[] indexHashes = new long[INITIAL_INDEX_CAPACITY];
+    private long[] indexRecords = new long[INITIAL_INDEX_CAPACITY];
+
+    private final List<Long> layerSizes = new ArrayList<>();
+    private long transitionCount;
+
+    /**
+     * Creates an empty state space in the given file.
+     * @param file - the file, which is created or overwritten
+     * @param words - number of long words of the packed facts of a state
+     * @throws UncheckedIOException if the file can not be opened
+     */
+    DiskStateSpace(Path file, int words) {
+        this.words = words;
+        this.recordBytes = words * Long.BYTES;
+        this.recordsPerSegment = Math.max(1, SEGMENT_BYTES / recordBytes);
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open state file " + file, e);
+        }
+    }
+
+    /**
+     * Adds the packed facts of a state, unless they are already stored.
+     * @param bits - the packed facts
+     * @return - true if the state is new
+     */
+    boolean add(long[] bits) {
+        long hash = StateEncoding.fingerprint(bits);
+        int slot = findSlot(hash, bits);
+        if (indexRecords[slot] != 0) {
+            return false;
+        }
+        append(bits);
+        indexHashes[slot] = hash;
+        indexRecords[slot] = size;
+        if (size * 2 > indexRecords.length) {
+            growIndex();
+        }
+        return true;
+    }
+
+    void addLayer(long layerSize, long layerTransitions) {
+        layerSizes.add(layerSize);
+        transitionCount += layerTransitions;
+    }
+
+    /**
+     * Returns the packed facts of a stored state.
+     * @param record - the number of the state in the order it was found
+     * @return - the packed facts
+     */
+    long[] read(long record) {
+        if (record < 0 || record >= size) {
+            throw new IllegalArgumentException("No state stored with number: " + record);
+        }
+        MappedByteBuffer segment = segments.get((int) (record / recordsPerSegment));
+        int offset = (int) (record % recordsPerSegment) * recordBytes;
+        long[] bits = new long[words];
+        for (int i = 0; i < words; i++) {
+            bits[i] = segment.getLong(offset + i * Long.BYTES);
+        }
+        return bits;
+    }
+
+    /**
+     * Returns a stored state in compact mode.
+     * @param record - the number of the state in the order it was found, the start state is 0
+     * @return - the state
+     * @throws IllegalArgumentException if no state with this number is stored
+     */
+    public State getState(long record) {
+        return State.fromPackedFacts(read(record), record == 0);
+    }
+
+    /**
+     * Checks whether the state is stored.
+     * @param state - the state
+     * @return - true if the state was found by the enumeration
+     */
+    public boolean contains(State state) {
+        long[] bits;
+        try {
+            bits = state.getPackedFacts();
+        } catch (IllegalArgumentException e) {
+            //knowledge which does not exist in the simulation can not be reached
+            return false;
+        }
+        return indexRecords[findSlot(StateEncoding.fingerprint(bits), bits)] != 0;
+    }
+
+    /**
+     * Iterates over all states in the order they were found. The states are read from disk while iterating.
+     */
+    @Override
+    public Iterator<State> iterator() {
+        return new Iterator<>() {
+            private long record;
+
+            @Override
+            public boolean hasNext() {
+                return record < size;
+            }
+
+            @Override
+            public State next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return getState(record++);
+            }
+        };
+    }
+
+    /**
+     * Returns the number of new states found in each breadth first layer. The first layer contains the start state.
+     */
+    public List<Long> getLayerSizes() {
+        return Collections.unmodifiableList(layerSizes);
+    }
+
+    public long getTransitionCount() {
+        return transitionCount;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        segments.clear();
+        channel.close();
+    }
+
+    private void append(long[] bits) {
+        int offset = (int) (size % recordsPerSegment) * recordBytes;
+        if (offset == 0) {
+            try {
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE,
+                        (long) segments.size() * recordsPerSegment * recordBytes, (long) recordsPerSegment * recordBytes));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not extend state file", e);
+            }
+        }
+        MappedByteBuffer segment = segments.get(segments.size() - 1);
+        for (int i = 0; i < words; i++) {
+            segment.putLong(offset + i * Long.BYTES, bits[i]);
+        }
+        size++;
+    }
+
+    /**
+     * Returns the slot of the packed facts or the empty slot, where they would be inserted. The packed facts are only
+     * read from disk if the fingerprints are equal.
+     */
+    private int findSlot(long hash, long[] bits) {
+        int mask = indexRecords.length - 1;
+        int slot = (int) hash & mask;
+        while (indexRecords[slot] != 0) {
+            if (indexHashes[slot] == hash && Arrays.equals(read(indexRecords[slot] - 1), bits)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void growIndex() {
+        long[] oldHashes = indexHashes;
+        long[] oldRecords = indexRecords;
+        indexHashes = new long[oldHashes.length * 2];
+        indexRecords = new long[oldRecords.length * 2];
+        int mask = indexRecords.length - 1;
+        for (int i = 0; i < oldRecords.length; i++) {
+            if (oldRecords[i] != 0) {
+                int slot = (int) oldHashes[i] & mask;
+                while (indexRecords[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                indexHashes[slot] = oldHashes[i];
+                indexRecords[slot] = oldRecords[i];
+            }
+        }
+    }
+}
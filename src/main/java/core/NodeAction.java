@@ -5,9 +5,12 @@ import com.google.gson.Gson;
 import environment.NetworkNode;
 
 import java.io.Serializable;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * This class wraps the AdversaryAction as an object that is used for the learning (extended by target and
@@ -57,12 +60,36 @@ public class NodeAction implements Action, Serializable {
      * @return - set of actions
      */
     public static Set<NodeAction> getAllActionPossibleWithChangeState(State currentState){
-        Set<NodeAction> allPossibleActionsWithChangeState = new HashSet<>();
+        return new HashSet<>(getAllActionDeltasWithChangeState(currentState).keySet());
+    }
+
+    /**
+     * This calculates all possible actions with a state change, given a particular state, together with the
+     * changes of the state. The new states can be built by applying the deltas.
+     * @param currentState - current state
+     * @return - map of actions to their (non empty) deltas
+     */
+    public static Map<NodeAction, StateDelta> getAllActionDeltasWithChangeState(State currentState){
+        return getAllActionDeltasWithChangeState(currentState, nodeAction -> true);
+    }
+
+    /**
+     * Like getAllActionDeltasWithChangeState, but the postconditions are only computed for the possible actions,
+     * which are accepted by the filter.
+     * @param currentState - current state
+     * @param filter - the actions to compute
+     * @return - map of accepted actions to their (non empty) deltas
+     */
+    static Map<NodeAction, StateDelta> getAllActionDeltasWithChangeState(State currentState, Predicate<NodeAction> filter){
+        Map<NodeAction, StateDelta> allPossibleActionsWithChangeState = new HashMap<>();
         Set<NodeAction> allPossibleActions = getAllActionPossible(currentState);
         for(NodeAction nodeAction : allPossibleActions){
-            State newState = nodeAction.action.executePostConditionOnTarget(nodeAction.target ,currentState, nodeAction.currentActor);
-            if(!newState.equals(currentState)){
-                allPossibleActionsWithChangeState.add(nodeAction);
+            if (!filter.test(nodeAction)){
+                continue;
+            }
+            StateDelta delta = nodeAction.action.getPostConditionDelta(nodeAction.target, currentState, nodeAction.currentActor);
+            if(!delta.isEmpty()){
+                allPossibleActionsWithChangeState.put(nodeAction, delta);
             }
         }
         return allPossibleActionsWithChangeState;
@@ -0,0 +1,117 @@
+package core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * An immutable set of node actions (by their index, see ActionIndependence), which do not need to be explored in a
+ * state, since they were explored in another order before. Every action is stored together with the facets it
+ * writes, which stay the same as long as it is sleeping.
+ */
+final class SleepSet implements Serializable {
+    static final SleepSet EMPTY = new SleepSet(new long[0]);
+
+    //sorted by index: the index in the upper, the written facets in the lower 32 bits
+    private final long[] entries;
+
+    private SleepSet(long[] entries) {
+        this.entries = entries;
+    }
+
+    boolean isEmpty() {
+        return entries.length == 0;
+    }
+
+    boolean contains(int action) {
+        return find(action) >= 0;
+    }
+
+    /**
+     * Returns this set including the given action.
+     */
+    SleepSet with(int action, int writes) {
+        int position = find(action);
+        if (position >= 0) {
+            return this;
+        }
+        position = -position - 1;
+        long[] result = new long[entries.length + 1];
+        System.arraycopy(entries, 0, result, 0, position);
+        result[position] = entry(action, writes);
+        System.arraycopy(entries, position, result, position + 1, entries.length - position);
+        return new SleepSet(result);
+    }
+
+    /**
+     * Returns the actions of this set, which are independent of the given action.
+     */
+    SleepSet independentOf(int action, int writes) {
+        long[] result = new long[entries.length];
+        int size = 0;
+        for (long entry : entries) {
+            if (ActionIndependence.isIndependent(action, writes, action(entry), writes(entry))) {
+                result[size++] = entry;
+            }
+        }
+        return new SleepSet(Arrays.copyOf(result, size));
+    }
+
+    SleepSet intersection(SleepSet other) {
+        long[] result = new long[entries.length];
+        int size = 0;
+        for (long entry : entries) {
+            if (other.contains(action(entry))) {
+                result[size++] = entry;
+            }
+        }
+        return new SleepSet(Arrays.copyOf(result, size));
+    }
+
+    SleepSet difference(SleepSet other) {
+        long[] result = new long[entries.length];
+        int size = 0;
+        for (long entry : entries) {
+            if (!other.contains(action(entry))) {
+                result[size++] = entry;
+            }
+        }
+        return new SleepSet(Arrays.copyOf(result, size));
+    }
+
+    SleepSet union(SleepSet other) {
+        SleepSet result = this;
+        for (long entry : other.entries) {
+            result = result.with(action(entry), writes(entry));
+        }
+        return result;
+    }
+
+    private int find(int action) {
+        int low = 0;
+        int high = entries.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int current = action(entries[middle]);
+            if (current < action) {
+                low = middle + 1;
+            } else if (current > action) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static long entry(int action, int writes) {
+        return ((long) action << 32) | (writes & 0xFFFFFFFFL);
+    }
+
+    private static int action(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    private static int writes(long entry) {
+        return (int) entry;
+    }
+}
@@ -4,13 +4,18 @@ package core;
 import com.google.gson.Gson;
 import environment.Data;
 import environment.NetworkNode;
+import environment.Software;
+import environment.Vulnerability;
 import knowledge.NetworkKnowledge;
 import knowledge.NodeKnowledge;
 import knowledge.SoftwareKnowledge;
 import run.Simulation;
 
 import java.io.*;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
 import java.util.logging.Logger;
 
 /**
@@ -19,18 +24,249 @@ import java.util.logging.Logger;
 public class State implements Serializable {
 
     private static final Logger LOGGER = Logger.getLogger(State.class.getName());
-    private final Map<NetworkNode.TYPE, NodeKnowledge> nodeKnowledgeMap;
+    private Map<NetworkNode.TYPE, NodeKnowledge> nodeKnowledgeMap;
     private boolean startState;
-    private final NetworkKnowledge networkKnowledge;
+    private NetworkKnowledge networkKnowledge;
     //Map for the SoftwareKnowledge of the adversary for each NetworkNode
-    private final Map<NetworkNode.TYPE,Set<SoftwareKnowledge>> softwareKnowledgeMap = new EnumMap<>(NetworkNode.TYPE.class);
+    private Map<NetworkNode.TYPE,Set<SoftwareKnowledge>> softwareKnowledgeMap;
+
+    //compact mode: all knowledge is stored as bits of the StateEncoding of the simulation, the maps above are null
+    private transient long[] packedFacts;
+    private transient long packedHash;
+
+    //true if all knowledge of this state is immutable and can be shared with copies
+    private transient boolean frozen;
+    //Zobrist hash of the knowledge, which is updated by the add methods as long as it is tracked. The hash of a
+    //compact state may be computed by any thread comparing it, so it is published by the volatile flag
+    private transient long zobrist;
+    private transient volatile boolean zobristTracked;
+    //true for states created by copy(), whose knowledge must only be modified by the add methods
+    private transient boolean copied;
 
     public State(boolean startState) {
         this.nodeKnowledgeMap = new LinkedHashMap<>();
         this.networkKnowledge = NetworkKnowledge.create();
+        this.softwareKnowledgeMap = new EnumMap<>(NetworkNode.TYPE.class);
+        this.startState = startState;
+    }
+
+    private State(long[] packedFacts, boolean startState) {
+        this.packedFacts = packedFacts;
+        this.packedHash = StateEncoding.fingerprint(packedFacts);
+        this.startState = startState;
+    }
+
+    /**
+     * Returns a copy of this state in compact mode, where every fact is stored as a single bit using the
+     * StateEncoding of the simulation. Equality of two compact states only compares their 64 bit hash and their bits.
+     * A compact state is never modified by reading it, the getters return read-only knowledge, which is decoded on
+     * every call (see unpacked).
+     * NOTE: If compact states are enabled in the simulation, states are serialized in compact mode as well.
+     * @return - the compact state
+     * @throws IllegalArgumentException if the state contains knowledge, which does not exist in the simulation
+     */
+    public State toCompact() {
+        State compact = new State(isCompact() ? packedFacts : Simulation.getStateEncoding().encode(this), startState);
+        compact.zobrist = zobristHash();
+        compact.zobristTracked = true;
+        return compact;
+    }
+
+    /**
+     * Returns the packed facts of this state using the StateEncoding of the simulation, see toCompact. The returned
+     * array must not be modified.
+     * @throws IllegalArgumentException if the state contains knowledge, which does not exist in the simulation
+     */
+    public long[] getPackedFacts() {
+        return isCompact() ? packedFacts : Simulation.getStateEncoding().encode(this);
+    }
+
+    /**
+     * Creates a state in compact mode from packed facts of the StateEncoding of the simulation.
+     */
+    public static State fromPackedFacts(long[] packedFacts, boolean startState) {
+        return new State(packedFacts, startState);
+    }
+
+    /**
+     * Returns whether this state stores its knowledge in compact mode.
+     * @return - true if compact
+     */
+    public boolean isCompact() {
+        return packedFacts != null;
+    }
+
+    /**
+     * Returns this state, or for a compact state a frozen copy holding the decoded knowledge. The getters of a compact
+     * state decode it on every call, so code reading the knowledge many times (e.g. evaluating all actions of a
+     * state) should read it from the unpacked state.
+     * @return - a state in map mode, which is equal to this state
+     */
+    public State unpacked() {
+        if (packedFacts == null) {
+            return this;
+        }
+        State decoded = decoded();
+        decoded.zobrist = zobristHash();
+        decoded.zobristTracked = true;
+        decoded.freeze();
+        return decoded;
+    }
+
+    /**
+     * Leaves the compact mode by decoding the knowledge into the maps of this state, before it is modified.
+     */
+    private void unpack() {
+        if (packedFacts == null) {
+            return;
+        }
+        State decoded = decoded();
+        this.nodeKnowledgeMap = decoded.nodeKnowledgeMap;
+        this.networkKnowledge = decoded.networkKnowledge;
+        this.softwareKnowledgeMap = decoded.softwareKnowledgeMap;
+        this.packedFacts = null;
+    }
+
+    /**
+     * Stops tracking the Zobrist hash, since the returned knowledge may be modified, unless this state is frozen or a
+     * copy, whose knowledge must only be modified by the add methods.
+     */
+    private void exposeKnowledge() {
+        if (!copied && !frozen) {
+            zobristTracked = false;
+        }
+    }
+
+    /**
+     * Returns the Zobrist hash of the knowledge of this state. It is computed from scratch if it is not tracked and
+     * kept for compact and frozen states.
+     */
+    private long zobristHash() {
+        if (!zobristTracked) {
+            State decoded = decoded();
+            long hash = Zobrist.of(decoded.nodeKnowledgeMap, decoded.networkKnowledge, decoded.softwareKnowledgeMap);
+            if (packedFacts == null && !frozen) {
+                //the knowledge may be modified by the getters, so the hash can not be kept
+                return hash;
+            }
+            zobrist = hash;
+            zobristTracked = true;
+        }
+        return zobrist;
+    }
+
+    /**
+     * Returns a state holding the knowledge maps without leaving the compact mode. For a compact state this is a
+     * decoded copy, which must not be modified.
+     */
+    private State decoded() {
+        if (packedFacts == null) {
+            return this;
+        }
+        State decoded = new State(startState);
+        Simulation.getStateEncoding().decodeInto(packedFacts, decoded);
+        return decoded;
+    }
+
+    /**
+     * Returns a copy of this state, which shares all knowledge with this state. Before sharing, the knowledge of this
+     * state is replaced by immutable knowledge, so neither state is affected by changes of the other one. The add
+     * methods replace immutable knowledge by a modified copy.
+     * NOTE: The knowledge returned by the getters of both states can not be modified after copying, use the add
+     * methods instead.
+     * @return - the copy
+     */
+    public State copy() {
+        if (packedFacts != null) {
+            //a decoded compact state shares nothing
+            State copy = new State(startState);
+            Simulation.getStateEncoding().decodeInto(packedFacts, copy);
+            copy.trackZobrist(zobristHash());
+            return copy;
+        }
+        freeze();
+        State copy = new State(new LinkedHashMap<>(nodeKnowledgeMap), networkKnowledge,
+                new EnumMap<>(NetworkNode.TYPE.class), startState);
+        copy.softwareKnowledgeMap.putAll(softwareKnowledgeMap);
+        copy.frozen = true;
+        copy.trackZobrist(zobristHash());
+        return copy;
+    }
+
+    private State(Map<NetworkNode.TYPE, NodeKnowledge> nodeKnowledgeMap, NetworkKnowledge networkKnowledge,
+                  Map<NetworkNode.TYPE, Set<SoftwareKnowledge>> softwareKnowledgeMap, boolean startState) {
+        this.nodeKnowledgeMap = nodeKnowledgeMap;
+        this.networkKnowledge = networkKnowledge;
+        this.softwareKnowledgeMap = softwareKnowledgeMap;
         this.startState = startState;
     }
 
+    private void trackZobrist(long hash) {
+        zobrist = hash;
+        zobristTracked = true;
+        copied = true;
+    }
+
+    /**
+     * Replaces all knowledge of this state by immutable knowledge, so it is not modified by copying it, and keeps its
+     * hash. A state must be frozen before it is shared with other threads. A compact state is not modified by reading
+     * it, so only its hash is computed.
+     * NOTE: The knowledge maps returned by the getters of a frozen state must not be modified, use the add methods.
+     */
+    void freeze() {
+        if (packedFacts != null) {
+            zobristHash();
+            return;
+        }
+        if (frozen) {
+            return;
+        }
+        nodeKnowledgeMap.replaceAll((node, knowledge) -> knowledge.toImmutable());
+        networkKnowledge = networkKnowledge.toImmutable();
+        for (Map.Entry<NetworkNode.TYPE, Set<SoftwareKnowledge>> entry : softwareKnowledgeMap.entrySet()) {
+            Set<SoftwareKnowledge> softwareKnowledgeSet = new HashSet<>();
+            for (SoftwareKnowledge softwareKnowledge : entry.getValue()) {
+                softwareKnowledgeSet.add(softwareKnowledge.toImmutable());
+            }
+            entry.setValue(Collections.unmodifiableSet(softwareKnowledgeSet));
+        }
+        frozen = true;
+        zobristHash();
+    }
+
+    /**
+     * Replaces the knowledge of the node by the result of the given wither. The key of the modified fact is given
+     * by the fact function and replaced in the Zobrist hash.
+     */
+    private void updateNodeKnowledge(NetworkNode.TYPE node, UnaryOperator<NodeKnowledge> wither,
+                                     ToLongFunction<NodeKnowledge> fact) {
+        unpack();
+        NodeKnowledge knowledge = nodeKnowledgeMap.get(node);
+        //mutable knowledge is modified by the wither, so the old key is computed before
+        long oldKey = zobristTracked ? fact.applyAsLong(knowledge) : 0;
+        knowledge = wither.apply(knowledge);
+        nodeKnowledgeMap.put(node, knowledge);
+        if (zobristTracked) {
+            zobrist ^= oldKey ^ fact.applyAsLong(knowledge);
+        }
+    }
+
+    /**
+     * Returns a modifiable copy of the software knowledge set of the node, which is already put into the map. The
+     * set may be shared with other states, so it is always copied.
+     */
+    private Set<SoftwareKnowledge> copySoftwareKnowledge(NetworkNode.TYPE node) {
+        unpack();
+        Set<SoftwareKnowledge> softwareKnowledgeSet = softwareKnowledgeMap.get(node);
+        if (softwareKnowledgeSet == null && zobristTracked) {
+            zobrist ^= Zobrist.softwareSet(node);
+        }
+        softwareKnowledgeSet = softwareKnowledgeSet == null ? new HashSet<>() : new HashSet<>(softwareKnowledgeSet);
+        softwareKnowledgeMap.put(node, softwareKnowledgeSet);
+        frozen = false;
+        return softwareKnowledgeSet;
+    }
+
     public static State getStartState(){
         State start = new State(true);
         start.addNodeKnowledge(NetworkNode.TYPE.ADVERSARY);
@@ -44,76 +280,207 @@ public class State implements Serializable {
     }
 
     public void addNodeKnowledge(NetworkNode.TYPE node){
-        networkKnowledge.addNewNode(node);
-        nodeKnowledgeMap.put(node, NodeKnowledge.addNode(node));
+        unpack();
+        if (zobristTracked) {
+            if (!networkKnowledge.getKnownNodes().contains(node)) {
+                zobrist ^= Zobrist.knownNode(node);
+            }
+            if (nodeKnowledgeMap.containsKey(node)) {
+                zobrist ^= Zobrist.node(node, nodeKnowledgeMap.get(node));
+            }
+        }
+        networkKnowledge = networkKnowledge.withNode(node);
+        NodeKnowledge knowledge = NodeKnowledge.addNode(node);
+        nodeKnowledgeMap.put(node, knowledge);
+        if (zobristTracked) {
+            zobrist ^= Zobrist.node(node, knowledge);
+        }
+        frozen = false;
+    }
+
+    public void addNodeAccessLevel(NetworkNode.TYPE node, NetworkNode.ACCESS_LEVEL level){
+        updateNodeKnowledge(node, knowledge -> knowledge.withAccessLevel(level),
+                knowledge -> Zobrist.nodeAccessLevel(node, knowledge.getAccessLevel()));
     }
 
     public void addNodeHostname(NetworkNode.TYPE node, String hostname){
-        NodeKnowledge old = nodeKnowledgeMap.get(node);
-        old.addHostname(hostname);
-        nodeKnowledgeMap.replace(node, old);
+        updateNodeKnowledge(node, knowledge -> knowledge.withHostname(hostname),
+                knowledge -> Zobrist.nodeHostname(node, knowledge.getHostname()));
     }
 
     public void addNodePubIp(NetworkNode.TYPE node, String pubIp){
-        NodeKnowledge old = nodeKnowledgeMap.get(node);
-        old.addPubIp(pubIp);
-        nodeKnowledgeMap.replace(node, old);
+        updateNodeKnowledge(node, knowledge -> knowledge.withPubIp(pubIp),
+                knowledge -> Zobrist.nodePubIp(node, knowledge.getPubIp()));
     }
 
     public void addNodePrivIp(NetworkNode.TYPE node, String privIp){
-        NodeKnowledge old = nodeKnowledgeMap.get(node);
-        old.addPrivIp(privIp);
-        nodeKnowledgeMap.replace(node, old);
+        updateNodeKnowledge(node, knowledge -> knowledge.withPrivIp(privIp),
+                knowledge -> Zobrist.nodePrivIp(node, knowledge.getPrivIp()));
     }
 
     public void addNodeOS(NetworkNode.TYPE node, String os){
-        NodeKnowledge old = nodeKnowledgeMap.get(node);
-        old.addOperationSystem(os);
-        nodeKnowledgeMap.replace(node, old);
+        updateNodeKnowledge(node, knowledge -> knowledge.withOperatingSystem(os),
+                knowledge -> Zobrist.nodeOS(node, knowledge.getOperatingSystem()));
     }
 
     public void addNodeOSVersion(NetworkNode.TYPE node, String osversion){
-        NodeKnowledge old = nodeKnowledgeMap.get(node);
-        old.addOSVersion(osversion);
-        nodeKnowledgeMap.replace(node, old);
+        updateNodeKnowledge(node, knowledge -> knowledge.withOSVersion(osversion),
+                knowledge -> Zobrist.nodeOSVersion(node, knowledge.getOSVersion()));
     }
 
     public void addNodeRemoteSoftwareName(NetworkNode.TYPE node, String swName, boolean remote){
+        unpack();
         if(softwareKnowledgeMap.containsKey(node)) {
-            Set<SoftwareKnowledge> softwareKnowledgeSet = softwareKnowledgeMap.get(node);
             //check if the software is already known
-            if (!isSoftwareContainedInSet(swName, softwareKnowledgeSet)) {
-                Set<SoftwareKnowledge> newKnowledge = new HashSet<>(softwareKnowledgeSet);
-                newKnowledge.add(SoftwareKnowledge.addNew(swName, remote));
-                softwareKnowledgeMap.replace(node, newKnowledge);
+            if (!isSoftwareContainedInSet(swName, softwareKnowledgeMap.get(node))) {
+                addSoftware(node, SoftwareKnowledge.addNew(swName, remote));
             }
         }else{
             //for the case that the node is not contained in the map, create entry in the map
-            Set<SoftwareKnowledge> swSet = new HashSet<>();
-            swSet.add(SoftwareKnowledge.addNew(swName, remote));
-            softwareKnowledgeMap.put(node, swSet);
+            addSoftware(node, SoftwareKnowledge.addNew(swName, remote));
+        }
+    }
+
+    private void addSoftware(NetworkNode.TYPE node, SoftwareKnowledge softwareKnowledge) {
+        copySoftwareKnowledge(node).add(softwareKnowledge);
+        if (zobristTracked) {
+            zobrist ^= Zobrist.software(node, softwareKnowledge);
+        }
+    }
+
+    public void addNodeSoftwareVersion(NetworkNode.TYPE node, String swName, String version){
+        updateSoftware(node, swName, softwareKnowledge -> softwareKnowledge.withVersion(version));
+    }
+
+    public void addNodeSoftwareVulnerabilities(NetworkNode.TYPE node, String swName, Set<Vulnerability> vulnerabilities){
+        updateSoftware(node, swName, softwareKnowledge -> softwareKnowledge.withVulnerabilities(vulnerabilities));
+    }
+
+    /**
+     * Adds the version and vulnerabilities of all given software to the software knowledge of the node. Software,
+     * which is not known yet, is added as local software.
+     * @param node - the node
+     * @param software - the software of the node
+     */
+    public void addNodeLocalSoftware(NetworkNode.TYPE node, Set<Software> software){
+        unpack();
+        if (!softwareKnowledgeMap.containsKey(node)) {
+            copySoftwareKnowledge(node);
+        }
+        for (Software s : software) {
+            addNodeRemoteSoftwareName(node, s.getName(), false);
+            updateSoftware(node, s.getName(), softwareKnowledge -> softwareKnowledge
+                    .withVersion(s.getVersion())
+                    .withVulnerabilities(s.getVulnerabilities()));
+        }
+    }
+
+    /**
+     * Replaces the known software with the given name by the result of the given wither. Nothing happens if the
+     * software is not known.
+     */
+    private void updateSoftware(NetworkNode.TYPE node, String swName, UnaryOperator<SoftwareKnowledge> wither) {
+        unpack();
+        Set<SoftwareKnowledge> known = softwareKnowledgeMap.get(node);
+        SoftwareKnowledge softwareKnowledge = known == null ? null : AdversaryAction.findSoftwareByName(known, swName);
+        if (softwareKnowledge == null) {
+            return;
+        }
+        Set<SoftwareKnowledge> softwareKnowledgeSet = copySoftwareKnowledge(node);
+        if (zobristTracked) {
+            zobrist ^= Zobrist.software(node, softwareKnowledge);
+        }
+        //the software knowledge is part of the hash of the set, so it is removed before it is modified
+        softwareKnowledgeSet.remove(softwareKnowledge);
+        softwareKnowledge = wither.apply(softwareKnowledge);
+        softwareKnowledgeSet.add(softwareKnowledge);
+        if (zobristTracked) {
+            zobrist ^= Zobrist.software(node, softwareKnowledge);
         }
     }
 
     public void addNodeData(NetworkNode.TYPE node, int ID, Data data){
-        NodeKnowledge old = nodeKnowledgeMap.get(node);
-        old.addData(ID, data);
-        nodeKnowledgeMap.replace(node, old);
+        updateNodeKnowledge(node, knowledge -> knowledge.withData(ID, data),
+                knowledge -> Zobrist.nodeData(node, ID, knowledge.getKnownData().get(ID)));
     }
 
     public void addNetworkData(Data data){
-        networkKnowledge.addSniffedData(data);
+        unpack();
+        if (zobristTracked) {
+            zobrist ^= Zobrist.sniffedData(data.getID(), networkKnowledge.getSniffedDataMap().get(data.getID()));
+        }
+        networkKnowledge = networkKnowledge.withSniffedData(data);
+        if (zobristTracked) {
+            zobrist ^= Zobrist.sniffedData(data.getID(), data);
+        }
+    }
+
+    /**
+     * Replaces the knowledge of the node, used to apply a StateDelta.
+     */
+    void putNodeKnowledge(NetworkNode.TYPE node, NodeKnowledge knowledge) {
+        unpack();
+        NodeKnowledge old = nodeKnowledgeMap.put(node, knowledge);
+        if (zobristTracked) {
+            zobrist ^= (old == null ? 0 : Zobrist.node(node, old)) ^ Zobrist.node(node, knowledge);
+        }
+        frozen = false;
+    }
+
+    /**
+     * Replaces the software knowledge of the node, used to apply a StateDelta.
+     */
+    void putSoftwareKnowledge(NetworkNode.TYPE node, Set<SoftwareKnowledge> softwareKnowledgeSet) {
+        unpack();
+        Set<SoftwareKnowledge> old = softwareKnowledgeMap.put(node, Collections.unmodifiableSet(softwareKnowledgeSet));
+        if (zobristTracked) {
+            if (old != null) {
+                zobrist ^= Zobrist.softwareSet(node);
+                for (SoftwareKnowledge softwareKnowledge : old) {
+                    zobrist ^= Zobrist.software(node, softwareKnowledge);
+                }
+            }
+            zobrist ^= Zobrist.softwareSet(node);
+            for (SoftwareKnowledge softwareKnowledge : softwareKnowledgeSet) {
+                zobrist ^= Zobrist.software(node, softwareKnowledge);
+            }
+        }
+        frozen = false;
+    }
+
+    /**
+     * Replaces the network knowledge, used to apply a StateDelta.
+     */
+    void putNetworkKnowledge(NetworkKnowledge knowledge) {
+        unpack();
+        if (zobristTracked) {
+            zobrist ^= Zobrist.network(networkKnowledge) ^ Zobrist.network(knowledge);
+        }
+        networkKnowledge = knowledge;
+        frozen = false;
     }
 
     public NetworkKnowledge getNetworkKnowledge() {
+        if (packedFacts != null) {
+            return unpacked().networkKnowledge;
+        }
+        exposeKnowledge();
         return networkKnowledge;
     }
 
     public Map<NetworkNode.TYPE, NodeKnowledge> getNodeKnowledgeMap() {
+        if (packedFacts != null) {
+            return Collections.unmodifiableMap(unpacked().nodeKnowledgeMap);
+        }
+        exposeKnowledge();
         return nodeKnowledgeMap;
     }
 
     public Map<NetworkNode.TYPE, Set<SoftwareKnowledge>> getSoftwareKnowledgeMap() {
+        if (packedFacts != null) {
+            return Collections.unmodifiableMap(unpacked().softwareKnowledgeMap);
+        }
+        exposeKnowledge();
         return softwareKnowledgeMap;
     }
 
@@ -123,26 +490,41 @@ public class State implements Serializable {
      * @return - set of all possible states
      */
     public static Set<State> computeListOfPossibleStates(State startState){
-        Set<State> states = new HashSet<>();
-        states.add(startState);
-        int previousNumber_of_States =0;
-
-        while(previousNumber_of_States<states.size()) {
-            previousNumber_of_States = states.size();
-            Set<State> newSetofStates = (Set<State>) deepCopy(states);
-            for (State s : states) {
-                Set<NodeAction> possibleActions = NodeAction.getAllActionPossibleWithChangeState(s);
-                for (NodeAction a : possibleActions) {
-                    if (newSetofStates != null){
-                        newSetofStates.add(a.action.executePostConditionOnTarget(a.target,s,a.currentActor));
-                    }
-                }
+        return computeStateSpace(startState).getStates();
+    }
 
-            }
-            states = newSetofStates;
-            LOGGER.info(String.valueOf(previousNumber_of_States));
-        }
-        return states;
+    /**
+     * This method computes all possible states and their transitions. The states are expanded layer by layer
+     * (breadth first) and every state is expanded exactly once. Statistics of each layer are logged.
+     * The states of a layer are expanded in parallel by the number of threads configured in the simulation. If partial
+     * order reduction is enabled in the simulation, the state space only contains the explored transitions.
+     * @param startState - start state
+     * @return - the state space
+     */
+    public static StateSpace computeStateSpace(State startState){
+        return computeStateSpace(startState, Simulation.getExplorationThreads());
+    }
+
+    /**
+     * This method computes all possible states and their transitions using the given number of threads, see
+     * StateSpaceExplorer. The result does not depend on the number of threads.
+     * @param startState - start state
+     * @param threads - number of threads
+     * @return - the state space
+     */
+    public static StateSpace computeStateSpace(State startState, int threads){
+        return new StateSpaceExplorer(threads, Simulation.isPartialOrderReductionEnabled()).explore(startState);
+    }
+
+    /**
+     * This method computes all possible states like computeStateSpace, but stores them in the given file instead of
+     * the heap, so the size of the simulation world is limited by the disk, see DiskStateSpace.
+     * @param startState - start state
+     * @param file - the file to store the states, it is overwritten
+     * @return - the state space, which has to be closed
+     */
+    public static DiskStateSpace computeStateSpaceOnDisk(State startState, Path file){
+        return new StateSpaceExplorer(Simulation.getExplorationThreads()).exploreOnDisk(startState, file);
     }
 
     boolean isSoftwareContainedInSet(String name , Set<SoftwareKnowledge> softwareKnowledgeSet){
@@ -154,13 +536,14 @@ public class State implements Serializable {
     }
 
     public Set<NetworkNode.TYPE> getNodesWithoutAnyAccess(){
-        Set<NetworkNode.TYPE> needsAccess = new HashSet<>(nodeKnowledgeMap.keySet());
+        Set<NetworkNode.TYPE> needsAccess = new HashSet<>(decoded().nodeKnowledgeMap.keySet());
         needsAccess.removeAll(getNodesWithAnyNodeAccess());
         return needsAccess;
     }
 
     public Set<NetworkNode.TYPE> getNodesWithAnyNodeAccess(){
         Set<NetworkNode.TYPE> needsAccess = new HashSet<>();
+        Map<NetworkNode.TYPE, NodeKnowledge> nodeKnowledgeMap = decoded().nodeKnowledgeMap;
         Set<NetworkNode.TYPE> nodes = nodeKnowledgeMap.keySet();
         for (NetworkNode.TYPE node: nodes){
             if (nodeKnowledgeMap.get(node).hasAccessLevelUser() || nodeKnowledgeMap.get(node).hasAccessLevelRoot()){
@@ -187,6 +570,7 @@ public class State implements Serializable {
      */
     public boolean knowsNetwork(){
         Set<NetworkNode.TYPE> nodes = Set.of(NetworkNode.TYPE.ROUTER, NetworkNode.TYPE.ADMINPC, NetworkNode.TYPE.WEBSERVER, NetworkNode.TYPE.DATABASE);
+        Map<NetworkNode.TYPE, NodeKnowledge> nodeKnowledgeMap = decoded().nodeKnowledgeMap;
         for (NetworkNode.TYPE node: nodes){
             if (!nodeKnowledgeMap.containsKey(node) || !nodeKnowledgeMap.get(node).hasPrivIp()
                     || !nodeKnowledgeMap.get(node).hasHostname() || !nodeKnowledgeMap.get(node).hasPubIp()
@@ -203,6 +587,7 @@ public class State implements Serializable {
      * @return - true if root access was acquired
      */
     public boolean hasRootOnRequiredNodes (Set<NetworkNode.TYPE> required){
+        Map<NetworkNode.TYPE, NodeKnowledge> nodeKnowledgeMap = decoded().nodeKnowledgeMap;
         for (NetworkNode.TYPE node : required){
             if (!nodeKnowledgeMap.containsKey(node) || !nodeKnowledgeMap.get(node).hasAccessLevelRoot()){
                 return false;
@@ -217,6 +602,7 @@ public class State implements Serializable {
      */
     public boolean hasReadDatabase(){
         Set<Integer> expectedIDs = Simulation.getNodeByType(NetworkNode.TYPE.DATABASE).getDataSet().keySet();
+        Map<NetworkNode.TYPE, NodeKnowledge> nodeKnowledgeMap = decoded().nodeKnowledgeMap;
         if (nodeKnowledgeMap.containsKey(NetworkNode.TYPE.DATABASE)){
             Map<Integer, Data> knowledge = nodeKnowledgeMap.get(NetworkNode.TYPE.DATABASE).getKnownData();
             for (int ID: expectedIDs){
@@ -238,37 +624,61 @@ public class State implements Serializable {
         if (this == o) return true;
         if (!(o instanceof State)) return false;
         State state = (State) o;
-        return Objects.equals(nodeKnowledgeMap, state.nodeKnowledgeMap) &&
-                Objects.equals(networkKnowledge, state.networkKnowledge) &&
-                Objects.equals(softwareKnowledgeMap, state.softwareKnowledgeMap);
+        if (packedFacts != null && state.packedFacts != null) {
+            return packedHash == state.packedHash && Arrays.equals(packedFacts, state.packedFacts);
+        }
+        if (zobristTracked && state.zobristTracked && zobrist != state.zobrist) {
+            return false;
+        }
+        State knowledge = decoded();
+        State other = state.decoded();
+        return Objects.equals(knowledge.nodeKnowledgeMap, other.nodeKnowledgeMap) &&
+                Objects.equals(knowledge.networkKnowledge, other.networkKnowledge) &&
+                Objects.equals(knowledge.softwareKnowledgeMap, other.softwareKnowledgeMap);
     }
 
     @Override
     public int hashCode() {
-
-        return Objects.hash(nodeKnowledgeMap, networkKnowledge, softwareKnowledgeMap);
+        return Zobrist.fold(zobristHash());
     }
 
     @Override
     public String toString() {
-        return new Gson().toJson(this);
+        return new Gson().toJson(decoded());
     }
 
     /**
-     * Makes a deep copy of any Java object that is passed.
+     * If compact states are enabled, a state is written as its packed facts only, unless it contains knowledge
+     * which does not exist in the simulation.
      */
-    private static Object deepCopy(Object object) {
-        try {
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            ObjectOutputStream outputStrm = new ObjectOutputStream(outputStream);
-            outputStrm.writeObject(object);
-            ByteArrayInputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
-            ObjectInputStream objInputStream = new ObjectInputStream(inputStream);
-            return objInputStream.readObject();
-        }
-        catch (Exception e) {
-            e.printStackTrace();
-            return null;
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        long[] facts = packedFacts;
+        if (facts == null && Simulation.isCompactStatesEnabled()) {
+            try {
+                facts = Simulation.getStateEncoding().encode(this);
+            } catch (IllegalArgumentException e) {
+                facts = null;
+            }
+        }
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("startState", startState);
+        fields.put("nodeKnowledgeMap", facts == null ? nodeKnowledgeMap : null);
+        fields.put("networkKnowledge", facts == null ? networkKnowledge : null);
+        fields.put("softwareKnowledgeMap", facts == null ? softwareKnowledgeMap : null);
+        out.writeFields();
+        out.writeObject(facts);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        startState = fields.get("startState", false);
+        nodeKnowledgeMap = (Map<NetworkNode.TYPE, NodeKnowledge>) fields.get("nodeKnowledgeMap", null);
+        networkKnowledge = (NetworkKnowledge) fields.get("networkKnowledge", null);
+        softwareKnowledgeMap = (Map<NetworkNode.TYPE, Set<SoftwareKnowledge>>) fields.get("softwareKnowledgeMap", null);
+        packedFacts = (long[]) in.readObject();
+        if (packedFacts != null) {
+            packedHash = StateEncoding.fingerprint(packedFacts);
         }
     }
 }
@@ -0,0 +1,220 @@
+package core;
+
+import environment.Data;
+import environment.NetworkNode;
+import environment.Software;
+import environment.Vulnerability;
+import knowledge.NetworkKnowledge;
+import knowledge.NodeKnowledge;
+import knowledge.SoftwareKnowledge;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * Collects the knowledge an action would add to a state without building the new state. Only the node, software and
+ * network knowledge which is modified is replaced by modified immutable copies, all other knowledge is read from the
+ * state. The getters return the knowledge including the collected changes, so the postconditions can be written in
+ * the same way as on a state.
+ * An empty delta means that the action does not change the state. Otherwise apply() builds the new state.
+ */
+public class StateDelta {
+    private final State state;
+    private boolean leavesStartState;
+    private NetworkKnowledge networkKnowledge;
+    private final Map<NetworkNode.TYPE, NodeKnowledge> nodeKnowledgeMap = new EnumMap<>(NetworkNode.TYPE.class);
+    private final Map<NetworkNode.TYPE, Set<SoftwareKnowledge>> softwareKnowledgeMap = new EnumMap<>(NetworkNode.TYPE.class);
+
+    StateDelta(State state) {
+        this.state = state;
+    }
+
+    /**
+     * Returns whether the delta does not change the knowledge of the state.
+     * NOTE: Leaving the start state is not a change, since it is not part of the equality of states.
+     * @return - true if the state would not change
+     */
+    public boolean isEmpty() {
+        if (networkKnowledge != null && !networkKnowledge.equals(state.getNetworkKnowledge())) {
+            return false;
+        }
+        Map<NetworkNode.TYPE, NodeKnowledge> currentNodes = state.getNodeKnowledgeMap();
+        for (Map.Entry<NetworkNode.TYPE, NodeKnowledge> node : nodeKnowledgeMap.entrySet()) {
+            if (!node.getValue().equals(currentNodes.get(node.getKey()))) {
+                return false;
+            }
+        }
+        Map<NetworkNode.TYPE, Set<SoftwareKnowledge>> currentSoftware = state.getSoftwareKnowledgeMap();
+        for (Map.Entry<NetworkNode.TYPE, Set<SoftwareKnowledge>> software : softwareKnowledgeMap.entrySet()) {
+            if (!software.getValue().equals(currentSoftware.get(software.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds the new state by applying the delta to a copy of the state.
+     * @return - the new state
+     */
+    public State apply() {
+        State newState = state.copy();
+        if (leavesStartState) {
+            newState.setStartState(false);
+        }
+        if (networkKnowledge != null) {
+            newState.putNetworkKnowledge(networkKnowledge);
+        }
+        for (Map.Entry<NetworkNode.TYPE, NodeKnowledge> node : nodeKnowledgeMap.entrySet()) {
+            newState.putNodeKnowledge(node.getKey(), node.getValue());
+        }
+        for (Map.Entry<NetworkNode.TYPE, Set<SoftwareKnowledge>> software : softwareKnowledgeMap.entrySet()) {
+            newState.putSoftwareKnowledge(software.getKey(), software.getValue());
+        }
+        return newState;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public NetworkKnowledge getNetworkKnowledge() {
+        return networkKnowledge != null ? networkKnowledge : state.getNetworkKnowledge();
+    }
+
+    public NodeKnowledge getNodeKnowledge(NetworkNode.TYPE node) {
+        NodeKnowledge knowledge = nodeKnowledgeMap.get(node);
+        return knowledge != null ? knowledge : state.getNodeKnowledgeMap().get(node);
+    }
+
+    /**
+     * Returns the known software of the node or null if no software knowledge exists for the node.
+     */
+    public Set<SoftwareKnowledge> getSoftwareKnowledge(NetworkNode.TYPE node) {
+        Set<SoftwareKnowledge> knowledge = softwareKnowledgeMap.get(node);
+        return knowledge != null ? knowledge : state.getSoftwareKnowledgeMap().get(node);
+    }
+
+    boolean leavesStartState() {
+        return leavesStartState;
+    }
+
+    /**
+     * Returns the network knowledge replaced by the delta or null if it is not replaced.
+     */
+    NetworkKnowledge getModifiedNetworkKnowledge() {
+        return networkKnowledge;
+    }
+
+    Map<NetworkNode.TYPE, NodeKnowledge> getModifiedNodeKnowledge() {
+        return Collections.unmodifiableMap(nodeKnowledgeMap);
+    }
+
+    Map<NetworkNode.TYPE, Set<SoftwareKnowledge>> getModifiedSoftwareKnowledge() {
+        return Collections.unmodifiableMap(softwareKnowledgeMap);
+    }
+
+    public void leaveStartState() {
+        leavesStartState = true;
+    }
+
+    public void addNodeKnowledge(NetworkNode.TYPE node) {
+        networkKnowledge = getNetworkKnowledge().toImmutable().withNode(node);
+        nodeKnowledgeMap.put(node, NodeKnowledge.addNode(node).toImmutable());
+    }
+
+    public void addNodeAccessLevel(NetworkNode.TYPE node, NetworkNode.ACCESS_LEVEL level) {
+        updateNodeKnowledge(node, knowledge -> knowledge.withAccessLevel(level));
+    }
+
+    public void addNodeHostname(NetworkNode.TYPE node, String hostname) {
+        updateNodeKnowledge(node, knowledge -> knowledge.withHostname(hostname));
+    }
+
+    public void addNodePubIp(NetworkNode.TYPE node, String pubIp) {
+        updateNodeKnowledge(node, knowledge -> knowledge.withPubIp(pubIp));
+    }
+
+    public void addNodePrivIp(NetworkNode.TYPE node, String privIp) {
+        updateNodeKnowledge(node, knowledge -> knowledge.withPrivIp(privIp));
+    }
+
+    public void addNodeOS(NetworkNode.TYPE node, String os) {
+        updateNodeKnowledge(node, knowledge -> knowledge.withOperatingSystem(os));
+    }
+
+    public void addNodeOSVersion(NetworkNode.TYPE node, String osversion) {
+        updateNodeKnowledge(node, knowledge -> knowledge.withOSVersion(osversion));
+    }
+
+    public void addNodeData(NetworkNode.TYPE node, int ID, Data data) {
+        updateNodeKnowledge(node, knowledge -> knowledge.withData(ID, data));
+    }
+
+    public void addNetworkData(Data data) {
+        networkKnowledge = getNetworkKnowledge().toImmutable().withSniffedData(data);
+    }
+
+    public void addNodeRemoteSoftwareName(NetworkNode.TYPE node, String swName, boolean remote) {
+        Set<SoftwareKnowledge> known = getSoftwareKnowledge(node);
+        if (known == null || AdversaryAction.findSoftwareByName(known, swName) == null) {
+            writableSoftwareKnowledge(node).add(SoftwareKnowledge.addNew(swName, remote).toImmutable());
+        }
+    }
+
+    public void addNodeSoftwareVersion(NetworkNode.TYPE node, String swName, String version) {
+        updateSoftware(node, swName, softwareKnowledge -> softwareKnowledge.withVersion(version));
+    }
+
+    public void addNodeSoftwareVulnerabilities(NetworkNode.TYPE node, String swName, Set<Vulnerability> vulnerabilities) {
+        updateSoftware(node, swName, softwareKnowledge -> softwareKnowledge.withVulnerabilities(vulnerabilities));
+    }
+
+    /**
+     * Adds the version and vulnerabilities of all given software to the software knowledge of the node, like
+     * State.addNodeLocalSoftware.
+     */
+    public void addNodeLocalSoftware(NetworkNode.TYPE node, Set<Software> software) {
+        if (getSoftwareKnowledge(node) == null) {
+            writableSoftwareKnowledge(node);
+        }
+        for (Software s : software) {
+            addNodeRemoteSoftwareName(node, s.getName(), false);
+            updateSoftware(node, s.getName(), softwareKnowledge -> softwareKnowledge
+                    .withVersion(s.getVersion())
+                    .withVulnerabilities(s.getVulnerabilities()));
+        }
+    }
+
+    private void updateNodeKnowledge(NetworkNode.TYPE node, UnaryOperator<NodeKnowledge> wither) {
+        //immutable knowledge, so the knowledge of the state is not modified by the wither
+        nodeKnowledgeMap.put(node, wither.apply(getNodeKnowledge(node).toImmutable()));
+    }
+
+    private Set<SoftwareKnowledge> writableSoftwareKnowledge(NetworkNode.TYPE node) {
+        Set<SoftwareKnowledge> softwareKnowledgeSet = softwareKnowledgeMap.get(node);
+        if (softwareKnowledgeSet == null) {
+            softwareKnowledgeSet = new HashSet<>();
+            Set<SoftwareKnowledge> current = state.getSoftwareKnowledgeMap().get(node);
+            if (current != null) {
+                for (SoftwareKnowledge softwareKnowledge : current) {
+                    softwareKnowledgeSet.add(softwareKnowledge.toImmutable());
+                }
+            }
+            softwareKnowledgeMap.put(node, softwareKnowledgeSet);
+        }
+        return softwareKnowledgeSet;
+    }
+
+    private void updateSoftware(NetworkNode.TYPE node, String swName, UnaryOperator<SoftwareKnowledge> wither) {
+        Set<SoftwareKnowledge> known = getSoftwareKnowledge(node);
+        SoftwareKnowledge softwareKnowledge = known == null ? null : AdversaryAction.findSoftwareByName(known, swName);
+        if (softwareKnowledge == null) {
+            return;
+        }
+        Set<SoftwareKnowledge> softwareKnowledgeSet = writableSoftwareKnowledge(node);
+        softwareKnowledge = AdversaryAction.findSoftwareByName(softwareKnowledgeSet, swName);
+        softwareKnowledgeSet.remove(softwareKnowledge);
+        softwareKnowledgeSet.add(wither.apply(softwareKnowledge));
+    }
+}
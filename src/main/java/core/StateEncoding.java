@@ -0,0 +1,341 @@
+package core;
+
+import environment.Data;
+import environment.NetworkNode;
+import environment.NetworkWorld;
+import environment.Software;
+import environment.Vulnerability;
+import knowledge.NodeKnowledge;
+import knowledge.SoftwareKnowledge;
+
+import java.util.*;
+
+/**
+ * This class maps every fact the adversary can learn in a given simulation world to a single bit, so that a state
+ * can be stored as a long[] instead of nested maps. The layout is derived from the world: for each logical node the
+ * IP addresses, hostname, OS, OS version, access level, the data IDs on the node and every software product with its
+ * version and vulnerabilities get a bit, as well as the data that can be sniffed in the network.
+ * Since the adversary only ever learns the values defined in the world, a set bit is decoded back to the world's
+ * value (and the world's Data object).
+ */
+public class StateEncoding {
+    private final Map<NetworkNode.TYPE, NodeLayout> nodeLayouts = new EnumMap<>(NetworkNode.TYPE.class);
+    private final Map<Integer, Integer> sniffedBits = new HashMap<>();
+    private final Map<Integer, Data> sniffedData = new HashMap<>();
+    private final int size;
+
+    /**
+     * Creates the fact layout of the given world. The world has to be fully set up.
+     * @param world - the simulation world
+     */
+    public StateEncoding(NetworkWorld world) {
+        int bit = 0;
+        for (NetworkNode.TYPE type : NetworkNode.TYPE.values()) {
+            NetworkNode node = findNode(world, type);
+            NodeLayout layout = new NodeLayout(type, node, bit);
+            bit = layout.next;
+            nodeLayouts.put(type, layout);
+        }
+        for (Integer ID : new TreeSet<>(world.getSniffableData().keySet())) {
+            sniffedBits.put(ID, bit++);
+            sniffedData.put(ID, world.getSniffableData().get(ID));
+        }
+        this.size = bit;
+    }
+
+    /**
+     * Returns the number of facts (bits) of this layout.
+     * @return - number of facts
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a readable name of every fact, e.g. "WEBSERVER.software.nginx.version", ordered by bit.
+     * @return - the names of the facts
+     */
+    public List<String> factNames() {
+        String[] names = new String[size];
+        for (NodeLayout layout : nodeLayouts.values()) {
+            String prefix = layout.type + ".";
+            names[layout.known] = prefix + "known";
+            names[layout.pubIp] = prefix + "pubIp";
+            names[layout.privIp] = prefix + "privIp";
+            names[layout.hostname] = prefix + "hostname";
+            names[layout.os] = prefix + "os";
+            names[layout.osVersion] = prefix + "osVersion";
+            names[layout.accessUser] = prefix + "access.user";
+            names[layout.accessRoot] = prefix + "access.root";
+            names[layout.softwareEntry] = prefix + "software";
+            for (Map.Entry<Integer, Integer> data : layout.dataBits.entrySet()) {
+                names[data.getValue()] = prefix + "data." + data.getKey();
+            }
+            for (SoftwareLayout software : layout.software.values()) {
+                String softwarePrefix = prefix + "software." + software.software.getName() + ".";
+                names[software.known] = softwarePrefix + "known";
+                names[software.remote] = softwarePrefix + "remote";
+                names[software.version] = softwarePrefix + "version";
+                for (Map.Entry<Vulnerability, Integer> vulnerability : software.vulnerabilityBits.entrySet()) {
+                    names[vulnerability.getValue()] = softwarePrefix + "vulnerability." + vulnerability.getKey().getCve()
+                            + "." + vulnerability.getKey().getType();
+                }
+            }
+        }
+        for (Map.Entry<Integer, Integer> data : sniffedBits.entrySet()) {
+            names[data.getValue()] = "sniffed." + data.getKey();
+        }
+        return Arrays.asList(names);
+    }
+
+    /**
+     * Encodes the knowledge of a state into a bitset.
+     * @param state - the state to encode
+     * @return - the packed facts
+     * @throws IllegalArgumentException if the state contains knowledge, which does not exist in the world
+     */
+    public long[] encode(State state) {
+        long[] bits = new long[(size + 63) >>> 6];
+        Map<NetworkNode.TYPE, NodeKnowledge> nodeKnowledgeMap = state.getNodeKnowledgeMap();
+        if (!nodeKnowledgeMap.keySet().equals(state.getNetworkKnowledge().getKnownNodes())) {
+            throw new IllegalArgumentException("Known nodes of network and node knowledge differ");
+        }
+        for (Map.Entry<NetworkNode.TYPE, NodeKnowledge> entry : nodeKnowledgeMap.entrySet()) {
+            NodeLayout layout = nodeLayouts.get(entry.getKey());
+            NodeKnowledge knowledge = entry.getValue();
+            set(bits, layout.known);
+            encodeValue(bits, layout.pubIp, knowledge.getPubIp(), layout.node == null ? null : layout.node.getPub_ip());
+            encodeValue(bits, layout.privIp, knowledge.getPrivIp(), layout.node == null ? null : layout.node.getPriv_ip());
+            encodeValue(bits, layout.hostname, knowledge.getHostname(), layout.node == null ? null : layout.node.getHostname());
+            encodeValue(bits, layout.os, knowledge.getOperatingSystem(), layout.node == null ? null : layout.node.getOperatingSystem());
+            encodeValue(bits, layout.osVersion, knowledge.getOSVersion(), layout.node == null ? null : layout.node.getOsVersion());
+            if (knowledge.hasAccessLevelUser()) {
+                set(bits, layout.accessUser);
+            } else if (knowledge.hasAccessLevelRoot()) {
+                set(bits, layout.accessRoot);
+            }
+            for (Map.Entry<Integer, Data> data : knowledge.getKnownData().entrySet()) {
+                Integer dataBit = layout.dataBits.get(data.getKey());
+                if (dataBit == null || !layout.node.getDataSet().get(data.getKey()).equals(data.getValue())) {
+                    throw new IllegalArgumentException("Data " + data.getKey() + " does not exist on " + entry.getKey());
+                }
+                set(bits, dataBit);
+            }
+        }
+        for (Map.Entry<NetworkNode.TYPE, Set<SoftwareKnowledge>> entry : state.getSoftwareKnowledgeMap().entrySet()) {
+            NodeLayout layout = nodeLayouts.get(entry.getKey());
+            set(bits, layout.softwareEntry);
+            for (SoftwareKnowledge softwareKnowledge : entry.getValue()) {
+                SoftwareLayout swLayout = layout.software.get(softwareKnowledge.getName());
+                if (swLayout == null || isSet(bits, swLayout.known)) {
+                    throw new IllegalArgumentException("Software " + softwareKnowledge.getName() + " cannot be encoded for " + entry.getKey());
+                }
+                set(bits, swLayout.known);
+                if (softwareKnowledge.isRemote()) {
+                    set(bits, swLayout.remote);
+                }
+                encodeValue(bits, swLayout.version, softwareKnowledge.getVersion(), swLayout.software.getVersion());
+                for (Vulnerability vulnerability : softwareKnowledge.getVulnerabilities()) {
+                    Integer vulnBit = swLayout.vulnerabilityBits.get(vulnerability);
+                    if (vulnBit == null) {
+                        throw new IllegalArgumentException("Vulnerability " + vulnerability.getCve() + " does not exist in " + softwareKnowledge.getName());
+                    }
+                    set(bits, vulnBit);
+                }
+            }
+        }
+        for (Map.Entry<Integer, Data> data : state.getNetworkKnowledge().getSniffedDataMap().entrySet()) {
+            Integer dataBit = sniffedBits.get(data.getKey());
+            if (dataBit == null || !sniffedData.get(data.getKey()).equals(data.getValue())) {
+                throw new IllegalArgumentException("Sniffed data " + data.getKey() + " does not exist in the network");
+            }
+            set(bits, dataBit);
+        }
+        return bits;
+    }
+
+    /**
+     * Decodes packed facts into the (empty) knowledge of the given state.
+     * @param bits - the packed facts
+     * @param state - a state without any knowledge
+     */
+    void decodeInto(long[] bits, State state) {
+        for (NodeLayout layout : nodeLayouts.values()) {
+            if (!isSet(bits, layout.known)) {
+                continue;
+            }
+            NetworkNode.TYPE type = layout.type;
+            state.addNodeKnowledge(type);
+            NodeKnowledge knowledge = state.getNodeKnowledgeMap().get(type);
+            if (isSet(bits, layout.pubIp)) knowledge.addPubIp(layout.node.getPub_ip());
+            if (isSet(bits, layout.privIp)) knowledge.addPrivIp(layout.node.getPriv_ip());
+            if (isSet(bits, layout.hostname)) knowledge.addHostname(layout.node.getHostname());
+            if (isSet(bits, layout.os)) knowledge.addOperationSystem(layout.node.getOperatingSystem());
+            if (isSet(bits, layout.osVersion)) knowledge.addOSVersion(layout.node.getOsVersion());
+            if (isSet(bits, layout.accessUser)) {
+                knowledge.addAccessLevel(NetworkNode.ACCESS_LEVEL.USER);
+            } else if (isSet(bits, layout.accessRoot)) {
+                knowledge.addAccessLevel(NetworkNode.ACCESS_LEVEL.ROOT);
+            }
+            for (Map.Entry<Integer, Integer> data : layout.dataBits.entrySet()) {
+                if (isSet(bits, data.getValue())) {
+                    knowledge.addData(data.getKey(), layout.node.getDataSet().get(data.getKey()));
+                }
+            }
+        }
+        for (NodeLayout layout : nodeLayouts.values()) {
+            if (!isSet(bits, layout.softwareEntry)) {
+                continue;
+            }
+            Set<SoftwareKnowledge> softwareKnowledgeSet = new HashSet<>();
+            for (SoftwareLayout swLayout : layout.software.values()) {
+                if (!isSet(bits, swLayout.known)) {
+                    continue;
+                }
+                SoftwareKnowledge softwareKnowledge = SoftwareKnowledge.addNew(swLayout.software.getName(), isSet(bits, swLayout.remote));
+                if (isSet(bits, swLayout.version)) {
+                    softwareKnowledge.addVersion(swLayout.software.getVersion());
+                }
+                Set<Vulnerability> vulnerabilities = new HashSet<>();
+                for (Map.Entry<Vulnerability, Integer> vulnerability : swLayout.vulnerabilityBits.entrySet()) {
+                    if (isSet(bits, vulnerability.getValue())) {
+                        vulnerabilities.add(vulnerability.getKey());
+                    }
+                }
+                softwareKnowledge.addVulnerabilities(vulnerabilities);
+                softwareKnowledgeSet.add(softwareKnowledge);
+            }
+            state.getSoftwareKnowledgeMap().put(layout.type, softwareKnowledgeSet);
+        }
+        for (Map.Entry<Integer, Integer> data : sniffedBits.entrySet()) {
+            if (isSet(bits, data.getValue())) {
+                state.addNetworkData(sniffedData.get(data.getKey()));
+            }
+        }
+    }
+
+    /**
+     * Computes a well distributed 64 bit hash of packed facts.
+     * @param bits - the packed facts
+     * @return - the hash
+     */
+    public static long fingerprint(long[] bits) {
+        long hash = 0x9E3779B97F4A7C15L;
+        for (long word : bits) {
+            hash = mix(hash ^ word);
+        }
+        return hash;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static void encodeValue(long[] bits, int bit, String value, String worldValue) {
+        if (value.isEmpty()) {
+            return;
+        }
+        if (!value.equals(worldValue)) {
+            throw new IllegalArgumentException("Value " + value + " does not exist in the world");
+        }
+        set(bits, bit);
+    }
+
+    private static void set(long[] bits, int bit) {
+        bits[bit >>> 6] |= 1L << bit;
+    }
+
+    static boolean isSet(long[] bits, int bit) {
+        return (bits[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    private static NetworkNode findNode(NetworkWorld world, NetworkNode.TYPE type) {
+        for (NetworkNode node : world.getNodes()) {
+            if (node.getType().equals(type)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The bits of a single logical node. Nodes, which do not exist in the world (ADVERSARY), only have the bits for
+     * being known and the access level.
+     */
+    private static class NodeLayout {
+        private final NetworkNode.TYPE type;
+        private final NetworkNode node;
+        private final int known;
+        private final int pubIp;
+        private final int privIp;
+        private final int hostname;
+        private final int os;
+        private final int osVersion;
+        private final int accessUser;
+        private final int accessRoot;
+        private final int softwareEntry;
+        private final Map<Integer, Integer> dataBits = new TreeMap<>();
+        private final Map<String, SoftwareLayout> software = new TreeMap<>();
+        private final int next;
+
+        private NodeLayout(NetworkNode.TYPE type, NetworkNode node, int bit) {
+            this.type = type;
+            this.node = node;
+            this.known = bit++;
+            this.pubIp = bit++;
+            this.privIp = bit++;
+            this.hostname = bit++;
+            this.os = bit++;
+            this.osVersion = bit++;
+            this.accessUser = bit++;
+            this.accessRoot = bit++;
+            this.softwareEntry = bit++;
+            if (node != null) {
+                for (Integer ID : new TreeSet<>(node.getDataSet().keySet())) {
+                    dataBits.put(ID, bit++);
+                }
+                Map<String, Software> softwareByName = new TreeMap<>();
+                for (Software s : node.getRemoteSoftware()) {
+                    softwareByName.putIfAbsent(s.getName(), s);
+                }
+                for (Software s : node.getLocalSoftware()) {
+                    softwareByName.putIfAbsent(s.getName(), s);
+                }
+                for (Software s : softwareByName.values()) {
+                    SoftwareLayout swLayout = new SoftwareLayout(s, bit);
+                    bit = swLayout.next;
+                    software.put(s.getName(), swLayout);
+                }
+            }
+            this.next = bit;
+        }
+    }
+
+    /**
+     * The bits of a single software product on a node.
+     */
+    private static class SoftwareLayout {
+        private final Software software;
+        private final int known;
+        private final int remote;
+        private final int version;
+        private final Map<Vulnerability, Integer> vulnerabilityBits = new LinkedHashMap<>();
+        private final int next;
+
+        private SoftwareLayout(Software software, int bit) {
+            this.software = software;
+            this.known = bit++;
+            this.remote = bit++;
+            this.version = bit++;
+            //the vulnerabilities are a hash set, so they are sorted to get the same layout in every JVM
+            List<Vulnerability> vulnerabilities = new ArrayList<>(software.getVulnerabilities());
+            vulnerabilities.sort(Comparator.comparing(Vulnerability::getCve).thenComparing(Vulnerability::getType));
+            for (Vulnerability vulnerability : vulnerabilities) {
+                vulnerabilityBits.put(vulnerability, bit++);
+            }
+            this.next = bit;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package core;
+
+import java.util.*;
+
+/**
+ * The result of the enumeration of all reachable states. Every state is stored once together with its
+ * transitions, i.e. the actions which change the state and the resulting states. The states are ordered by
+ * their breadth first layer, starting with the start state.
+ */
+public class StateSpace {
+    private final Map<State, Map<NodeAction, State>> transitions;
+    private final List<Integer> layerSizes;
+    private final int transitionCount;
+
+    StateSpace(Map<State, Map<NodeAction, State>> transitions, List<Integer> layerSizes, int transitionCount) {
+        this.transitions = transitions;
+        this.layerSizes = layerSizes;
+        this.transitionCount = transitionCount;
+    }
+
+    /**
+     * Returns all states in the order they were found.
+     * @return - the states, the set can not be modified
+     */
+    public Set<State> getStates() {
+        return Collections.unmodifiableSet(transitions.keySet());
+    }
+
+    /**
+     * Returns the actions of the state, which change the state, mapped to the resulting states.
+     * @param state - the state
+     * @return - the transitions or null if the state is not part of the state space
+     */
+    public Map<NodeAction, State> getTransitions(State state) {
+        Map<NodeAction, State> stateTransitions = transitions.get(state);
+        return stateTransitions == null ? null : Collections.unmodifiableMap(stateTransitions);
+    }
+
+    /**
+     * Returns the number of new states found in each breadth first layer. The first layer contains the start state.
+     */
+    public List<Integer> getLayerSizes() {
+        return Collections.unmodifiableList(layerSizes);
+    }
+
+    public int getTransitionCount() {
+        return transitionCount;
+    }
+
+    public int size() {
+        return transitions.size();
+    }
+}
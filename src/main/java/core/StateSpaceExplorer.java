@@ -0,0 +1,463 @@
+package core;
+
+import run.Simulation;
+
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Enumerates all reachable states breadth first. The states of a layer (the frontier) are expanded in parallel on a
+ * fork/join pool, where idle threads steal parts of the frontier. The successors are merged into the visited states
+ * sequentially in the order of the frontier, so the result is exactly the same for every number of threads.
+ *
+ * If a CheckpointStore is given, the found states, their transitions and the frontier are saved after a layer, when a
+ * checkpoint is due, and after the last layer. An exploration with the same store resumes from the last checkpoint.
+ *
+ * The threads are created on first use and shut down at the end of an exploration or by close.
+ *
+ * NOTE: The simulation world must not be modified while exploring, since it is read by all threads.
+ */
+public class StateSpaceExplorer implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(StateSpaceExplorer.class.getName());
+    //number of frontier states, which are expanded by a single task without splitting it further
+    private static final int SPLIT_THRESHOLD = 16;
+    //number of frontier states, which are read from disk and expanded at once
+    private static final int DISK_BATCH_SIZE = 4096;
+    private static final String CHECKPOINT = "states";
+
+    private final int threads;
+    private final boolean partialOrderReduction;
+    private final CheckpointStore checkpoints;
+    //true if the found states are stored in compact mode, see State.toCompact
+    private final boolean compactStates = Simulation.isCompactStatesEnabled();
+    //the threads expanding the states, null with a single thread or until they are needed
+    private ForkJoinPool pool;
+
+    /**
+     * @param threads - number of threads, 1 expands the states in the calling thread
+     * @throws IllegalArgumentException if the number of threads is not positive
+     */
+    public StateSpaceExplorer(int threads) {
+        this(threads, false);
+    }
+
+    /**
+     * @param threads - number of threads, 1 expands the states in the calling thread
+     * @param partialOrderReduction - true if only a representative order of independent actions is explored, see
+     *                              explore
+     * @throws IllegalArgumentException if the number of threads is not positive
+     */
+    public StateSpaceExplorer(int threads, boolean partialOrderReduction) {
+        this(threads, partialOrderReduction, null);
+    }
+
+    /**
+     * @param threads - number of threads, 1 expands the states in the calling thread
+     * @param partialOrderReduction - true if only a representative order of independent actions is explored, see
+     *                              explore
+     * @param checkpoints - store of the checkpoints of explore or null to disable checkpoints
+     * @throws IllegalArgumentException if the number of threads is not positive
+     */
+    public StateSpaceExplorer(int threads, boolean partialOrderReduction, CheckpointStore checkpoints) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+        }
+        this.threads = threads;
+        this.partialOrderReduction = partialOrderReduction;
+        this.checkpoints = checkpoints;
+    }
+
+    /**
+     * Computes all states reachable from the start state and their transitions. Every state is expanded exactly
+     * once. Statistics of each layer are logged.
+     * With partial order reduction, independent actions (see ActionIndependence) are only explored in one order,
+     * using sleep sets: after exploring an action of a state, the following successors of the state do not explore it
+     * again, if it is independent of the action leading to them, since both orders reach the same state. All states
+     * are found, but the state space only contains the explored transitions. A state is expanded again, if it is
+     * reached with a smaller sleep set after it was expanded, to explore the actions which are no longer sleeping.
+     * If a checkpoint of an exploration from the same world is found, the exploration resumes from it and the start
+     * state is ignored.
+     * @param startState - start state
+     * @return - the state space
+     */
+    public StateSpace explore(State startState) {
+        try {
+            return partialOrderReduction ? exploreWithSleepSets(startState) : exploreAllOrders(startState);
+        } finally {
+            close();
+        }
+    }
+
+    private StateSpace exploreAllOrders(State startState) {
+        //maps every found state to its canonical instance, which is used in the transitions
+        Map<State, State> found = new ConcurrentHashMap<>();
+        Map<State, Map<NodeAction, State>> transitions = new LinkedHashMap<>();
+        List<Integer> layerSizes = new ArrayList<>();
+        int transitionCount = 0;
+        List<State> frontier = new ArrayList<>();
+        ExplorationCheckpoint checkpoint = loadCheckpoint();
+        if (checkpoint != null) {
+            checkpoint.restore(found);
+            transitions = checkpoint.transitions;
+            layerSizes = checkpoint.layerSizes;
+            transitionCount = checkpoint.transitionCount;
+            frontier.addAll(checkpoint.frontier.keySet());
+        } else {
+            //states are shared by all threads, so they must not be modified by copying them later
+            State start = compactStates ? startState.toCompact() : startState;
+            start.freeze();
+            found.put(start, start);
+            frontier.add(start);
+        }
+        long start = System.currentTimeMillis();
+
+        while (!frontier.isEmpty()) {
+            layerSizes.add(frontier.size());
+            //the visited states are only read while expanding
+            List<Map<NodeAction, State>> expansions = map(frontier, state -> expand(state, found, compactStates));
+            List<State> nextFrontier = new ArrayList<>();
+            int layerTransitions = 0;
+            for (int i = 0; i < frontier.size(); i++) {
+                Map<NodeAction, State> successors = expansions.get(i);
+                for (Map.Entry<NodeAction, State> successor : successors.entrySet()) {
+                    State newState = successor.getValue();
+                    State canonical = found.putIfAbsent(newState, newState);
+                    if (canonical == null) {
+                        newState.freeze();
+                        nextFrontier.add(newState);
+                    } else {
+                        successor.setValue(canonical);
+                    }
+                }
+                transitions.put(frontier.get(i), successors);
+                layerTransitions += successors.size();
+            }
+            transitionCount += layerTransitions;
+            LOGGER.info(String.format("Layer %d: expanded %d states with %d transitions, found %d new states, %d states in total (%d ms)",
+                    layerSizes.size() - 1, frontier.size(), layerTransitions, nextFrontier.size(), found.size(),
+                    System.currentTimeMillis() - start));
+            frontier = nextFrontier;
+            if (isCheckpointDue(frontier.isEmpty())) {
+                Map<State, SleepSet> savedFrontier = new LinkedHashMap<>();
+                frontier.forEach(state -> savedFrontier.put(state, null));
+                checkpoints.save(CHECKPOINT, new ExplorationCheckpoint(false, transitions, layerSizes,
+                        transitionCount, savedFrontier, null));
+            }
+        }
+        return new StateSpace(transitions, layerSizes, transitionCount);
+    }
+
+    private StateSpace exploreWithSleepSets(State startState) {
+        Map<State, State> found = new ConcurrentHashMap<>();
+        //the sleep set of every found state, it is only reduced by later visits
+        Map<State, SleepSet> sleepSets = new HashMap<>();
+        Map<State, Map<NodeAction, State>> transitions = new LinkedHashMap<>();
+        List<Integer> layerSizes = new ArrayList<>();
+        int transitionCount = 0;
+        //states to expand mapped to the actions to explore, null if all actions which are not sleeping are explored
+        Map<State, SleepSet> frontier = new LinkedHashMap<>();
+        ExplorationCheckpoint checkpoint = loadCheckpoint();
+        if (checkpoint != null) {
+            checkpoint.restore(found);
+            sleepSets = checkpoint.sleepSets;
+            transitions = checkpoint.transitions;
+            layerSizes = checkpoint.layerSizes;
+            transitionCount = checkpoint.transitionCount;
+            frontier = checkpoint.frontier;
+        } else {
+            State start = compactStates ? startState.toCompact() : startState;
+            start.freeze();
+            found.put(start, start);
+            sleepSets.put(start, SleepSet.EMPTY);
+            frontier.put(start, null);
+        }
+        long start = System.currentTimeMillis();
+
+        while (!frontier.isEmpty()) {
+            List<State> states = new ArrayList<>(frontier.keySet());
+            Map<State, SleepSet> current = frontier;
+            Map<State, SleepSet> currentSleepSets = sleepSets;
+            List<List<Successor>> expansions = map(states,
+                    state -> expandWithSleepSet(state, currentSleepSets.get(state), current.get(state), found, compactStates));
+            Map<State, SleepSet> nextFrontier = new LinkedHashMap<>();
+            int newStates = 0;
+            int layerTransitions = 0;
+            for (int i = 0; i < states.size(); i++) {
+                if (current.get(states.get(i)) == null) {
+                    newStates++;
+                }
+                Map<NodeAction, State> successors = transitions.computeIfAbsent(states.get(i), state -> new LinkedHashMap<>());
+                for (Successor successor : expansions.get(i)) {
+                    State canonical = found.putIfAbsent(successor.state, successor.state);
+                    if (canonical == null) {
+                        canonical = successor.state;
+                        canonical.freeze();
+                        sleepSets.put(canonical, successor.sleepSet);
+                        nextFrontier.put(canonical, null);
+                    } else {
+                        SleepSet sleepSet = sleepSets.get(canonical);
+                        SleepSet awake = sleepSet.difference(successor.sleepSet);
+                        if (!awake.isEmpty()) {
+                            sleepSets.put(canonical, sleepSet.intersection(successor.sleepSet));
+                            if (!nextFrontier.containsKey(canonical)) {
+                                nextFrontier.put(canonical, awake);
+                            } else if (nextFrontier.get(canonical) != null) {
+                                nextFrontier.put(canonical, nextFrontier.get(canonical).union(awake));
+                            }
+                        }
+                    }
+                    successors.put(successor.action, canonical);
+                    layerTransitions++;
+                }
+            }
+            layerSizes.add(newStates);
+            transitionCount += layerTransitions;
+            LOGGER.info(String.format("Layer %d: expanded %d states (%d of them again) with %d transitions, found %d new states, %d states in total (%d ms)",
+                    layerSizes.size() - 1, states.size(), states.size() - newStates, layerTransitions,
+                    nextFrontier.values().stream().filter(Objects::isNull).count(), found.size(),
+                    System.currentTimeMillis() - start));
+            frontier = nextFrontier;
+            if (isCheckpointDue(frontier.isEmpty())) {
+                checkpoints.save(CHECKPOINT, new ExplorationCheckpoint(true, transitions, layerSizes,
+                        transitionCount, frontier, sleepSets));
+            }
+        }
+        return new StateSpace(transitions, layerSizes, transitionCount);
+    }
+
+    private boolean isCheckpointDue(boolean finished) {
+        return checkpoints != null && (finished || checkpoints.isDue());
+    }
+
+    private ExplorationCheckpoint loadCheckpoint() {
+        if (checkpoints == null) {
+            return null;
+        }
+        ExplorationCheckpoint checkpoint = checkpoints.load(CHECKPOINT, ExplorationCheckpoint.class);
+        if (checkpoint != null && checkpoint.partialOrderReduction != partialOrderReduction) {
+            LOGGER.info("Ignoring checkpoint of an exploration with other partial order reduction");
+            return null;
+        }
+        return checkpoint;
+    }
+
+    /**
+     * The state of an exploration after a layer. The states are written in a single stream, so the transitions
+     * still reference the canonical instances after reading it.
+     */
+    private static class ExplorationCheckpoint implements Serializable {
+        private final boolean partialOrderReduction;
+        private final Map<State, Map<NodeAction, State>> transitions;
+        private final List<Integer> layerSizes;
+        private final int transitionCount;
+        private final Map<State, SleepSet> frontier;
+        //null without partial order reduction
+        private final Map<State, SleepSet> sleepSets;
+
+        ExplorationCheckpoint(boolean partialOrderReduction, Map<State, Map<NodeAction, State>> transitions,
+                              List<Integer> layerSizes, int transitionCount, Map<State, SleepSet> frontier,
+                              Map<State, SleepSet> sleepSets) {
+            this.partialOrderReduction = partialOrderReduction;
+            this.transitions = transitions;
+            this.layerSizes = layerSizes;
+            this.transitionCount = transitionCount;
+            this.frontier = frontier;
+            this.sleepSets = sleepSets;
+        }
+
+        /**
+         * Freezes the read states and adds them to the found states.
+         */
+        void restore(Map<State, State> found) {
+            for (State state : transitions.keySet()) {
+                state.freeze();
+                found.put(state, state);
+            }
+            for (State state : frontier.keySet()) {
+                state.freeze();
+                found.put(state, state);
+            }
+        }
+    }
+
+    /**
+     * Explores the given actions of the state or all actions which are not sleeping, in the order of their index.
+     * The sleep set of a successor contains the sleeping and the previously explored actions, which are independent
+     * of the action leading to it. New successors are converted to compact mode if compact is true.
+     */
+    private static List<Successor> expandWithSleepSet(State state, SleepSet sleepSet, SleepSet actions,
+                                                      Map<State, State> found, boolean compact) {
+        Map<NodeAction, StateDelta> deltas = NodeAction.getAllActionDeltasWithChangeState(state.unpacked(), nodeAction -> actions == null
+                ? !sleepSet.contains(ActionIndependence.index(nodeAction))
+                : actions.contains(ActionIndependence.index(nodeAction)));
+        List<NodeAction> explored = new ArrayList<>(deltas.keySet());
+        explored.sort(Comparator.comparingInt(ActionIndependence::index));
+        SleepSet sleeping = sleepSet;
+        List<Successor> successors = new ArrayList<>();
+        for (NodeAction nodeAction : explored) {
+            StateDelta delta = deltas.get(nodeAction);
+            int action = ActionIndependence.index(nodeAction);
+            int writes = ActionIndependence.writes(delta);
+            State newState = compact ? delta.apply().toCompact() : delta.apply();
+            State known = found.get(newState);
+            successors.add(new Successor(nodeAction, known != null ? known : newState, sleeping.independentOf(action, writes)));
+            sleeping = sleeping.with(action, writes);
+        }
+        return successors;
+    }
+
+    private static class Successor {
+        private final NodeAction action;
+        private final State state;
+        private final SleepSet sleepSet;
+
+        Successor(NodeAction action, State state, SleepSet sleepSet) {
+            this.action = action;
+            this.state = state;
+            this.sleepSet = sleepSet;
+        }
+    }
+
+    /**
+     * Computes all states reachable from the start state like explore, but stores them in the given file instead of
+     * the heap, see DiskStateSpace. The frontier is read from the file in batches, so only the hash index of the
+     * states and a batch of states is kept in memory. The states are found in the same order as by explore.
+     * NOTE: All transitions are explored, partial order reduction is not supported on disk.
+     * @param startState - start state
+     * @param file - the file to store the states, it is overwritten
+     * @return - the state space, which has to be closed
+     * @throws java.io.UncheckedIOException if the file can not be written
+     */
+    public DiskStateSpace exploreOnDisk(State startState, Path file) {
+        try {
+            return exploreBatchesOnDisk(startState, file);
+        } finally {
+            close();
+        }
+    }
+
+    private DiskStateSpace exploreBatchesOnDisk(State startState, Path file) {
+        long[] startFacts = startState.getPackedFacts();
+        DiskStateSpace stateSpace = new DiskStateSpace(file, startFacts.length);
+        stateSpace.add(startFacts);
+        long layerStart = 0;
+        long layerEnd = stateSpace.size();
+        long start = System.currentTimeMillis();
+
+        while (layerStart < layerEnd) {
+            long layerTransitions = 0;
+            for (long batchStart = layerStart; batchStart < layerEnd; batchStart += DISK_BATCH_SIZE) {
+                List<State> batch = new ArrayList<>();
+                for (long record = batchStart; record < Math.min(batchStart + DISK_BATCH_SIZE, layerEnd); record++) {
+                    batch.add(stateSpace.getState(record));
+                }
+                List<List<long[]>> expansions = map(batch, state -> {
+                    List<long[]> successors = new ArrayList<>();
+                    for (State successor : expand(state, Collections.emptyMap(), false).values()) {
+                        successors.add(successor.getPackedFacts());
+                    }
+                    return successors;
+                });
+                for (List<long[]> successors : expansions) {
+                    for (long[] successor : successors) {
+                        stateSpace.add(successor);
+                    }
+                    layerTransitions += successors.size();
+                }
+            }
+            stateSpace.addLayer(layerEnd - layerStart, layerTransitions);
+            LOGGER.info(String.format("Layer %d: expanded %d states with %d transitions, found %d new states, %d states in total (%d ms)",
+                    stateSpace.getLayerSizes().size() - 1, layerEnd - layerStart, layerTransitions,
+                    stateSpace.size() - layerEnd, stateSpace.size(), System.currentTimeMillis() - start));
+            layerStart = layerEnd;
+            layerEnd = stateSpace.size();
+        }
+        return stateSpace;
+    }
+
+    /**
+     * Applies all actions to the state. The successors are converted to compact mode if compact is true, successors
+     * which are already found are replaced by their canonical instance.
+     */
+    private static Map<NodeAction, State> expand(State state, Map<State, State> found, boolean compact) {
+        Map<NodeAction, State> successors = new HashMap<>();
+        for (Map.Entry<NodeAction, StateDelta> delta : NodeAction.getAllActionDeltasWithChangeState(state.unpacked()).entrySet()) {
+            State newState = compact ? delta.getValue().apply().toCompact() : delta.getValue().apply();
+            State known = found.get(newState);
+            successors.put(delta.getKey(), known != null ? known : newState);
+        }
+        return successors;
+    }
+
+    /**
+     * Applies the function to all states in parallel, or in the calling thread if this explorer has a single thread.
+     * The threads are kept for the next call until the explorer is closed.
+     * NOTE: The function may modify the state it is applied to (e.g. copying it), but no other state.
+     * @param states - the states
+     * @param function - the function
+     * @return - the results in the order of the states
+     */
+    public <R> List<R> map(List<State> states, Function<State, R> function) {
+        if (threads == 1) {
+            List<R> results = new ArrayList<>(states.size());
+            for (State state : states) {
+                results.add(function.apply(state));
+            }
+            return results;
+        }
+        if (pool == null) {
+            pool = new ForkJoinPool(threads);
+        }
+        Object[] results = new Object[states.size()];
+        pool.invoke(new MapTask<>(states, function, results, 0, states.size()));
+        @SuppressWarnings("unchecked")
+        List<R> resultList = (List<R>) Arrays.asList(results);
+        return resultList;
+    }
+
+    /**
+     * Shuts the threads of this explorer down. The explorer can still be used, it creates new threads if needed.
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    private static class MapTask<R> extends RecursiveAction {
+        private final List<State> states;
+        private final Function<State, R> function;
+        private final Object[] results;
+        private final int from;
+        private final int to;
+
+        MapTask(List<State> states, Function<State, R> function, Object[] results, int from, int to) {
+            this.states = states;
+            this.function = function;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    results[i] = function.apply(states.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new MapTask<>(states, function, results, from, middle),
+                    new MapTask<>(states, function, results, middle, to));
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package core;
+
+import environment.Data;
+import environment.NetworkNode;
+import environment.Vulnerability;
+import knowledge.NetworkKnowledge;
+import knowledge.NodeKnowledge;
+import knowledge.SoftwareKnowledge;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Computes the 64 bit Zobrist hash of the knowledge of a state. Every single fact (e.g. the hostname of a node or a
+ * vulnerability of a software) has its own pseudo random key and the hash of a state is the XOR of the keys of all
+ * its facts. Adding a fact to a state thus only needs to XOR in its key, replacing a value XORs out the old key.
+ * The keys are derived from the facts themselves, so they are the same in every JVM.
+ */
+final class Zobrist {
+    private static final long NODE = 1;
+    private static final long PUB_IP = 2;
+    private static final long PRIV_IP = 3;
+    private static final long HOSTNAME = 4;
+    private static final long OS = 5;
+    private static final long OS_VERSION = 6;
+    private static final long ACCESS_LEVEL = 7;
+    private static final long DATA = 8;
+    private static final long KNOWN_NODE = 9;
+    private static final long SNIFFED_DATA = 10;
+    private static final long SOFTWARE_SET = 11;
+    private static final long SOFTWARE = 12;
+    private static final long SOFTWARE_VERSION = 13;
+    private static final long VULNERABILITY = 14;
+
+    private Zobrist() {
+    }
+
+    static long nodePubIp(NetworkNode.TYPE node, String pubIp) {
+        return key(PUB_IP, node.ordinal(), Objects.hashCode(pubIp));
+    }
+
+    static long nodePrivIp(NetworkNode.TYPE node, String privIp) {
+        return key(PRIV_IP, node.ordinal(), Objects.hashCode(privIp));
+    }
+
+    static long nodeHostname(NetworkNode.TYPE node, String hostname) {
+        return key(HOSTNAME, node.ordinal(), Objects.hashCode(hostname));
+    }
+
+    static long nodeOS(NetworkNode.TYPE node, String os) {
+        return key(OS, node.ordinal(), Objects.hashCode(os));
+    }
+
+    static long nodeOSVersion(NetworkNode.TYPE node, String osVersion) {
+        return key(OS_VERSION, node.ordinal(), Objects.hashCode(osVersion));
+    }
+
+    static long nodeAccessLevel(NetworkNode.TYPE node, NetworkNode.ACCESS_LEVEL level) {
+        return key(ACCESS_LEVEL, node.ordinal(), level == null ? -1 : level.ordinal());
+    }
+
+    /**
+     * Returns the key of the data of the node or 0 if the data is null, i.e. not known.
+     */
+    static long nodeData(NetworkNode.TYPE node, int ID, Data data) {
+        return data == null ? 0 : key(DATA, node.ordinal(), ID, data.getID());
+    }
+
+    static long knownNode(NetworkNode.TYPE node) {
+        return key(KNOWN_NODE, node.ordinal());
+    }
+
+    /**
+     * Returns the key of the sniffed data or 0 if the data is null, i.e. not known.
+     */
+    static long sniffedData(int ID, Data data) {
+        return data == null ? 0 : key(SNIFFED_DATA, ID, data.getID());
+    }
+
+    static long softwareSet(NetworkNode.TYPE node) {
+        return key(SOFTWARE_SET, node.ordinal());
+    }
+
+    /**
+     * Returns the XOR of the keys of all facts of the node knowledge.
+     */
+    static long node(NetworkNode.TYPE node, NodeKnowledge knowledge) {
+        long hash = key(NODE, node.ordinal())
+                ^ nodePubIp(node, knowledge.getPubIp())
+                ^ nodePrivIp(node, knowledge.getPrivIp())
+                ^ nodeHostname(node, knowledge.getHostname())
+                ^ nodeOS(node, knowledge.getOperatingSystem())
+                ^ nodeOSVersion(node, knowledge.getOSVersion())
+                ^ nodeAccessLevel(node, knowledge.getAccessLevel());
+        for (Map.Entry<Integer, Data> data : knowledge.getKnownData().entrySet()) {
+            hash ^= nodeData(node, data.getKey(), data.getValue());
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the XOR of the keys of all facts of the software knowledge.
+     */
+    static long software(NetworkNode.TYPE node, SoftwareKnowledge software) {
+        int name = Objects.hashCode(software.getName());
+        long hash = key(SOFTWARE, node.ordinal(), name, software.isRemote() ? 1 : 0)
+                ^ key(SOFTWARE_VERSION, node.ordinal(), name, Objects.hashCode(software.getVersion()));
+        for (Vulnerability vulnerability : software.getVulnerabilities()) {
+            hash ^= key(VULNERABILITY, node.ordinal(), name, Objects.hashCode(vulnerability.getCve()),
+                    vulnerability.getType().ordinal(), vulnerability.getZeroday() ? 1 : 0);
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the XOR of the keys of all facts of the network knowledge.
+     */
+    static long network(NetworkKnowledge knowledge) {
+        long hash = 0;
+        for (NetworkNode.TYPE node : knowledge.getKnownNodes()) {
+            hash ^= knownNode(node);
+        }
+        for (Map.Entry<Integer, Data> data : knowledge.getSniffedDataMap().entrySet()) {
+            hash ^= sniffedData(data.getKey(), data.getValue());
+        }
+        return hash;
+    }
+
+    /**
+     * Computes the hash of the given knowledge from scratch.
+     */
+    static long of(Map<NetworkNode.TYPE, NodeKnowledge> nodeKnowledgeMap, NetworkKnowledge networkKnowledge,
+                   Map<NetworkNode.TYPE, Set<SoftwareKnowledge>> softwareKnowledgeMap) {
+        long hash = network(networkKnowledge);
+        for (Map.Entry<NetworkNode.TYPE, NodeKnowledge> node : nodeKnowledgeMap.entrySet()) {
+            hash ^= node(node.getKey(), node.getValue());
+        }
+        for (Map.Entry<NetworkNode.TYPE, Set<SoftwareKnowledge>> softwareSet : softwareKnowledgeMap.entrySet()) {
+            hash ^= softwareSet(softwareSet.getKey());
+            for (SoftwareKnowledge software : softwareSet.getValue()) {
+                hash ^= software(softwareSet.getKey(), software);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Folds the 64 bit hash into an int hashCode.
+     */
+    static int fold(long hash) {
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static long key(long... parts) {
+        long hash = 0x9E3779B97F4A7C15L;
+        for (long part : parts) {
+            hash = mix(hash ^ part);
+        }
+        return hash;
+    }
+
+    //finalizer of SplitMix64
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
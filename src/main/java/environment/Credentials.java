@@ -48,6 +48,13 @@ public class Credentials implements Serializable {
         return accessGrantLevel;
     }
 
+    /**
+     * Replaces a deserialized copy by the canonical instance of the simulation world.
+     */
+    private Object readResolve() {
+        return FlyweightPool.canonical(this);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
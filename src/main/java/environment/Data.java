@@ -58,6 +58,10 @@ public class Data implements Serializable {
         return gain;
     }
 
+    /**
+     * NOTE: Data objects are shared by all states through the FlyweightPool, so this must not be called after the
+     * simulation world is set up.
+     */
     public void setGain(GAINED_KNOWLEDGE gain) {
         this.gain = gain;
     }
@@ -70,6 +74,13 @@ public class Data implements Serializable {
         return credentials;
     }
 
+    /**
+     * Replaces a deserialized copy by the canonical instance of the simulation world.
+     */
+    private Object readResolve() {
+        return FlyweightPool.canonical(this);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,56 @@
+package environment;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class holds a single canonical instance of every value object of the simulation world (Data, Credentials and
+ * Vulnerability), which are registered when the world is set up. Equal objects, which are deserialized separately,
+ * are replaced by the canonical instance, so all states share them instead of holding their own copies.
+ * NOTE: Only objects which are not modified after they are registered may be pooled. Objects created while exploring
+ * (e.g. knowledge) are not registered, since the pool would keep them until the world is set up again.
+ */
+public final class FlyweightPool {
+    private static final Map<Object, Object> pool = new ConcurrentHashMap<>();
+
+    private FlyweightPool() {
+    }
+
+    /**
+     * Registers the given object as canonical instance, unless an equal object was registered before.
+     * @param object - the object of the simulation world, may be null
+     */
+    public static void register(Object object) {
+        if (object != null) {
+            pool.putIfAbsent(object, object);
+        }
+    }
+
+    /**
+     * Returns the canonical instance of the given object. If no equal object was registered, the given object is
+     * returned without registering it.
+     * @param object - the object, may be null
+     * @return - the canonical instance equal to the given object or the object itself
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T canonical(T object) {
+        if (object == null) {
+            return null;
+        }
+        return (T) pool.getOrDefault(object, object);
+    }
+
+    /**
+     * Removes all canonical instances, e.g. when the simulation world is set up again.
+     */
+    public static void clear() {
+        pool.clear();
+    }
+
+    /**
+     * Returns the number of canonical instances.
+     */
+    public static int size() {
+        return pool.size();
+    }
+}
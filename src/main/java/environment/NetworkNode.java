@@ -93,8 +93,8 @@ public class NetworkNode{
         return remotelyVisibleSWInNetwork;
     }
 
-    public void computeRemoteSWMap(){
-        this.remotelyVisibleSWInNetwork = NetworkTopology.getRemoteSWMapByScanningNode(type);
+    public void computeRemoteSWMap(NetworkTopology topology){
+        this.remotelyVisibleSWInNetwork = topology.getRemoteSWMap(type);
     }
 
     @Override
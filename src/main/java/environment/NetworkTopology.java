@@ -9,57 +9,144 @@ import java.util.stream.Collectors;
 
 /**
  * This class implements the network topology that was presented in our project report.
+ *
+ * The topology is compiled once by NetworkWorld.initializeNetworkTopology: the connections of every node are stored
+ * as a bitmask of node type ordinals and the remote software visible from every scanning node is stored in a table,
+ * so the static methods only look up these immutable tables.
  */
 public class NetworkTopology{
+    private final Map<NetworkNode.TYPE, NetworkNode> nodes = new EnumMap<>(NetworkNode.TYPE.class);
+    //bit i is set, if the node with the type ordinal i is connected (or connected and part of the world)
+    private final int[] adjacency = new int[NetworkNode.TYPE.values().length];
+    private final int[] viewable = new int[NetworkNode.TYPE.values().length];
+    private final Map<NetworkNode.TYPE, Set<NetworkNode.TYPE>> connectedHosts = new EnumMap<>(NetworkNode.TYPE.class);
+    private final Map<NetworkNode.TYPE, Set<NetworkNode.TYPE>> viewableNodes = new EnumMap<>(NetworkNode.TYPE.class);
+    private final Map<NetworkNode.TYPE, Map<NetworkNode.TYPE, Set<Software>>> visibleSoftware = new EnumMap<>(NetworkNode.TYPE.class);
+
+    /**
+     * Compiles the topology of the given nodes.
+     * @param worldNodes - the nodes of the world
+     */
+    NetworkTopology(Collection<NetworkNode> worldNodes) {
+        for (NetworkNode node : worldNodes) {
+            nodes.put(node.getType(), node);
+        }
+        for (NetworkNode.TYPE source : NetworkNode.TYPE.values()) {
+            Set<NetworkNode.TYPE> connected = connectedHostsOf(source);
+            Set<NetworkNode.TYPE> viewableFromSource = EnumSet.noneOf(NetworkNode.TYPE.class);
+            for (NetworkNode.TYPE target : connected) {
+                adjacency[source.ordinal()] |= 1 << target.ordinal();
+                if (nodes.containsKey(target)) {
+                    viewable[source.ordinal()] |= 1 << target.ordinal();
+                    viewableFromSource.add(target);
+                }
+            }
+            connectedHosts.put(source, Collections.unmodifiableSet(connected));
+            viewableNodes.put(source, Collections.unmodifiableSet(viewableFromSource));
+            visibleSoftware.put(source, Collections.unmodifiableMap(remoteSWMapOf(source)));
+        }
+    }
+
+    private static NetworkTopology compiled() {
+        NetworkTopology topology = Simulation.getSimWorld().getTopology();
+        if (topology == null) {
+            throw new IllegalStateException("Network topology is not initialized.");
+        }
+        return topology;
+    }
+
     /**
      * This method returns all connected hosts of a given host
      * @param source - given host
-     * @return - all connected hosts
+     * @return - all connected hosts, the set can not be modified
      */
     public static Set<NetworkNode.TYPE> getConnectedHosts(NetworkNode.TYPE source){
-        Set<NetworkNode.TYPE> connectedHosts = new HashSet<>();
+        return compiled().connectedHosts.get(source);
+    }
+
+    /**
+     * This method returns all connected hosts of a given host, which are part of the simulation world.
+     * @param source - given host
+     * @return - all viewable hosts, the set can not be modified
+     */
+    public static Set<NetworkNode.TYPE> getViewableNodes(NetworkNode.TYPE source){
+        return compiled().viewableNodes.get(source);
+    }
+
+    /**
+     * This method checks whether a host is connected to the given host and part of the simulation world.
+     * @param source - given host
+     * @param target - the host to check
+     * @return - true if the target is viewable
+     */
+    public static boolean isViewable(NetworkNode.TYPE source, NetworkNode.TYPE target){
+        return (compiled().viewable[source.ordinal()] & (1 << target.ordinal())) != 0;
+    }
+
+    /**
+     * This method returns a map of available nodes with their remote software, from the position of a scanning node.
+     * Thus this effectively implements the firewall and the router port forwarding.
+     * @param scanning - scanning or source node
+     * @return - map containing all scannable hosts with exactly the remote software, that is visible from the
+     * perspective of the scanning node, the map can not be modified
+     */
+    public static Map<NetworkNode.TYPE, Set<Software>> getRemoteSWMapByScanningNode(NetworkNode.TYPE scanning){
+        return compiled().getRemoteSWMap(scanning);
+    }
+
+    /**
+     * Retrieves a simulation node by a logic node type
+     * @param type - logic node type
+     * @return - simulation node or null if the node is not part of the world
+     */
+    public NetworkNode getNode(NetworkNode.TYPE type) {
+        return nodes.get(type);
+    }
+
+    /**
+     * Returns the remote software visible from the scanning node, like getRemoteSWMapByScanningNode.
+     */
+    public Map<NetworkNode.TYPE, Set<Software>> getRemoteSWMap(NetworkNode.TYPE scanning) {
+        return visibleSoftware.get(scanning);
+    }
+
+    public boolean isConnected(NetworkNode.TYPE source, NetworkNode.TYPE target) {
+        return (adjacency[source.ordinal()] & (1 << target.ordinal())) != 0;
+    }
+
+    private static Set<NetworkNode.TYPE> connectedHostsOf(NetworkNode.TYPE source){
+        Set<NetworkNode.TYPE> connectedHosts = EnumSet.noneOf(NetworkNode.TYPE.class);
         if(source.equals(NetworkNode.TYPE.ADVERSARY)){
             connectedHosts.add(NetworkNode.TYPE.ROUTER);
             connectedHosts.add(NetworkNode.TYPE.WEBSERVER);
             connectedHosts.add(NetworkNode.TYPE.ADMINPC);
-            return connectedHosts;
         }else if (source.equals(NetworkNode.TYPE.ROUTER)){
             connectedHosts.add(NetworkNode.TYPE.WEBSERVER);
             connectedHosts.add(NetworkNode.TYPE.ADMINPC);
             connectedHosts.add(NetworkNode.TYPE.DATABASE);
-            return connectedHosts;
         }else if (source.equals(NetworkNode.TYPE.WEBSERVER)){
             connectedHosts.add(NetworkNode.TYPE.ROUTER);
             connectedHosts.add(NetworkNode.TYPE.ADMINPC);
             connectedHosts.add(NetworkNode.TYPE.DATABASE);
-            return connectedHosts;
         }else if (source.equals(NetworkNode.TYPE.ADMINPC)){
             connectedHosts.add(NetworkNode.TYPE.ROUTER);
             connectedHosts.add(NetworkNode.TYPE.WEBSERVER);
             connectedHosts.add(NetworkNode.TYPE.DATABASE);
-            return connectedHosts;
         }else if (source.equals(NetworkNode.TYPE.DATABASE)){
             connectedHosts.add(NetworkNode.TYPE.ROUTER);
             connectedHosts.add(NetworkNode.TYPE.WEBSERVER);
             connectedHosts.add(NetworkNode.TYPE.ADMINPC);
-            return connectedHosts;
-        }else {
-            return connectedHosts;
         }
+        return connectedHosts;
     }
 
-    /**
-     * This method returns a map of available nodes with their remote software, from the position of a scanning node.
-     * Thus this effectively implements the firewall and the router port forwarding.
-     * @param scanning - scanning or source node
-     * @return - map containing all scannable hosts with exactly the remote software, that is visible from the
-     * perspective of the scanning node
-     */
-    public static Map<NetworkNode.TYPE, Set<Software>> getRemoteSWMapByScanningNode(NetworkNode.TYPE scanning){
+    private Map<NetworkNode.TYPE, Set<Software>> remoteSWMapOf(NetworkNode.TYPE scanning){
         Map<NetworkNode.TYPE, Set<Software>> visibleSoftware = new EnumMap<>(NetworkNode.TYPE.class);
         //from all possible nodes, only check those who are actually connected
-        Predicate<NetworkNode> isConnected = node -> getConnectedHosts(scanning).contains(node.getType());
-        Set<NetworkNode> viewableNodes = Simulation.getSimWorld().getNodes().stream().filter(isConnected).collect(Collectors.toSet());
+        List<NetworkNode> viewableNodes = new ArrayList<>();
+        for (NetworkNode.TYPE type : this.viewableNodes.get(scanning)) {
+            viewableNodes.add(nodes.get(type));
+        }
         //assume Adversary is scanning
         if (scanning.equals(NetworkNode.TYPE.ADVERSARY)){
 
@@ -67,27 +154,27 @@ public class NetworkTopology{
             //scans on Router
             List<String> webserverPublicWhitelist = List.of(Simulation.SERVICE_HTTP, Simulation.SERVICE_HTTPS, Simulation.SERVICE_PHP, Simulation.SERVICE_NGINX);
             isVisibleByAdv = sw -> webserverPublicWhitelist.contains(sw.getName());
-            visibleSoftware.put(NetworkNode.TYPE.WEBSERVER, Simulation.getNodeByType(NetworkNode.TYPE.WEBSERVER).getRemoteSoftware().stream().filter(isVisibleByAdv).collect(Collectors.toSet()));
+            visibleSoftware.put(NetworkNode.TYPE.WEBSERVER, Collections.unmodifiableSet(nodes.get(NetworkNode.TYPE.WEBSERVER).getRemoteSoftware().stream().filter(isVisibleByAdv).collect(Collectors.toSet())));
 
             List<String> adminPublicWhitelist = List.of(Simulation.SERVICE_SSH);
             isVisibleByAdv = sw -> adminPublicWhitelist.contains(sw.getName());
-            visibleSoftware.put(NetworkNode.TYPE.ADMINPC, Simulation.getNodeByType(NetworkNode.TYPE.ADMINPC).getRemoteSoftware().stream().filter(isVisibleByAdv).collect(Collectors.toSet()));
+            visibleSoftware.put(NetworkNode.TYPE.ADMINPC, Collections.unmodifiableSet(nodes.get(NetworkNode.TYPE.ADMINPC).getRemoteSoftware().stream().filter(isVisibleByAdv).collect(Collectors.toSet())));
         }else if (scanning.equals(NetworkNode.TYPE.ROUTER)){
             for (NetworkNode node: viewableNodes){
-                visibleSoftware.put(node.getType(), new HashSet<>(node.getRemoteSoftware()));
+                visibleSoftware.put(node.getType(), Collections.unmodifiableSet(new HashSet<>(node.getRemoteSoftware())));
             }
         }else if (scanning.equals(NetworkNode.TYPE.WEBSERVER)){
             for (NetworkNode node: viewableNodes){
                 if (node.getType().equals(NetworkNode.TYPE.ADMINPC)){
-                    visibleSoftware.put(NetworkNode.TYPE.ADMINPC, new HashSet<>(node.getRemoteSoftware()));
+                    visibleSoftware.put(NetworkNode.TYPE.ADMINPC, Collections.unmodifiableSet(new HashSet<>(node.getRemoteSoftware())));
                 }else if (node.getType().equals(NetworkNode.TYPE.DATABASE)){
-                    visibleSoftware.put(NetworkNode.TYPE.DATABASE, new HashSet<>(node.getRemoteSoftware()));
+                    visibleSoftware.put(NetworkNode.TYPE.DATABASE, Collections.unmodifiableSet(new HashSet<>(node.getRemoteSoftware())));
                 }
             }
         }else {
             //Admin & Database see everything
             for (NetworkNode node: viewableNodes){
-                visibleSoftware.put(node.getType(), new HashSet<>(node.getRemoteSoftware()));
+                visibleSoftware.put(node.getType(), Collections.unmodifiableSet(new HashSet<>(node.getRemoteSoftware())));
             }
         }
         return visibleSoftware;
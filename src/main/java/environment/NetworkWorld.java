@@ -2,6 +2,7 @@ package environment;
 
 import com.google.gson.Gson;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -16,6 +17,7 @@ public class NetworkWorld {
     private final Set<NetworkNode> nodes = new LinkedHashSet<>();
     private Map<Integer, Data> sniffableData = new HashMap<>();
     private final Set<NetworkNode.TYPE> internal = Set.of(NetworkNode.TYPE.WEBSERVER, NetworkNode.TYPE.ADMINPC, NetworkNode.TYPE.DATABASE);
+    private NetworkTopology topology;
 
     public Set<NetworkNode.TYPE> getInternalNodes() {
         return internal;
@@ -28,22 +30,43 @@ public class NetworkWorld {
         nodes.add(node);
     }
 
+    /**
+     * Removes all nodes, the network data and the topology, so the world can be set up again.
+     */
+    public void reset(){
+        nodes.clear();
+        sniffableData = new HashMap<>();
+        topology = null;
+    }
+
+    /**
+     * Compiles the network topology of the current nodes. Must be called again after nodes are added.
+     */
     public void initializeNetworkTopology(){
+        topology = new NetworkTopology(nodes);
         for (NetworkNode node: nodes){
-            node.computeRemoteSWMap();
+            node.computeRemoteSWMap(topology);
         }
     }
 
+    /**
+     * Returns the compiled network topology or null if it is not initialized.
+     * @return - the topology
+     */
+    public NetworkTopology getTopology() {
+        return topology;
+    }
+
     public void setSniffableData(Map<Integer, Data> sniffableData) {
         this.sniffableData = sniffableData;
     }
 
     public Map<Integer, Data> getSniffableData() {
-        return sniffableData;
+        return Collections.unmodifiableMap(sniffableData);
     }
 
     public Set<NetworkNode> getNodes() {
-        return nodes;
+        return Collections.unmodifiableSet(nodes);
     }
 
     @Override
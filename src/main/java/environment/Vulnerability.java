@@ -40,6 +40,13 @@ public class Vulnerability implements Serializable {
         return exploit.getType();
     }
 
+    /**
+     * Replaces a deserialized copy by the canonical instance of the simulation world.
+     */
+    private Object readResolve() {
+        return FlyweightPool.canonical(this);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -40,4 +40,18 @@ public interface NetworkKnowledge {
      */
     Map<Integer, Data> getSniffedDataMap();
 
+    /**
+     * The following methods return the knowledge with the given information added. Immutable knowledge returns a
+     * new instance, while mutable knowledge is modified and returned itself.
+     */
+    NetworkKnowledge withNode(NetworkNode.TYPE node);
+
+    NetworkKnowledge withSniffedData(Data data);
+
+    /**
+     * This method returns an immutable version of this knowledge, which can be shared between states.
+     * @return - this if already immutable, otherwise an immutable copy
+     */
+    NetworkKnowledge toImmutable();
+
 }
@@ -33,6 +33,20 @@ public interface NodeKnowledge {
 
     Map<Integer, Data> getKnownData();
 
+    String getPubIp();
+
+    String getPrivIp();
+
+    String getHostname();
+
+    String getOperatingSystem();
+
+    String getOSVersion();
+
+    NetworkNode.ACCESS_LEVEL getAccessLevel();
+
+    NetworkNode.TYPE getType();
+
     void addPubIp(String pubIp);
 
     void addPrivIp(String privIp);
@@ -46,4 +60,28 @@ public interface NodeKnowledge {
     void addAccessLevel(NetworkNode.ACCESS_LEVEL accessLevel);
 
     void addData(int ID, Data data);
+
+    /**
+     * The following methods return the knowledge with the given information added. Immutable knowledge returns a
+     * new instance, while mutable knowledge is modified and returned itself.
+     */
+    NodeKnowledge withPubIp(String pubIp);
+
+    NodeKnowledge withPrivIp(String privIp);
+
+    NodeKnowledge withHostname(String hostname);
+
+    NodeKnowledge withOperatingSystem(String os);
+
+    NodeKnowledge withOSVersion(String osVersion);
+
+    NodeKnowledge withAccessLevel(NetworkNode.ACCESS_LEVEL accessLevel);
+
+    NodeKnowledge withData(int ID, Data data);
+
+    /**
+     * This method returns an immutable version of this knowledge, which can be shared between states.
+     * @return - this if already immutable, otherwise an immutable copy
+     */
+    NodeKnowledge toImmutable();
 }
@@ -25,4 +25,17 @@ public interface SoftwareKnowledge {
     boolean hasVersion();
     boolean hasVulnerability();
     boolean isRemote();
+
+    /**
+     * The following methods return the knowledge with the given information added. Immutable knowledge returns a
+     * new instance, while mutable knowledge is modified and returned itself.
+     */
+    SoftwareKnowledge withVersion(String version);
+    SoftwareKnowledge withVulnerabilities(Set<Vulnerability> vulnerabilities);
+
+    /**
+     * This method returns an immutable version of this knowledge, which can be shared between states.
+     * @return - this if already immutable, otherwise an immutable copy
+     */
+    SoftwareKnowledge toImmutable();
 }
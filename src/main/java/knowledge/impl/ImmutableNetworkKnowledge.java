@@ -0,0 +1,113 @@
+package knowledge.impl;
+
+import com.google.gson.Gson;
+import environment.Data;
+import environment.NetworkNode;
+import knowledge.NetworkKnowledge;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * This class implements all knowledge of the adversary about the network, which can not be modified. New knowledge
+ * is added with the with methods, which return a new instance. The hash is computed once at construction.
+ */
+public final class ImmutableNetworkKnowledge implements NetworkKnowledge, Serializable {
+    private final Map<Integer, Data> sniffedData;
+    private final Set<NetworkNode.TYPE> nodes;
+    //the hash of enums depends on the JVM, so it is not serialized
+    private transient int hash;
+
+    private ImmutableNetworkKnowledge(Set<NetworkNode.TYPE> nodes, Map<Integer, Data> sniffedData) {
+        this.nodes = nodes;
+        this.sniffedData = sniffedData;
+        this.hash = computeHash();
+    }
+
+    /**
+     * Returns an immutable copy of the given knowledge.
+     * @param knowledge - the knowledge
+     * @return - the knowledge itself if it is immutable, otherwise a copy
+     */
+    public static ImmutableNetworkKnowledge copyOf(NetworkKnowledge knowledge) {
+        if (knowledge instanceof ImmutableNetworkKnowledge) {
+            return (ImmutableNetworkKnowledge) knowledge;
+        }
+        return new ImmutableNetworkKnowledge(Collections.unmodifiableSet(new HashSet<>(knowledge.getKnownNodes())),
+                Collections.unmodifiableMap(new HashMap<>(knowledge.getSniffedDataMap())));
+    }
+
+    @Override
+    public Set<NetworkNode.TYPE> getKnownNodes() {
+        return nodes;
+    }
+
+    @Override
+    public void addNewNode(NetworkNode.TYPE node) {
+        throw new UnsupportedOperationException("Immutable knowledge, use withNode instead.");
+    }
+
+    @Override
+    public void addSniffedData(Data data) {
+        throw new UnsupportedOperationException("Immutable knowledge, use withSniffedData instead.");
+    }
+
+    @Override
+    public Map<Integer, Data> getSniffedDataMap() {
+        return sniffedData;
+    }
+
+    @Override
+    public NetworkKnowledge withNode(NetworkNode.TYPE node) {
+        if (nodes.contains(node)) {
+            return this;
+        }
+        Set<NetworkNode.TYPE> newNodes = new HashSet<>(nodes);
+        newNodes.add(node);
+        return new ImmutableNetworkKnowledge(Collections.unmodifiableSet(newNodes), sniffedData);
+    }
+
+    @Override
+    public NetworkKnowledge withSniffedData(Data data) {
+        Map<Integer, Data> newSniffedData = new HashMap<>(sniffedData);
+        newSniffedData.put(data.getID(), data);
+        return new ImmutableNetworkKnowledge(nodes, Collections.unmodifiableMap(newSniffedData));
+    }
+
+    @Override
+    public NetworkKnowledge toImmutable() {
+        return this;
+    }
+
+    private int computeHash() {
+        //same hash as NetworkKnowledgeImpl, since they can be equal
+        return Objects.hash(nodes, sniffedData);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        hash = computeHash();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof NetworkKnowledge)) return false;
+        NetworkKnowledge that = (NetworkKnowledge) o;
+        if (that instanceof ImmutableNetworkKnowledge && hash != that.hashCode()) return false;
+        return Objects.equals(sniffedData, that.getSniffedDataMap()) &&
+                Objects.equals(nodes, that.getKnownNodes());
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return new Gson().toJson(this);
+    }
+}
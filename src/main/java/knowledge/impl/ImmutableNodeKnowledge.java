@@ -0,0 +1,247 @@
+package knowledge.impl;
+
+import com.google.gson.Gson;
+import environment.Data;
+import environment.NetworkNode;
+import knowledge.NodeKnowledge;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * This class implements the knowledge of the adversary regarding a particular host, which can not be modified. New
+ * knowledge is added with the with methods, which return a new instance. The hash is computed once at construction.
+ */
+public final class ImmutableNodeKnowledge implements NodeKnowledge, Serializable {
+
+    private final String pub_ip;
+    private final String priv_ip;
+    private final String hostname;
+    private final String operatingSystem;
+    private final String osVersion;
+    private final Map<Integer, Data> dataSet;
+    private final NetworkNode.ACCESS_LEVEL sysAccess;
+    private final NetworkNode.TYPE type;
+    //the hash of enums depends on the JVM, so it is not serialized
+    private transient int hash;
+
+    private ImmutableNodeKnowledge(String pub_ip, String priv_ip, String hostname, String operatingSystem,
+                                   String osVersion, Map<Integer, Data> dataSet, NetworkNode.ACCESS_LEVEL sysAccess,
+                                   NetworkNode.TYPE type) {
+        this.pub_ip = pub_ip;
+        this.priv_ip = priv_ip;
+        this.hostname = hostname;
+        this.operatingSystem = operatingSystem;
+        this.osVersion = osVersion;
+        this.dataSet = dataSet;
+        this.sysAccess = sysAccess;
+        this.type = type;
+        this.hash = computeHash();
+    }
+
+    /**
+     * Returns an immutable copy of the given knowledge.
+     * @param knowledge - the knowledge
+     * @return - the knowledge itself if it is immutable, otherwise a copy
+     */
+    public static ImmutableNodeKnowledge copyOf(NodeKnowledge knowledge) {
+        if (knowledge instanceof ImmutableNodeKnowledge) {
+            return (ImmutableNodeKnowledge) knowledge;
+        }
+        return new ImmutableNodeKnowledge(knowledge.getPubIp(), knowledge.getPrivIp(), knowledge.getHostname(),
+                knowledge.getOperatingSystem(), knowledge.getOSVersion(),
+                Collections.unmodifiableMap(new HashMap<>(knowledge.getKnownData())), knowledge.getAccessLevel(),
+                knowledge.getType());
+    }
+
+    @Override
+    public boolean hasPubIp(){
+        return !pub_ip.isEmpty();
+    }
+
+    @Override
+    public boolean hasPrivIp(){
+        return !priv_ip.isEmpty();
+    }
+
+    @Override
+    public boolean hasHostname(){
+        return !hostname.isEmpty();
+    }
+
+    @Override
+    public boolean hasOperatingSystem(){
+        return !operatingSystem.isEmpty();
+    }
+
+    @Override
+    public boolean hasOSVersion(){
+        return !osVersion.isEmpty();
+    }
+
+    @Override
+    public boolean hasAccessLevelUser(){
+        return (sysAccess.equals(NetworkNode.ACCESS_LEVEL.USER));
+    }
+
+    @Override
+    public boolean hasAccessLevelRoot(){
+        return sysAccess.equals(NetworkNode.ACCESS_LEVEL.ROOT);
+    }
+
+    @Override
+    public Map<Integer, Data> getKnownData() {
+        return dataSet;
+    }
+
+    @Override
+    public String getPubIp() {
+        return pub_ip;
+    }
+
+    @Override
+    public String getPrivIp() {
+        return priv_ip;
+    }
+
+    @Override
+    public String getHostname() {
+        return hostname;
+    }
+
+    @Override
+    public String getOperatingSystem() {
+        return operatingSystem;
+    }
+
+    @Override
+    public String getOSVersion() {
+        return osVersion;
+    }
+
+    @Override
+    public NetworkNode.ACCESS_LEVEL getAccessLevel() {
+        return sysAccess;
+    }
+
+    @Override
+    public NetworkNode.TYPE getType() {
+        return type;
+    }
+
+    @Override
+    public void addPubIp(String pubIp) {
+        throw new UnsupportedOperationException("Immutable knowledge, use withPubIp instead.");
+    }
+
+    @Override
+    public void addPrivIp(String privIp) {
+        throw new UnsupportedOperationException("Immutable knowledge, use withPrivIp instead.");
+    }
+
+    @Override
+    public void addHostname(String hostname) {
+        throw new UnsupportedOperationException("Immutable knowledge, use withHostname instead.");
+    }
+
+    @Override
+    public void addOperationSystem(String os) {
+        throw new UnsupportedOperationException("Immutable knowledge, use withOperatingSystem instead.");
+    }
+
+    @Override
+    public void addOSVersion(String osVersion) {
+        throw new UnsupportedOperationException("Immutable knowledge, use withOSVersion instead.");
+    }
+
+    @Override
+    public void addAccessLevel(NetworkNode.ACCESS_LEVEL accessLevel) {
+        throw new UnsupportedOperationException("Immutable knowledge, use withAccessLevel instead.");
+    }
+
+    @Override
+    public void addData(int ID, Data data) {
+        throw new UnsupportedOperationException("Immutable knowledge, use withData instead.");
+    }
+
+    @Override
+    public NodeKnowledge withPubIp(String pubIp) {
+        return new ImmutableNodeKnowledge(pubIp, priv_ip, hostname, operatingSystem, osVersion, dataSet, sysAccess, type);
+    }
+
+    @Override
+    public NodeKnowledge withPrivIp(String privIp) {
+        return new ImmutableNodeKnowledge(pub_ip, privIp, hostname, operatingSystem, osVersion, dataSet, sysAccess, type);
+    }
+
+    @Override
+    public NodeKnowledge withHostname(String hostname) {
+        return new ImmutableNodeKnowledge(pub_ip, priv_ip, hostname, operatingSystem, osVersion, dataSet, sysAccess, type);
+    }
+
+    @Override
+    public NodeKnowledge withOperatingSystem(String os) {
+        return new ImmutableNodeKnowledge(pub_ip, priv_ip, hostname, os, osVersion, dataSet, sysAccess, type);
+    }
+
+    @Override
+    public NodeKnowledge withOSVersion(String osVersion) {
+        return new ImmutableNodeKnowledge(pub_ip, priv_ip, hostname, operatingSystem, osVersion, dataSet, sysAccess, type);
+    }
+
+    @Override
+    public NodeKnowledge withAccessLevel(NetworkNode.ACCESS_LEVEL accessLevel) {
+        return new ImmutableNodeKnowledge(pub_ip, priv_ip, hostname, operatingSystem, osVersion, dataSet, accessLevel, type);
+    }
+
+    @Override
+    public NodeKnowledge withData(int ID, Data data) {
+        Map<Integer, Data> newDataSet = new HashMap<>(dataSet);
+        newDataSet.put(ID, data);
+        return new ImmutableNodeKnowledge(pub_ip, priv_ip, hostname, operatingSystem, osVersion,
+                Collections.unmodifiableMap(newDataSet), sysAccess, type);
+    }
+
+    @Override
+    public NodeKnowledge toImmutable() {
+        return this;
+    }
+
+    private int computeHash() {
+        //same hash as NodeKnowledgeImpl, since they can be equal
+        return Objects.hash(pub_ip, priv_ip, hostname, operatingSystem, osVersion, dataSet, sysAccess, type);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        hash = computeHash();
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof NodeKnowledge)) return false;
+        NodeKnowledge that = (NodeKnowledge) o;
+        if (that instanceof ImmutableNodeKnowledge && hash != that.hashCode()) return false;
+        return Objects.equals(pub_ip, that.getPubIp()) &&
+                Objects.equals(priv_ip, that.getPrivIp()) &&
+                Objects.equals(hostname, that.getHostname()) &&
+                Objects.equals(operatingSystem, that.getOperatingSystem()) &&
+                Objects.equals(osVersion, that.getOSVersion()) &&
+                Objects.equals(dataSet, that.getKnownData()) &&
+                Objects.equals(sysAccess, that.getAccessLevel()) &&
+                Objects.equals(type, that.getType());
+    }
+
+    @Override
+    public String toString() {
+        return new Gson().toJson(this);
+    }
+}
@@ -0,0 +1,137 @@
+package knowledge.impl;
+
+import com.google.gson.Gson;
+import environment.Vulnerability;
+import knowledge.SoftwareKnowledge;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * This class implements the knowledge of an adversary about a single software product, which can not be modified.
+ * New knowledge is added with the with methods, which return a new instance. The hash is computed once at
+ * construction.
+ */
+public final class ImmutableSoftwareKnowledge implements SoftwareKnowledge, Serializable {
+    private final String name;
+    private final String version;
+    private final Set<Vulnerability> vulnerabilities;
+    private final boolean remote;
+    //the hash of enums depends on the JVM, so it is not serialized
+    private transient int hash;
+
+    private ImmutableSoftwareKnowledge(String name, String version, Set<Vulnerability> vulnerabilities, boolean remote) {
+        this.name = name;
+        this.version = version;
+        this.vulnerabilities = vulnerabilities;
+        this.remote = remote;
+        this.hash = computeHash();
+    }
+
+    /**
+     * Returns an immutable copy of the given knowledge.
+     * @param knowledge - the knowledge
+     * @return - the knowledge itself if it is immutable, otherwise a copy
+     */
+    public static ImmutableSoftwareKnowledge copyOf(SoftwareKnowledge knowledge) {
+        if (knowledge instanceof ImmutableSoftwareKnowledge) {
+            return (ImmutableSoftwareKnowledge) knowledge;
+        }
+        return new ImmutableSoftwareKnowledge(knowledge.getName(), knowledge.getVersion(),
+                Collections.unmodifiableSet(new HashSet<>(knowledge.getVulnerabilities())), knowledge.isRemote());
+    }
+
+    @Override
+    public void addVersion(String version) {
+        throw new UnsupportedOperationException("Immutable knowledge, use withVersion instead.");
+    }
+
+    @Override
+    public void addVulnerabilities(Set<Vulnerability> vulnerabilities) {
+        throw new UnsupportedOperationException("Immutable knowledge, use withVulnerabilities instead.");
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public String getVersion() {
+        return version;
+    }
+
+    @Override
+    public Set<Vulnerability> getVulnerabilities() {
+        return this.vulnerabilities;
+    }
+
+    @Override
+    public boolean hasVersion() {
+        return !version.isEmpty();
+    }
+
+    @Override
+    public boolean hasVulnerability() {
+        return !vulnerabilities.isEmpty();
+    }
+
+    @Override
+    public boolean isRemote() {
+        return remote;
+    }
+
+    @Override
+    public SoftwareKnowledge withVersion(String version) {
+        return new ImmutableSoftwareKnowledge(name, version, vulnerabilities, remote);
+    }
+
+    @Override
+    public SoftwareKnowledge withVulnerabilities(Set<Vulnerability> vulnerabilities) {
+        Set<Vulnerability> newVulnerabilities = new HashSet<>(this.vulnerabilities);
+        newVulnerabilities.addAll(vulnerabilities);
+        return new ImmutableSoftwareKnowledge(name, version, Collections.unmodifiableSet(newVulnerabilities), remote);
+    }
+
+    @Override
+    public SoftwareKnowledge toImmutable() {
+        return this;
+    }
+
+    private int computeHash() {
+        //same hash as SoftwareKnowledgeImpl, since they can be equal
+        return Objects.hash(name, version, vulnerabilities, remote);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        hash = computeHash();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SoftwareKnowledge)) return false;
+        SoftwareKnowledge that = (SoftwareKnowledge) o;
+        if (that instanceof ImmutableSoftwareKnowledge && hash != that.hashCode()) return false;
+        return remote == that.isRemote() &&
+                Objects.equals(name, that.getName()) &&
+                Objects.equals(version, that.getVersion()) &&
+                Objects.equals(vulnerabilities, that.getVulnerabilities());
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return new Gson().toJson(this);
+    }
+}
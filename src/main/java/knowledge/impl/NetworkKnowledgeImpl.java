@@ -41,14 +41,31 @@ public class NetworkKnowledgeImpl implements NetworkKnowledge, Serializable {
         return sniffedData;
     }
 
+    @Override
+    public NetworkKnowledge withNode(NetworkNode.TYPE node) {
+        addNewNode(node);
+        return this;
+    }
+
+    @Override
+    public NetworkKnowledge withSniffedData(Data data) {
+        addSniffedData(data);
+        return this;
+    }
+
+    @Override
+    public NetworkKnowledge toImmutable() {
+        return ImmutableNetworkKnowledge.copyOf(this);
+    }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (!(o instanceof NetworkKnowledgeImpl)) return false;
-        NetworkKnowledgeImpl that = (NetworkKnowledgeImpl) o;
-        return Objects.equals(sniffedData, that.sniffedData) &&
-                Objects.equals(nodes, that.nodes);
+        //mutable and immutable knowledge are equal if they contain the same knowledge
+        if (!(o instanceof NetworkKnowledge)) return false;
+        NetworkKnowledge that = (NetworkKnowledge) o;
+        return Objects.equals(sniffedData, that.getSniffedDataMap()) &&
+                Objects.equals(nodes, that.getKnownNodes());
     }
 
     @Override
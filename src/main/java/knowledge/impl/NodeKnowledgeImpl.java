@@ -75,6 +75,41 @@ public class NodeKnowledgeImpl implements NodeKnowledge, Serializable {
         return this.dataSet;
     }
 
+    @Override
+    public String getPubIp() {
+        return pub_ip;
+    }
+
+    @Override
+    public String getPrivIp() {
+        return priv_ip;
+    }
+
+    @Override
+    public String getHostname() {
+        return hostname;
+    }
+
+    @Override
+    public String getOperatingSystem() {
+        return operatingSystem;
+    }
+
+    @Override
+    public String getOSVersion() {
+        return osVersion;
+    }
+
+    @Override
+    public NetworkNode.ACCESS_LEVEL getAccessLevel() {
+        return sysAccess;
+    }
+
+    @Override
+    public NetworkNode.TYPE getType() {
+        return type;
+    }
+
     @Override
     public void addPubIp(String pubIp) {
         this.pub_ip = pubIp;
@@ -110,6 +145,53 @@ public class NodeKnowledgeImpl implements NodeKnowledge, Serializable {
         dataSet.put(ID, data);
     }
 
+    @Override
+    public NodeKnowledge withPubIp(String pubIp) {
+        addPubIp(pubIp);
+        return this;
+    }
+
+    @Override
+    public NodeKnowledge withPrivIp(String privIp) {
+        addPrivIp(privIp);
+        return this;
+    }
+
+    @Override
+    public NodeKnowledge withHostname(String hostname) {
+        addHostname(hostname);
+        return this;
+    }
+
+    @Override
+    public NodeKnowledge withOperatingSystem(String os) {
+        addOperationSystem(os);
+        return this;
+    }
+
+    @Override
+    public NodeKnowledge withOSVersion(String osVersion) {
+        addOSVersion(osVersion);
+        return this;
+    }
+
+    @Override
+    public NodeKnowledge withAccessLevel(NetworkNode.ACCESS_LEVEL accessLevel) {
+        addAccessLevel(accessLevel);
+        return this;
+    }
+
+    @Override
+    public NodeKnowledge withData(int ID, Data data) {
+        addData(ID, data);
+        return this;
+    }
+
+    @Override
+    public NodeKnowledge toImmutable() {
+        return ImmutableNodeKnowledge.copyOf(this);
+    }
+
     @Override
     public int hashCode() {
 
@@ -119,16 +201,17 @@ public class NodeKnowledgeImpl implements NodeKnowledge, Serializable {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (!(o instanceof NodeKnowledgeImpl)) return false;
-        NodeKnowledgeImpl that = (NodeKnowledgeImpl) o;
-        return Objects.equals(pub_ip, that.pub_ip) &&
-                Objects.equals(priv_ip, that.priv_ip) &&
-                Objects.equals(hostname, that.hostname) &&
-                Objects.equals(operatingSystem, that.operatingSystem) &&
-                Objects.equals(osVersion, that.osVersion) &&
-                Objects.equals(dataSet, that.dataSet) &&
-                Objects.equals(sysAccess, that.sysAccess) &&
-                Objects.equals(type, that.type);
+        //mutable and immutable knowledge are equal if they contain the same knowledge
+        if (!(o instanceof NodeKnowledge)) return false;
+        NodeKnowledge that = (NodeKnowledge) o;
+        return Objects.equals(pub_ip, that.getPubIp()) &&
+                Objects.equals(priv_ip, that.getPrivIp()) &&
+                Objects.equals(hostname, that.getHostname()) &&
+                Objects.equals(operatingSystem, that.getOperatingSystem()) &&
+                Objects.equals(osVersion, that.getOSVersion()) &&
+                Objects.equals(dataSet, that.getKnownData()) &&
+                Objects.equals(sysAccess, that.getAccessLevel()) &&
+                Objects.equals(type, that.getType());
     }
 
     @Override
@@ -25,7 +25,6 @@ public class SoftwareKnowledgeImpl implements SoftwareKnowledge, Serializable {
         this.remote = remote;
     }
 
-
     @Override
     public void addVersion(String version) {
         this.version = version;
@@ -66,16 +65,33 @@ public class SoftwareKnowledgeImpl implements SoftwareKnowledge, Serializable {
         return remote;
     }
 
+    @Override
+    public SoftwareKnowledge withVersion(String version) {
+        addVersion(version);
+        return this;
+    }
+
+    @Override
+    public SoftwareKnowledge withVulnerabilities(Set<Vulnerability> vulnerabilities) {
+        addVulnerabilities(vulnerabilities);
+        return this;
+    }
+
+    @Override
+    public SoftwareKnowledge toImmutable() {
+        return ImmutableSoftwareKnowledge.copyOf(this);
+    }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (!(o instanceof SoftwareKnowledgeImpl)) return false;
-        SoftwareKnowledgeImpl that = (SoftwareKnowledgeImpl) o;
-        return remote == that.remote &&
-                Objects.equals(name, that.name) &&
-                Objects.equals(version, that.version) &&
-                Objects.equals(vulnerabilities, that.vulnerabilities);
+        //mutable and immutable knowledge are equal if they contain the same knowledge
+        if (!(o instanceof SoftwareKnowledge)) return false;
+        SoftwareKnowledge that = (SoftwareKnowledge) o;
+        return remote == that.isRemote() &&
+                Objects.equals(name, that.getName()) &&
+                Objects.equals(version, that.getVersion()) &&
+                Objects.equals(vulnerabilities, that.getVulnerabilities());
     }
 
     @Override
@@ -1,14 +1,19 @@
 package q_learning;
 
+import core.CheckpointStore;
 import core.NodeAction;
 import core.State;
 import environment.NetworkNode;
+import q_learning.interfaces.QMarkovDecisionProcess;
 import q_learning.mdp.*;
+import q_learning.utils.EpisodeLog;
 import q_learning.utils.Pair;
 import q_learning.utils.Parameter;
+import run.MDPSerializer;
 import run.Simulation;
 
 import java.io.*;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -34,6 +39,20 @@ public class QLearnerNetwork {
 
     public static final boolean FAILED_STATE_ENABLED = false;
     private static final boolean DISALLOW_SELF_TRANSITIONS = true;
+    // true = the states are computed while learning instead of loading the mdp.ser
+    private static final boolean LAZY_MDP_ENABLED = false;
+    // true = the mdp.bin is mapped into memory instead of loading it, see MappedMDP
+    private static final boolean MAPPED_MDP_ENABLED = false;
+    // true = the mdp.bin is loaded into flat arrays with precomputed rewards, see CompactMDP
+    private static final boolean COMPACT_MDP_ENABLED = true;
+    // number of episodes per row of the episode log (<filename>Episodes.csv), 1 = every episode
+    private static final int EPISODE_SAMPLE_INTERVAL = 1;
+    private static final String EPISODES_SUFFIX = "Episodes.csv";
+    // true = Q and N(s,a) are checkpointed to Q_CHECKPOINT_DIRECTORY while learning and a run resumes from it
+    private static final boolean Q_CHECKPOINTS_ENABLED = false;
+    private static final String Q_CHECKPOINT_DIRECTORY = "q_checkpoints";
+    // number of episodes between two checkpoints of Q and N(s,a)
+    private static final int Q_CHECKPOINT_INTERVAL = 50000;
 
     public static void main(String[] args) {
         if (LOGGER.isLoggable(Level.INFO))
@@ -44,13 +63,23 @@ public class QLearnerNetwork {
         Simulation.setupWorld(DISALLOW_SELF_TRANSITIONS);
 
 
-        if (LOGGER.isLoggable(Level.INFO))
-            LOGGER.info("Loading MDP...");
-        MDP<State, NodeAction> mdp = null;
-        try (FileInputStream streamIn = new FileInputStream("mdp.ser"); ObjectInputStream objectinputstream = new ObjectInputStream(streamIn)) {
-            mdp = (MDP<State, NodeAction>) objectinputstream.readObject();
-        } catch (Exception e) {
-            e.printStackTrace();
+        QMarkovDecisionProcess<State, NodeAction> mdp = null;
+        if (LAZY_MDP_ENABLED) {
+            if (LOGGER.isLoggable(Level.INFO))
+                LOGGER.info("Creating lazy MDP...");
+            mdp = MDPSerializer.createLazyMDP();
+        } else if (MAPPED_MDP_ENABLED) {
+            if (LOGGER.isLoggable(Level.INFO))
+                LOGGER.info("Mapping MDP...");
+            mdp = MDPSerializer.openMappedMDP();
+        } else if (COMPACT_MDP_ENABLED && MDPSerializer.BINARY_MDP_ENABLED) {
+            if (LOGGER.isLoggable(Level.INFO))
+                LOGGER.info("Loading compact MDP...");
+            mdp = MDPSerializer.loadCompactMDP();
+        } else {
+            if (LOGGER.isLoggable(Level.INFO))
+                LOGGER.info("Loading MDP...");
+            mdp = MDPSerializer.loadMDP();
         }
 
 
@@ -89,20 +118,34 @@ public class QLearnerNetwork {
      *
      * @param mdp The markov decision process
      * @param params The parameters. Each param is run in order and the results will be saved
-     * @param filename The filename for the saved data
+     * @param filename The filename for the saved data, a number is added if it was used before (see
+     *                 QLearner.unusedFilename). The rewards of the episodes are logged to filename + Episodes.csv
      * @param loggingCount Each loggingCount iteration will be logged to the console to show that the code is still running
      * @param loadFilename The filename of the Q to load from. Loading will be skipped, if set to null
      */
-    private static void runWithParameters(MDP<State, NodeAction> mdp, List<Parameter> params, String filename,
+    private static void runWithParameters(QMarkovDecisionProcess<State, NodeAction> mdp, List<Parameter> params, String filename,
                                           int loggingCount, String loadFilename) {
         // create learner. The parameters are changed at each run in the for loop.
         Parameter dummyParam = new Parameter(1, 0.1, 0.1, 1.0,
                 0.1, 0.1, 1.0, 1.0, 0, ERROR, 1, 0.0,
                 0, 0, "", false);
         QLearner<State, NodeAction> learner = new QLearner<>(mdp, dummyParam, loggingCount);
+        // the episode log and the run data of this invocation get the same name, which no earlier invocation used
+        filename = QLearner.unusedFilename(filename, ".json", EPISODES_SUFFIX);
+        EpisodeLog episodeLog;
+        try {
+            episodeLog = new EpisodeLog(Paths.get(filename + EPISODES_SUFFIX), EPISODE_SAMPLE_INTERVAL);
+        } catch (IOException e) {
+            e.printStackTrace();
+            episodeLog = null;
+        }
+        learner.setEpisodeLog(episodeLog);
+        CheckpointStore checkpoints = !Q_CHECKPOINTS_ENABLED ? null
+                : new CheckpointStore(Paths.get(Q_CHECKPOINT_DIRECTORY), MDPSerializer.getMDPFingerprint(), 0);
+        learner.setCheckpoints(checkpoints, Q_CHECKPOINT_INTERVAL);
 
         if (loadFilename != null)
-            learner.loadData(loadFilename);
+            learner.loadData(loadFilename, MDPSerializer.getMDPFingerprint());
 
         for (Parameter par : params) {
             learner.setParameter(par);
@@ -133,8 +176,20 @@ public class QLearnerNetwork {
             }
         }
 
+        if (episodeLog != null) {
+            try {
+                episodeLog.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
         if (LOGGER.isLoggable(Level.INFO))
             LOGGER.info("Saving learning values...");
-        learner.saveData(filename);
+        learner.saveData(filename, MDPSerializer.getMDPFingerprint());
+        //the learned data is saved, so a restart has to learn everything again
+        if (checkpoints != null) {
+            checkpoints.clear();
+        }
     }
 }
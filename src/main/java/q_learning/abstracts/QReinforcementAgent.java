@@ -3,15 +3,15 @@ package q_learning.abstracts;
 import aima.core.agent.Action;
 import aima.core.agent.Percept;
 import aima.core.agent.impl.*;
-import q_learning.mdp.MDP;
 
 import java.io.Serializable;
 import java.util.Map;
 
 /**
  * This abstract class is originally the ReinforcementAgent class, with the only change that the execute method
- * has a MDP as the input allowing for the reward to be dependent on state and action.
+ * works on a MDP allowing for the reward to be dependent on state and action.
  * More formally the reward function r was changed from: r(state) to: r(state, action, targetState).
+ * States and actions are passed as the int IDs and action indices of the MDP.
  *
  * Original Doc:
  *
@@ -28,7 +28,14 @@ public abstract class QReinforcementAgent<S extends Serializable, A extends Acti
     protected QReinforcementAgent() {
     }
 
-    public abstract A execute(S state, MDP<S, A> mdp, int curIteration);
+    /**
+     * Executes the agent on the state with the given ID of its MDP.
+     *
+     * @param stateId The ID of the current state
+     * @param curIteration The current iteration
+     * @return The index of the action to take or -1 if no action is taken
+     */
+    public abstract int execute(int stateId, int curIteration);
 
     public abstract Map<S, Double> getUtility();
 
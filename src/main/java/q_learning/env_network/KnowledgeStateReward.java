@@ -18,6 +18,9 @@ import java.util.function.Predicate;
  * This class implements the reward function.
  */
 public class KnowledgeStateReward implements StateReward<State, NodeAction> {
+    // the rewards are stored in the MDP file, so this has to be increased whenever the reward function changes,
+    // otherwise a cached MDP keeps the old rewards (see MDPSerializer.getMDPFingerprint)
+    public static final int VERSION = 1;
 
     private final State state;
     private final Set<NodeAction> actionsIntoFailedState;
@@ -80,9 +83,12 @@ public class KnowledgeStateReward implements StateReward<State, NodeAction> {
             actionCost += zeroDayPenality;
         }
 
-        Map<NetworkNode.TYPE, NodeKnowledge> map = state.getNodeKnowledgeMap();
+        //the knowledge is read many times, so compact states are decoded once
+        State current = state.unpacked();
+        State target = targetState.unpacked();
+        Map<NetworkNode.TYPE, NodeKnowledge> map = current.getNodeKnowledgeMap();
         //experimental, try to motivate to do early IP scanning
-        Predicate<NetworkNode.TYPE> canScan = n -> state.getNodesWithAnyNodeAccess().contains(n);
+        Predicate<NetworkNode.TYPE> canScan = n -> current.getNodesWithAnyNodeAccess().contains(n);
         Set<NetworkNode.TYPE> potentialScanningTargets = new HashSet<>(map.keySet());
         potentialScanningTargets.remove(NetworkNode.TYPE.ADVERSARY);
         for (NetworkNode.TYPE node : potentialScanningTargets) {
@@ -96,7 +102,7 @@ public class KnowledgeStateReward implements StateReward<State, NodeAction> {
         }
 
         Set<NetworkNode.TYPE> vulnscanTargets = new HashSet<>(potentialScanningTargets);
-        vulnscanTargets.removeAll(state.getNodesWithAnyNodeAccess());
+        vulnscanTargets.removeAll(current.getNodesWithAnyNodeAccess());
         for (NetworkNode.TYPE node: vulnscanTargets){
             if (!map.get(node).hasOperatingSystem()
                     && action.getTarget().equals(node)
@@ -108,13 +114,13 @@ public class KnowledgeStateReward implements StateReward<State, NodeAction> {
         }
 
         //after initial access, using ADVERSARY node should be discouraged since everything can be done in internal network
-        Predicate<NetworkNode.TYPE> hasRoot = n -> state.getNodeKnowledgeMap().containsKey(n) && state.getNodeKnowledgeMap().get(n).hasAccessLevelRoot();
+        Predicate<NetworkNode.TYPE> hasRoot = n -> current.getNodeKnowledgeMap().containsKey(n) && current.getNodeKnowledgeMap().get(n).hasAccessLevelRoot();
         if(Simulation.getSimWorld().getInternalNodes().stream().anyMatch(hasRoot) && action.getCurrentActor().equals(NetworkNode.TYPE.ADVERSARY)){
             actionCost += 0.5;
         }
 
         for (NetworkNode.TYPE node : potentialScanningTargets) {
-            if (!map.get(node).hasAccessLevelRoot() && targetState.getNodeKnowledgeMap().get(node).hasAccessLevelRoot()) {
+            if (!map.get(node).hasAccessLevelRoot() && target.getNodeKnowledgeMap().get(node).hasAccessLevelRoot()) {
                 stateValue += 0.5;
             }
         }
@@ -7,6 +7,9 @@ import aima.core.probability.mdp.MarkovDecisionProcess;
 /**
  * This class is an extension of the MarkovDecisionProcess interface. It adds methods for getting the reward
  * depending on state, action and target state as well as a method to do transitions.
+ *
+ * Additionally every state has a dense int ID and the actions of a state are numbered by an index, so learners can
+ * store their values in arrays instead of maps keyed by states.
  * @param <S> The state class
  * @param <A> The action class
  */
@@ -46,4 +49,76 @@ public interface QMarkovDecisionProcess<S, A extends Action> extends MarkovDecis
      * @return Is the given state a final state of the MDP?
      */
     boolean isFinalState(S state);
+
+    /**
+     * Returns the number of states. The IDs of the states are 0 to stateCount() - 1.
+     */
+    int stateCount();
+
+    /**
+     * Returns the ID of the initial state.
+     */
+    int getInitialStateId();
+
+    /**
+     * Returns the ID of the given state or -1 if it is not a state of the MDP.
+     */
+    int getStateId(S state);
+
+    /**
+     * Returns the state with the given ID.
+     */
+    S getState(int stateId);
+
+    /**
+     * Returns the number of actions of the state with the given ID. The actions are numbered from 0 to
+     * actionCount(stateId) - 1.
+     */
+    int actionCount(int stateId);
+
+    /**
+     * Returns the action with the given index of the state with the given ID.
+     */
+    A getAction(int stateId, int actionIndex);
+
+    /**
+     * Does a transition from a state with the given action and returns the ID of the target state.
+     *
+     * @param stateId The ID of the origin state
+     * @param actionIndex The index of the action taken
+     * @return The ID of the target state
+     */
+    int stateTransition(int stateId, int actionIndex);
+
+    /**
+     * Returns the reward of a state given the next action taken. The target state is the one given by
+     * stateTransition(stateId, actionIndex). An action index of -1 means that no action is taken, which returns
+     * the reward of reaching a final state.
+     *
+     * @param stateId The ID of the origin state
+     * @param actionIndex The index of the action taken or -1
+     * @return The reward associated with the state and action
+     */
+    double reward(int stateId, int actionIndex);
+
+    /**
+     * Returns rather or not the state with the given ID is a final state or not
+     */
+    boolean isFinalState(int stateId);
+
+    /**
+     * Returns true if the state with the given ID is flagged as a state, from which no final state can be reached.
+     * Such states are not used as random start states. By default no state is flagged.
+     */
+    default boolean isDeadEnd(int stateId) {
+        return false;
+    }
+
+    /**
+     * Returns false if the IDs of the states depend on the order in which they are visited (e.g. LazyMDP), so Q and
+     * N(s,a) of this MDP can not be stored and loaded again. By default the IDs are stable.
+     */
+    default boolean hasStableStateIds() {
+        return true;
+    }
 }
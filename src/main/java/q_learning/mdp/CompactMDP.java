@@ -0,0 +1,318 @@
+package q_learning.mdp;
+
+import aima.core.agent.Action;
+import aima.core.probability.mdp.ActionsFunction;
+import q_learning.interfaces.QMarkovDecisionProcess;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * An immutable Markov Decision Process stored in flat arrays in CSR layout: the transitions of the state with ID i
+ * are the entries actionOffsets[i] to actionOffsets[i + 1] - 1 of the action, target and reward arrays. The rewards
+ * are computed once when the MDP is created, so the int based methods used by the QLearningAgent are plain array
+ * reads without any hashing or allocation.
+ *
+ * Every distinct action is stored once in a dictionary, the transitions only hold its index.
+ *
+ * @param <S> The state class
+ * @param <A> The action class
+ */
+public class CompactMDP<S extends Serializable, A extends Action & Serializable> implements QMarkovDecisionProcess<S, A>, Serializable {
+    // The canonical instance and ID of each state
+    private final StateInterner<S> interner;
+
+    private final int initialState;
+
+    // The offset of the transitions of every state and the number of all transitions at the end
+    private final int[] actionOffsets;
+
+    // Every distinct action and its index in the dictionary
+    private final Object[] actionDictionary;
+    private final HashMap<A, Integer> dictionaryIds;
+
+    // The dictionary index of the action, the target state ID and the reward of every transition
+    private final int[] actionIds;
+    private final int[] targets;
+    private final double[] rewards;
+
+    // The reward of every state if no action is taken
+    private final double[] finalRewards;
+
+    private final BitSet finalStates;
+
+    // The states from which no final state can be reached, if they were flagged (see MDP.withDeadEndsFlagged)
+    private final BitSet deadEnds;
+
+    private CompactMDP(StateInterner<S> interner, int initialState, int[] actionOffsets, List<A> actionDictionary,
+                       int[] actionIds, int[] targets, double[] rewards, double[] finalRewards, BitSet finalStates,
+                       BitSet deadEnds) {
+        this.interner = interner;
+        this.initialState = initialState;
+        this.actionOffsets = actionOffsets;
+        this.actionDictionary = actionDictionary.toArray();
+        this.dictionaryIds = new HashMap<>();
+        for (int i = 0; i < actionDictionary.size(); i++) {
+            if (dictionaryIds.put(actionDictionary.get(i), i) != null)
+                throw new IllegalArgumentException("The action is contained twice in the dictionary.");
+        }
+        this.actionIds = actionIds;
+        this.targets = targets;
+        this.rewards = rewards;
+        this.finalRewards = finalRewards;
+        this.finalStates = finalStates;
+        this.deadEnds = deadEnds;
+    }
+
+    /**
+     * Copies a MDP into a CompactMDP. The state IDs and action indices stay the same and the rewards of all
+     * transitions are computed once.
+     *
+     * @param mdp The MDP, all its transitions have to be set
+     * @return The compact MDP
+     * @throws IllegalArgumentException if a transition of the MDP is not set
+     */
+    public static <S extends Serializable, A extends Action & Serializable> CompactMDP<S, A> of(
+            QMarkovDecisionProcess<S, A> mdp) {
+        int stateCount = mdp.stateCount();
+        StateInterner<S> interner = new StateInterner<>();
+        int[] actionOffsets = new int[stateCount + 1];
+        for (int id = 0; id < stateCount; id++) {
+            interner.intern(mdp.getState(id));
+            actionOffsets[id + 1] = actionOffsets[id] + mdp.actionCount(id);
+        }
+        int transitionCount = actionOffsets[stateCount];
+        Map<A, Integer> dictionary = new LinkedHashMap<>();
+        int[] actionIds = new int[transitionCount];
+        int[] targets = new int[transitionCount];
+        double[] rewards = new double[transitionCount];
+        double[] finalRewards = new double[stateCount];
+        BitSet finalStates = new BitSet(stateCount);
+        BitSet deadEnds = new BitSet();
+        for (int id = 0; id < stateCount; id++) {
+            for (int i = 0; i < mdp.actionCount(id); i++) {
+                int transition = actionOffsets[id] + i;
+                A action = mdp.getAction(id, i);
+                Integer actionId = dictionary.get(action);
+                if (actionId == null) {
+                    actionId = dictionary.size();
+                    dictionary.put(action, actionId);
+                }
+                actionIds[transition] = actionId;
+                targets[transition] = mdp.stateTransition(id, i);
+                rewards[transition] = mdp.reward(id, i);
+            }
+            finalRewards[id] = mdp.reward(id, -1);
+            if (mdp.isFinalState(id))
+                finalStates.set(id);
+            if (mdp.isDeadEnd(id))
+                deadEnds.set(id);
+        }
+        return new CompactMDP<>(interner, mdp.getInitialStateId(), actionOffsets, new ArrayList<>(dictionary.keySet()),
+                actionIds, targets, rewards, finalRewards, finalStates, deadEnds);
+    }
+
+    /**
+     * Creates a MDP from its tables, e.g. after reading it from a file. The arrays are used as they are, not copied.
+     *
+     * @param states The states ordered by their ID
+     * @param initialState The ID of the initial state
+     * @param actionOffsets The offset of the transitions of every state and the number of all transitions at the end
+     * @param actionDictionary The distinct actions
+     * @param actionIds The index of the action of every transition in the dictionary
+     * @param targets The target state ID of every transition
+     * @param rewards The reward of every transition
+     * @param finalRewards The reward of every state if no action is taken
+     * @param finalStates The IDs of the final states
+     * @param deadEnds The IDs of the states flagged as dead ends (see MDP.withDeadEndsFlagged)
+     * @return The MDP
+     * @throws IllegalArgumentException if a state or action is contained twice, an ID is invalid or the sizes of the
+     *                                  arrays do not match
+     */
+    public static <S extends Serializable, A extends Action & Serializable> CompactMDP<S, A> fromTables(
+            List<S> states, int initialState, int[] actionOffsets, List<A> actionDictionary, int[] actionIds,
+            int[] targets, double[] rewards, double[] finalRewards, BitSet finalStates, BitSet deadEnds) {
+        int stateCount = states.size();
+        StateInterner<S> interner = new StateInterner<>();
+        for (int id = 0; id < stateCount; id++) {
+            if (interner.intern(states.get(id)) != id)
+                throw new IllegalArgumentException("The state is contained twice.");
+        }
+        if (initialState < 0 || initialState >= stateCount)
+            throw new IllegalArgumentException("The initial state is not a state of the MDP.");
+        if (actionOffsets.length != stateCount + 1 || actionOffsets[0] != 0 || finalRewards.length != stateCount)
+            throw new IllegalArgumentException("The sizes of the arrays do not match the states.");
+        int transitionCount = actionOffsets[stateCount];
+        if (actionIds.length != transitionCount || targets.length != transitionCount || rewards.length != transitionCount)
+            throw new IllegalArgumentException("The sizes of the arrays do not match the action offsets.");
+        for (int id = 0; id < stateCount; id++) {
+            if (actionOffsets[id + 1] < actionOffsets[id])
+                throw new IllegalArgumentException("The action offsets are not ascending.");
+        }
+        for (int i = 0; i < transitionCount; i++) {
+            if (actionIds[i] < 0 || actionIds[i] >= actionDictionary.size())
+                throw new IllegalArgumentException("The action of a transition is not in the dictionary.");
+            if (targets[i] < 0 || targets[i] >= stateCount)
+                throw new IllegalArgumentException("The target of a transition is not a state of the MDP.");
+        }
+        return new CompactMDP<>(interner, initialState, actionOffsets, actionDictionary, actionIds, targets, rewards,
+                finalRewards, (BitSet) finalStates.clone(), (BitSet) deadEnds.clone());
+    }
+
+    /**
+     * Returns the number of transitions of all states.
+     */
+    public int transitionCount() {
+        return targets.length;
+    }
+
+    private int knownStateId(S state) {
+        int id = getStateId(state);
+        if (id < 0)
+            throw new IllegalArgumentException("The state is not a state of the MDP.");
+        return id;
+    }
+
+    private int actionIndex(int stateId, A action) {
+        Integer actionId = dictionaryIds.get(action);
+        if (actionId != null) {
+            for (int transition = actionOffsets[stateId]; transition < actionOffsets[stateId + 1]; transition++) {
+                if (actionIds[transition] == actionId)
+                    return transition - actionOffsets[stateId];
+            }
+        }
+        throw new IllegalArgumentException("No state action pair set.");
+    }
+
+    private int transition(int stateId, int actionIndex) {
+        int transition = actionOffsets[stateId] + actionIndex;
+        if (actionIndex < 0 || transition >= actionOffsets[stateId + 1])
+            throw new IndexOutOfBoundsException("Invalid action index " + actionIndex + " of state " + stateId);
+        return transition;
+    }
+
+    @Override
+    public ActionsFunction<S, A> getActionsFunction() {
+        return this::actions;
+    }
+
+    @Override
+    public S stateTransition(S state, A action) {
+        int id = knownStateId(state);
+        return getState(stateTransition(id, actionIndex(id, action)));
+    }
+
+    /**
+     * Returns all states ordered by their ID.
+     */
+    @Override
+    public Set<S> states() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(interner.getStates()));
+    }
+
+    @Override
+    public S getInitialState() {
+        return interner.getState(initialState);
+    }
+
+    /**
+     * Returns all actions of the given state ordered by their index.
+     */
+    @Override
+    public Set<A> actions(S state) {
+        int id = knownStateId(state);
+        Set<A> actions = new LinkedHashSet<>();
+        for (int i = 0; i < actionCount(id); i++) {
+            actions.add(getAction(id, i));
+        }
+        return Collections.unmodifiableSet(actions);
+    }
+
+    /**
+     * Returns a laplacian probability for the given state.
+     */
+    @Override
+    public double transitionProbability(S sDelta, S state, A action) {
+        return 1.0 / (double) actionCount(knownStateId(state));
+    }
+
+    /**
+     * This method is unsupported and not used by the QLearningAgent. Instead use the reward(state, action, targetState)
+     * method.
+     */
+    @Override
+    public double reward(S state) {
+        throw new UnsupportedOperationException("State, action and target action are required. Use reward(state, action, targetState) instead.");
+    }
+
+    /**
+     * Returns the precomputed reward of the transition. Since the MDP is deterministic, the target state is not
+     * needed. If the action or the target state is null, the reward of the state without an action is returned.
+     */
+    @Override
+    public double reward(S state, A action, S targetState) {
+        int id = knownStateId(state);
+        if (action == null || targetState == null)
+            return finalRewards[id];
+        return rewards[actionOffsets[id] + actionIndex(id, action)];
+    }
+
+    @Override
+    public boolean isFinalState(S state) {
+        int id = getStateId(state);
+        return id >= 0 && finalStates.get(id);
+    }
+
+    @Override
+    public int stateCount() {
+        return interner.size();
+    }
+
+    @Override
+    public int getInitialStateId() {
+        return initialState;
+    }
+
+    @Override
+    public int getStateId(S state) {
+        return interner.getId(state);
+    }
+
+    @Override
+    public S getState(int stateId) {
+        return interner.getState(stateId);
+    }
+
+    @Override
+    public int actionCount(int stateId) {
+        return actionOffsets[stateId + 1] - actionOffsets[stateId];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public A getAction(int stateId, int actionIndex) {
+        return (A) actionDictionary[actionIds[transition(stateId, actionIndex)]];
+    }
+
+    @Override
+    public int stateTransition(int stateId, int actionIndex) {
+        return targets[transition(stateId, actionIndex)];
+    }
+
+    @Override
+    public double reward(int stateId, int actionIndex) {
+        if (actionIndex < 0)
+            return finalRewards[stateId];
+        return rewards[transition(stateId, actionIndex)];
+    }
+
+    @Override
+    public boolean isFinalState(int stateId) {
+        return finalStates.get(stateId);
+    }
+
+    @Override
+    public boolean isDeadEnd(int stateId) {
+        return deadEnds.get(stateId);
+    }
+}
@@ -0,0 +1,246 @@
+package q_learning.mdp;
+
+import aima.core.agent.Action;
+import aima.core.probability.mdp.ActionsFunction;
+import q_learning.interfaces.QMarkovDecisionProcess;
+import q_learning.interfaces.StateReward;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A Markov Decision Process, which computes the actions, transitions and rewards of a state when they are needed for
+ * the first time, instead of computing all states up front. So learning can start immediately and only the states
+ * which are visited are computed.
+ *
+ * The states get their IDs in the order they are discovered, starting with the initial state, thus stateCount()
+ * returns the number of states discovered so far and grows while learning. The actions, transitions and rewards of
+ * the most recently used states are kept in a bounded cache. States which were evicted from the cache are computed
+ * again when they are visited, so the actions of a state have to be returned in the same order every time.
+ *
+ * NOTE: All discovered states are kept to keep their IDs stable while learning. The IDs depend on the order in which
+ * the states are discovered, so Q can not be checkpointed or stored for a lazy MDP (see hasStableStateIds).
+ * @param <S> The state class
+ * @param <A> The action class
+ */
+public class LazyMDP<S extends Serializable, A extends Action & Serializable> implements QMarkovDecisionProcess<S, A> {
+    private final StateInterner<S> interner = new StateInterner<>();
+    private final int initialState;
+
+    private final Function<S, List<A>> actionsFunction;
+    private final BiFunction<S, A, S> transitionFunction;
+    private final Function<S, StateReward<S, A>> rewardFunction;
+    private final Predicate<S> finalStateFunction;
+
+    // The computed states by state ID in the order of their last use
+    private final Map<Integer, Expansion> cache;
+
+    /**
+     * The constructor for the lazy Markov decision process.
+     *
+     * @param initialState The initial state
+     * @param actionsFunction Returns all actions of a state, always in the same order
+     * @param transitionFunction Returns the target state of doing an action on a state
+     * @param rewardFunction Returns the StateReward providing the rewards of a state
+     * @param finalStateFunction Returns true for final states
+     * @param cacheSize The maximum number of states, whose actions, transitions and rewards are cached
+     * @throws IllegalArgumentException if the cache size is not positive
+     */
+    public LazyMDP(S initialState, Function<S, List<A>> actionsFunction, BiFunction<S, A, S> transitionFunction,
+                   Function<S, StateReward<S, A>> rewardFunction, Predicate<S> finalStateFunction, int cacheSize) {
+        if (cacheSize < 1)
+            throw new IllegalArgumentException("The cache size must be positive.");
+        this.actionsFunction = actionsFunction;
+        this.transitionFunction = transitionFunction;
+        this.rewardFunction = rewardFunction;
+        this.finalStateFunction = finalStateFunction;
+        this.cache = new LinkedHashMap<Integer, Expansion>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Expansion> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        this.initialState = interner.intern(initialState);
+    }
+
+    /**
+     * The computed actions, transitions and rewards of a state. Transitions and rewards are computed on first use.
+     */
+    private class Expansion {
+        private final S state;
+        private final List<A> actions;
+        // The target state ID of every action, -1 if it was not computed yet
+        private final int[] targets;
+        // The reward of every action, NaN if it was not computed yet
+        private final double[] rewards;
+        private final StateReward<S, A> reward;
+        private final boolean finalState;
+
+        Expansion(S state) {
+            this.state = state;
+            this.actions = actionsFunction.apply(state);
+            this.targets = new int[actions.size()];
+            Arrays.fill(targets, -1);
+            this.rewards = new double[actions.size()];
+            Arrays.fill(rewards, Double.NaN);
+            this.reward = rewardFunction.apply(state);
+            this.finalState = finalStateFunction.test(state);
+        }
+    }
+
+    private Expansion expansion(int stateId) {
+        Expansion expansion = cache.get(stateId);
+        if (expansion == null) {
+            expansion = new Expansion(interner.getState(stateId));
+            cache.put(stateId, expansion);
+        }
+        return expansion;
+    }
+
+    private int knownStateId(S state) {
+        int id = getStateId(state);
+        if (id < 0)
+            throw new IllegalArgumentException("The state was not discovered by the MDP.");
+        return id;
+    }
+
+    @Override
+    public ActionsFunction<S, A> getActionsFunction() {
+        return this::actions;
+    }
+
+    @Override
+    public S stateTransition(S state, A action) {
+        int id = knownStateId(state);
+        int actionIndex = expansion(id).actions.indexOf(action);
+        if (actionIndex < 0)
+            throw new IllegalArgumentException("No state action pair set.");
+        return interner.getState(stateTransition(id, actionIndex));
+    }
+
+    /**
+     * Returns all states discovered so far ordered by their ID.
+     */
+    @Override
+    public Set<S> states() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(interner.getStates()));
+    }
+
+    @Override
+    public S getInitialState() {
+        return interner.getState(initialState);
+    }
+
+    /**
+     * Returns all actions of a state, which was discovered by the MDP.
+     */
+    @Override
+    public Set<A> actions(S state) {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(expansion(knownStateId(state)).actions));
+    }
+
+    /**
+     * Returns a laplacian probability for the given state.
+     */
+    @Override
+    public double transitionProbability(S sDelta, S state, A action) {
+        return 1.0 / (double) expansion(knownStateId(state)).actions.size();
+    }
+
+    /**
+     * This method is unsupported and not used by the QLearningAgent. Instead use the reward(state, action, targetState)
+     * method.
+     */
+    @Override
+    public double reward(S state) {
+        throw new UnsupportedOperationException("State, action and target action are required. Use reward(state, action, targetState) instead.");
+    }
+
+    @Override
+    public double reward(S state, A action, S targetState) {
+        return expansion(knownStateId(state)).reward.reward(action, targetState);
+    }
+
+    @Override
+    public boolean isFinalState(S state) {
+        int id = getStateId(state);
+        return id >= 0 && isFinalState(id);
+    }
+
+    /**
+     * Returns the number of states discovered so far.
+     */
+    @Override
+    public int stateCount() {
+        return interner.size();
+    }
+
+    @Override
+    public int getInitialStateId() {
+        return initialState;
+    }
+
+    /**
+     * Returns the ID of the given state or -1 if it was not discovered yet.
+     */
+    @Override
+    public int getStateId(S state) {
+        return interner.getId(state);
+    }
+
+    @Override
+    public S getState(int stateId) {
+        return interner.getState(stateId);
+    }
+
+    @Override
+    public int actionCount(int stateId) {
+        return expansion(stateId).actions.size();
+    }
+
+    @Override
+    public A getAction(int stateId, int actionIndex) {
+        return expansion(stateId).actions.get(actionIndex);
+    }
+
+    /**
+     * Does a transition and discovers the target state, if it is new.
+     */
+    @Override
+    public int stateTransition(int stateId, int actionIndex) {
+        Expansion expansion = expansion(stateId);
+        if (expansion.targets[actionIndex] < 0) {
+            S target = transitionFunction.apply(expansion.state, expansion.actions.get(actionIndex));
+            expansion.targets[actionIndex] = interner.intern(target);
+        }
+        return expansion.targets[actionIndex];
+    }
+
+    @Override
+    public double reward(int stateId, int actionIndex) {
+        Expansion expansion = expansion(stateId);
+        if (actionIndex < 0)
+            return expansion.reward.reward(null, null);
+        if (Double.isNaN(expansion.rewards[actionIndex])) {
+            S target = interner.getState(stateTransition(stateId, actionIndex));
+            expansion.rewards[actionIndex] = expansion.reward.reward(expansion.actions.get(actionIndex), target);
+        }
+        return expansion.rewards[actionIndex];
+    }
+
+    @Override
+    public boolean isFinalState(int stateId) {
+        return expansion(stateId).finalState;
+    }
+
+    /**
+     * Returns false, since the states get their IDs in the order they are discovered.
+     */
+    @Override
+    public boolean hasStableStateIds() {
+        return false;
+    }
+}
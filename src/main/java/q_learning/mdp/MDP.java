@@ -7,26 +7,40 @@ import q_learning.interfaces.QMarkovDecisionProcess;
 import q_learning.interfaces.StateReward;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 
 /**
- * A simple implementation of a Markov Decision Process
+ * A simple implementation of a Markov Decision Process.
+ * Every state is interned with a dense int ID and the actions of each state are stored in the order of the
+ * ActionsFunction, so all lookups of the int based methods are array accesses.
+ * Since the transitions are deterministic, the reward of every transition is computed once when the MDP is built, so
+ * getting a reward is an array access as well.
  */
 public class MDP<S extends Serializable, A extends Action & Serializable> implements QMarkovDecisionProcess<S, A>, Serializable {
-    // Save state and reward
-    private final HashMap<S, StateReward<S, A>> states;
+    // The canonical instance and ID of each state
+    private final StateInterner<S> interner;
 
-    private final S initialState;
+    // The reward of every transition by state ID and action index, NaN if the transition was not set
+    private final double[][] rewards;
+
+    // The reward of every state if no action is taken
+    private final double[] finalRewards;
+
+    private final int initialState;
 
     // Each state with all possible actions
     private final QActionsFunctionInterface<S, A> actions;
 
-    // Every transition of a state and action
-    private final QStateTransition<S, A> transitions;
+    // The actions of each state by state ID and action index
+    private final Object[][] stateActions;
+
+    // The target state ID of every transition by state ID and action index, -1 if the transition was not set
+    private final int[][] transitions;
 
-    private final HashSet<S> finalStates;
+    private final BitSet finalStates;
+
+    // The states from which no final state can be reached, if they were flagged (see withDeadEndsFlagged)
+    private final BitSet deadEnds;
 
     /**
      * The constructor for Markov decision process.
@@ -37,15 +51,254 @@ public class MDP<S extends Serializable, A extends Action & Serializable> implem
      * @param actions An ActionsFunction providing all actions for each state
      * @param transitions A StateTransition providing all transitions from state to state with an action
      * @param finalStates All final states
+     * @throws IllegalArgumentException if the initial state or the target of a transition is not contained in states
      */
     public MDP(HashMap<S, StateReward<S, A>> states, S initialState,
                QActionsFunctionInterface<S, A> actions, QStateTransition<S, A> transitions,
                HashSet<S> finalStates) {
-        this.states = states;
+        this.interner = new StateInterner<>();
+        //generic arrays can not be created, the array only holds the rewards of the given map
+        @SuppressWarnings("unchecked")
+        StateReward<S, A>[] stateRewards = (StateReward<S, A>[]) new StateReward<?, ?>[states.size()];
+        for (Map.Entry<S, StateReward<S, A>> entry : states.entrySet()) {
+            stateRewards[interner.intern(entry.getKey())] = entry.getValue();
+        }
+        this.initialState = interner.getId(initialState);
+        if (this.initialState < 0)
+            throw new IllegalArgumentException("The initial state is not a state of the MDP.");
+        this.actions = actions;
+
+        this.stateActions = new Object[states.size()][];
+        this.transitions = new int[states.size()][];
+        this.rewards = new double[states.size()][];
+        this.finalRewards = new double[states.size()];
+        this.finalStates = new BitSet(states.size());
+        for (int id = 0; id < interner.size(); id++) {
+            S state = interner.getState(id);
+            Set<A> stateActionSet = actions.actions(state);
+            stateActions[id] = stateActionSet.toArray();
+            this.transitions[id] = new int[stateActions[id].length];
+            this.rewards[id] = new double[stateActions[id].length];
+            for (int i = 0; i < stateActions[id].length; i++) {
+                A action = getAction(id, i);
+                if (!transitions.hasTransition(state, action)) {
+                    this.transitions[id][i] = -1;
+                    this.rewards[id][i] = Double.NaN;
+                    continue;
+                }
+                S targetState = transitions.stateTransition(state, action);
+                int target = interner.getId(targetState);
+                if (target < 0)
+                    throw new IllegalArgumentException("The target of a transition is not a state of the MDP.");
+                this.transitions[id][i] = target;
+                this.rewards[id][i] = stateRewards[id].reward(action, targetState);
+            }
+            this.finalRewards[id] = stateRewards[id].reward(null, null);
+            if (finalStates.contains(state))
+                this.finalStates.set(id);
+        }
+        this.deadEnds = new BitSet();
+    }
+
+    private MDP(StateInterner<S> interner, double[][] rewards, double[] finalRewards, int initialState,
+                QActionsFunctionInterface<S, A> actions, Object[][] stateActions, int[][] transitions,
+                BitSet finalStates, BitSet deadEnds) {
+        this.interner = interner;
+        this.rewards = rewards;
+        this.finalRewards = finalRewards;
         this.initialState = initialState;
         this.actions = actions;
+        this.stateActions = stateActions;
         this.transitions = transitions;
         this.finalStates = finalStates;
+        this.deadEnds = deadEnds;
+    }
+
+    /**
+     * Creates a MDP from its int based tables, e.g. after reading it from a file. The state IDs are the indices of
+     * the states. The actions of the state with ID i are actions[actionOffsets[i]] to actions[actionOffsets[i + 1] - 1]
+     * and the target state IDs and rewards of their transitions are stored at the same positions in targets and
+     * rewards.
+     *
+     * @param states The states ordered by their ID
+     * @param initialState The ID of the initial state
+     * @param actionOffsets The offset of the actions of every state and the number of all actions at the end
+     * @param actions The actions of all states
+     * @param targets The target state ID of every action
+     * @param rewards The reward of every action
+     * @param finalRewards The reward of every state if no action is taken
+     * @param finalStates The IDs of the final states
+     * @param deadEnds The IDs of the states flagged as dead ends (see withDeadEndsFlagged)
+     * @return The MDP
+     * @throws IllegalArgumentException if a state is contained twice or an ID is not a state
+     */
+    public static <S extends Serializable, A extends Action & Serializable> MDP<S, A> fromTables(
+            List<S> states, int initialState, int[] actionOffsets, List<A> actions, int[] targets, double[] rewards,
+            double[] finalRewards, BitSet finalStates, BitSet deadEnds) {
+        StateInterner<S> interner = new StateInterner<>();
+        HashMap<S, Double> stateRewards = new HashMap<>();
+        for (int id = 0; id < states.size(); id++) {
+            if (interner.intern(states.get(id)) != id)
+                throw new IllegalArgumentException("The state is contained twice.");
+            stateRewards.put(interner.getState(id), finalRewards[id]);
+        }
+        if (initialState < 0 || initialState >= states.size())
+            throw new IllegalArgumentException("The initial state is not a state of the MDP.");
+        QActionsFunction<S, A> actionsFunction = new QActionsFunction<>(stateRewards);
+        Object[][] stateActions = new Object[states.size()][];
+        int[][] transitions = new int[states.size()][];
+        double[][] transitionRewards = new double[states.size()][];
+        for (int id = 0; id < states.size(); id++) {
+            List<A> actionList = actions.subList(actionOffsets[id], actionOffsets[id + 1]);
+            stateActions[id] = actionList.toArray();
+            transitions[id] = Arrays.copyOfRange(targets, actionOffsets[id], actionOffsets[id + 1]);
+            transitionRewards[id] = Arrays.copyOfRange(rewards, actionOffsets[id], actionOffsets[id + 1]);
+            for (int i = 0; i < actionList.size(); i++) {
+                if (transitions[id][i] < 0 || transitions[id][i] >= states.size())
+                    throw new IllegalArgumentException("The target of a transition is not a state of the MDP.");
+                actionsFunction.addAction(interner.getState(id), actionList.get(i));
+            }
+        }
+        return new MDP<>(interner, transitionRewards, finalRewards.clone(), initialState, actionsFunction, stateActions,
+                transitions, (BitSet) finalStates.clone(), (BitSet) deadEnds.clone());
+    }
+
+    /**
+     * Finds all states, from which no final state can be reached. For this the transitions are reversed and all
+     * states reaching a final state are found by a breadth first search starting at the final states.
+     *
+     * @return The IDs of the dead end states
+     */
+    public BitSet findDeadEnds() {
+        int stateCount = stateCount();
+        // The reverse transitions: the origins of the transitions into state t are origins[offsets[t]] to
+        // origins[offsets[t + 1] - 1]
+        int[] offsets = new int[stateCount + 1];
+        for (int[] targets : transitions) {
+            for (int target : targets) {
+                if (target >= 0)
+                    offsets[target + 1]++;
+            }
+        }
+        for (int target = 0; target < stateCount; target++) {
+            offsets[target + 1] += offsets[target];
+        }
+        int[] origins = new int[offsets[stateCount]];
+        int[] next = Arrays.copyOf(offsets, stateCount);
+        for (int id = 0; id < stateCount; id++) {
+            for (int target : transitions[id]) {
+                if (target >= 0)
+                    origins[next[target]++] = id;
+            }
+        }
+
+        BitSet reachesFinalState = (BitSet) finalStates.clone();
+        int[] queue = new int[stateCount];
+        int head = 0;
+        int tail = 0;
+        for (int id = finalStates.nextSetBit(0); id >= 0; id = finalStates.nextSetBit(id + 1)) {
+            queue[tail++] = id;
+        }
+        while (head < tail) {
+            int target = queue[head++];
+            for (int i = offsets[target]; i < offsets[target + 1]; i++) {
+                if (!reachesFinalState.get(origins[i])) {
+                    reachesFinalState.set(origins[i]);
+                    queue[tail++] = origins[i];
+                }
+            }
+        }
+
+        BitSet deadEnds = new BitSet(stateCount);
+        deadEnds.set(0, stateCount);
+        deadEnds.andNot(reachesFinalState);
+        return deadEnds;
+    }
+
+    /**
+     * Returns a copy of this MDP, where the states from which no final state can be reached are flagged, so they
+     * are not used as random start states (see isDeadEnd).
+     *
+     * @return The MDP with flagged dead ends
+     * @throws IllegalStateException if no final state can be reached from the initial state
+     */
+    public MDP<S, A> withDeadEndsFlagged() {
+        BitSet deadEnds = findDeadEnds();
+        if (deadEnds.get(initialState))
+            throw new IllegalStateException("No final state can be reached from the initial state.");
+        return new MDP<>(interner, rewards, finalRewards, initialState, actions, stateActions, transitions, finalStates,
+                deadEnds);
+    }
+
+    /**
+     * Returns a copy of this MDP without the states from which no final state can be reached and without the
+     * transitions into them. Every remaining state, which is not final, keeps at least one action. The states keep
+     * their order, but get new IDs.
+     *
+     * @return The MDP without dead ends
+     * @throws IllegalStateException if no final state can be reached from the initial state
+     */
+    public MDP<S, A> withDeadEndsRemoved() {
+        BitSet deadEnds = findDeadEnds();
+        if (deadEnds.get(initialState))
+            throw new IllegalStateException("No final state can be reached from the initial state.");
+        StateInterner<S> keptInterner = new StateInterner<>();
+        int[] keptIds = new int[stateCount()];
+        for (int id = 0; id < stateCount(); id++) {
+            keptIds[id] = deadEnds.get(id) ? -1 : keptInterner.intern(getState(id));
+        }
+        int keptCount = keptInterner.size();
+        double[] keptFinalRewards = new double[keptCount];
+        HashMap<S, Double> keptStates = new HashMap<>();
+        for (int id = 0; id < stateCount(); id++) {
+            if (keptIds[id] >= 0) {
+                keptFinalRewards[keptIds[id]] = finalRewards[id];
+                keptStates.put(getState(id), finalRewards[id]);
+            }
+        }
+        QActionsFunction<S, A> keptActions = new QActionsFunction<>(keptStates);
+        Object[][] keptStateActions = new Object[keptCount][];
+        int[][] keptTransitions = new int[keptCount][];
+        double[][] keptRewards = new double[keptCount][];
+        BitSet keptFinalStates = new BitSet(keptCount);
+        for (int id = 0; id < stateCount(); id++) {
+            int keptId = keptIds[id];
+            if (keptId < 0)
+                continue;
+            List<Object> stateActionList = new ArrayList<>();
+            List<Integer> targets = new ArrayList<>();
+            List<Double> stateRewardList = new ArrayList<>();
+            for (int i = 0; i < stateActions[id].length; i++) {
+                int target = transitions[id][i];
+                if (target >= 0 && keptIds[target] < 0)
+                    continue;
+                stateActionList.add(stateActions[id][i]);
+                targets.add(target < 0 ? -1 : keptIds[target]);
+                stateRewardList.add(rewards[id][i]);
+                keptActions.addAction(getState(id), getAction(id, i));
+            }
+            keptStateActions[keptId] = stateActionList.toArray();
+            keptTransitions[keptId] = targets.stream().mapToInt(Integer::intValue).toArray();
+            keptRewards[keptId] = stateRewardList.stream().mapToDouble(Double::doubleValue).toArray();
+            if (finalStates.get(id))
+                keptFinalStates.set(keptId);
+        }
+        return new MDP<>(keptInterner, keptRewards, keptFinalRewards, keptIds[initialState], keptActions,
+                keptStateActions, keptTransitions, keptFinalStates, new BitSet());
+    }
+
+    /**
+     * Returns the number of transitions of all states.
+     */
+    public int transitionCount() {
+        int count = 0;
+        for (int[] targets : transitions) {
+            for (int target : targets) {
+                if (target >= 0)
+                    count++;
+            }
+        }
+        return count;
     }
 
     /**
@@ -67,15 +320,26 @@ public class MDP<S extends Serializable, A extends Action & Serializable> implem
      */
     @Override
     public S stateTransition(S state, A action) {
-        return transitions.stateTransition(state, action);
+        int id = getStateId(state);
+        if (id < 0)
+            throw new IllegalArgumentException("No state action pair set.");
+        return interner.getState(stateTransition(id, actionIndex(id, action)));
+    }
+
+    private int actionIndex(int stateId, A action) {
+        for (int i = 0; i < stateActions[stateId].length; i++) {
+            if (stateActions[stateId][i].equals(action))
+                return i;
+        }
+        throw new IllegalArgumentException("No state action pair set.");
     }
 
     /**
-     * Returns all states.
+     * Returns all states ordered by their ID.
      */
     @Override
     public Set<S> states() {
-        return states.keySet();
+        return Collections.unmodifiableSet(new LinkedHashSet<>(interner.getStates()));
     }
 
     /**
@@ -83,7 +347,7 @@ public class MDP<S extends Serializable, A extends Action & Serializable> implem
      */
     @Override
     public S getInitialState() {
-        return initialState;
+        return interner.getState(initialState);
     }
 
     /**
@@ -120,7 +384,9 @@ public class MDP<S extends Serializable, A extends Action & Serializable> implem
 
     /**
      * Returns the reward of the given state, action and target state, where the target state should be reached
-     * by doing the action on the origin state.
+     * by doing the action on the origin state. Since the transitions are deterministic, the precomputed reward of the
+     * action is returned. If the action or the target state is null, the reward of the state without an action is
+     * returned.
      *
      * @param state The origin state
      * @param action The action taken
@@ -129,7 +395,12 @@ public class MDP<S extends Serializable, A extends Action & Serializable> implem
      */
     @Override
     public double reward(S state, A action, S targetState) {
-        return states.get(state).reward(action, targetState);
+        int id = getStateId(state);
+        if (id < 0)
+            throw new IllegalArgumentException("The state is not a state of the MDP.");
+        if (action == null || targetState == null)
+            return finalRewards[id];
+        return reward(id, actionIndex(id, action));
     }
 
     /**
@@ -139,6 +410,65 @@ public class MDP<S extends Serializable, A extends Action & Serializable> implem
      */
     @Override
     public boolean isFinalState(S state) {
-        return finalStates.contains(state);
+        int id = getStateId(state);
+        return id >= 0 && finalStates.get(id);
+    }
+
+    @Override
+    public int stateCount() {
+        return interner.size();
+    }
+
+    @Override
+    public int getInitialStateId() {
+        return initialState;
+    }
+
+    @Override
+    public int getStateId(S state) {
+        return interner.getId(state);
+    }
+
+    @Override
+    public S getState(int stateId) {
+        return interner.getState(stateId);
+    }
+
+    @Override
+    public int actionCount(int stateId) {
+        return stateActions[stateId].length;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public A getAction(int stateId, int actionIndex) {
+        return (A) stateActions[stateId][actionIndex];
+    }
+
+    @Override
+    public int stateTransition(int stateId, int actionIndex) {
+        int target = transitions[stateId][actionIndex];
+        if (target < 0)
+            throw new IllegalArgumentException("No state action pair set.");
+        return target;
+    }
+
+    @Override
+    public double reward(int stateId, int actionIndex) {
+        if (actionIndex < 0)
+            return finalRewards[stateId];
+        if (transitions[stateId][actionIndex] < 0)
+            throw new IllegalArgumentException("No state action pair set.");
+        return rewards[stateId][actionIndex];
+    }
+
+    @Override
+    public boolean isFinalState(int stateId) {
+        return finalStates.get(stateId);
+    }
+
+    @Override
+    public boolean isDeadEnd(int stateId) {
+        return deadEnds.get(stateId);
     }
 }
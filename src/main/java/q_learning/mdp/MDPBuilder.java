@@ -0,0 +1,75 @@
+package q_learning.mdp;
+
+import aima.core.agent.Action;
+import q_learning.interfaces.StateReward;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Collects the states, actions, transitions, rewards and final states of a MDP in a single pass, e.g. while
+ * iterating over already computed transitions, so no action has to be executed again to build the MDP.
+ *
+ * @param <S> The state class
+ * @param <A> The action class
+ */
+public class MDPBuilder<S extends Serializable, A extends Action & Serializable> {
+    private final HashMap<S, StateReward<S, A>> states = new HashMap<>();
+    private final Map<S, List<A>> actions = new HashMap<>();
+    private final QStateTransition<S, A> transitions = new QStateTransition<>();
+    private final HashSet<S> finalStates = new HashSet<>();
+
+    /**
+     * Adds a state of the MDP.
+     *
+     * @param state The state
+     * @param reward The StateReward providing the rewards of the state
+     * @param finalState true if the state is a final state
+     */
+    public void addState(S state, StateReward<S, A> reward, boolean finalState) {
+        states.put(state, reward);
+        if (finalState)
+            finalStates.add(state);
+    }
+
+    /**
+     * Adds an action of a state together with the state reached by it. The target state has to be added as well,
+     * but may be added later.
+     *
+     * @param state The origin state
+     * @param action The action
+     * @param targetState The target state
+     */
+    public void addTransition(S state, A action, S targetState) {
+        actions.computeIfAbsent(state, s -> new ArrayList<>()).add(action);
+        transitions.addTransition(state, action, targetState);
+    }
+
+    /**
+     * Marks an added state as final state.
+     *
+     * @param state The state
+     */
+    public void addFinalState(S state) {
+        finalStates.add(state);
+    }
+
+    /**
+     * Builds the MDP of all added states.
+     *
+     * @param initialState The initial state
+     * @return The MDP
+     * @throws IllegalArgumentException if the initial state or the target of a transition was not added
+     */
+    public MDP<S, A> build(S initialState) {
+        QActionsFunction<S, A> actionsFunction = new QActionsFunction<>(states);
+        for (Map.Entry<S, List<A>> stateActions : actions.entrySet()) {
+            if (!states.containsKey(stateActions.getKey()))
+                throw new IllegalArgumentException("The origin of a transition is not a state of the MDP.");
+            for (A action : stateActions.getValue()) {
+                actionsFunction.addAction(stateActions.getKey(), action);
+            }
+        }
+        return new MDP<>(states, initialState, actionsFunction, transitions, finalStates);
+    }
+}
@@ -16,9 +16,9 @@ public class QActionsFunction<S extends Serializable, A extends Action & Seriali
     /**
      * This constructor needs all states of the MDP. Afterwards the actions for each state can be added.
      *
-     * @param states All states of the MDP
+     * @param states All states of the MDP, the values are not used
      */
-    public QActionsFunction(Map<S, Double> states) {
+    public QActionsFunction(Map<S, ?> states) {
         this.actions = new HashMap<>();
         for (S state : states.keySet()) {
             actions.put(state, new HashSet<>());
@@ -1,15 +1,21 @@
 package q_learning.mdp;
 
 import aima.core.agent.Action;
-import aima.core.probability.mdp.ActionsFunction;
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import core.CheckpointStore;
+import q_learning.interfaces.QMarkovDecisionProcess;
+import q_learning.utils.EpisodeLog;
 import q_learning.utils.FullRun;
 import q_learning.utils.Pair;
 import q_learning.utils.Parameter;
 
 import java.io.*;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -23,7 +29,7 @@ public class QLearner<S extends Serializable, A extends Action & Serializable> {
     private static final Logger LOGGER = Logger.getLogger(QLearner.class.getName());
 
     // the markov decision process to use
-    private final MDP<S, A> mdp;
+    private final QMarkovDecisionProcess<S, A> mdp;
 
     // the Q-Learning agent
     private final QLearningAgent<S, A> agent;
@@ -38,6 +44,18 @@ public class QLearner<S extends Serializable, A extends Action & Serializable> {
     // The data to print to file
     private final List<FullRun<S,A>> runData = new ArrayList<>();
 
+    // The log the rewards of the episodes are streamed to, null = the rewards are kept in the run data
+    private EpisodeLog episodeLog;
+
+    // The store of the checkpoints of Q and N(s,a), null = no checkpoints
+    private CheckpointStore checkpoints;
+    // The number of episodes between two checkpoints
+    private int checkpointInterval;
+    // Writes the checkpoints in the background, the learning thread only takes the snapshots
+    private ExecutorService checkpointWriter;
+    // The checkpoint which is currently written
+    private Future<?> pendingCheckpoint;
+
     /**
      * This constructor initializes a QLearningAgent given the MDP it should base on and a number of parameters
      * used for the learning process.
@@ -49,12 +67,12 @@ public class QLearner<S extends Serializable, A extends Action & Serializable> {
      * @param loggingCount
      *      Every loggingCount iteration the logger will print the current iteration to the console.
      */
-    public QLearner(MDP<S, A> mdp, Parameter parameter, int loggingCount) {
+    public QLearner(QMarkovDecisionProcess<S, A> mdp, Parameter parameter, int loggingCount) {
         if (parameter == null)
             throw new IllegalArgumentException("Parameter are null");
 
         this.mdp = mdp;
-        this.agent = new QLearningAgent<>(mdp.getActionsFunction(), parameter);
+        this.agent = new QLearningAgent<>(mdp, parameter);
 
         this.random = new Random(parameter.getSeed());
         this.parameter = parameter;
@@ -78,104 +96,220 @@ public class QLearner<S extends Serializable, A extends Action & Serializable> {
     //              FUNCTIONALITY
     //##########################################################################
 
+    /**
+     * Streams the reward of every episode to the given log instead of keeping them in the run data, so the memory
+     * does not grow with the number of iterations. The run of an episode is the number of the runIterations call.
+     *
+     * @param episodeLog The log or null to keep the rewards in the run data
+     */
+    public void setEpisodeLog(EpisodeLog episodeLog) {
+        this.episodeLog = episodeLog;
+    }
+
+    /**
+     * Saves a checkpoint of Q and N(s,a) every checkpointInterval episodes and at the end of every run. The snapshot
+     * is taken by the learning thread and written by a background thread. If the previous checkpoint is still being
+     * written, the snapshot is skipped. A run resumes from its checkpoint, if it was saved with the same parameters,
+     * e.g. after the JVM died. Since Q is kept between runs, a resumed run also contains the learning of the runs
+     * before it and the runs before are finished instantly from their checkpoints.
+     *
+     * NOTE: The random generators are not part of a checkpoint, so a resumed run explores differently than an
+     * uninterrupted one. The episodes after the last checkpoint may be in the episode log twice.
+     *
+     * If the state IDs of the MDP are not stable (see QMarkovDecisionProcess.hasStableStateIds), checkpoints are
+     * disabled.
+     *
+     * @param checkpoints The store of the checkpoints, its fingerprint has to identify the MDP, or null to disable
+     *                    checkpoints
+     * @param checkpointInterval The number of episodes between two checkpoints
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    public void setCheckpoints(CheckpointStore checkpoints, int checkpointInterval) {
+        if (checkpointInterval < 1)
+            throw new IllegalArgumentException("The checkpoint interval must be positive.");
+        if (checkpoints != null && !mdp.hasStableStateIds()) {
+            LOGGER.warning("Checkpoints are disabled, the state IDs of the MDP depend on the order of discovery.");
+            checkpoints = null;
+        }
+        this.checkpoints = checkpoints;
+        this.checkpointInterval = checkpointInterval;
+        if (checkpoints != null && checkpointWriter == null) {
+            checkpointWriter = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "q-checkpoint-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * A snapshot of the learning after an episode of a run.
+     */
+    private static class QCheckpoint implements Serializable {
+        // the parameters of the run as JSON
+        private final String parameter;
+        // the number of episodes learned in the run
+        private final int episodes;
+        private final QTable table;
+
+        QCheckpoint(String parameter, int episodes, QTable table) {
+            this.parameter = parameter;
+            this.episodes = episodes;
+            this.table = table;
+        }
+    }
+
+    private String checkpointName() {
+        return "q-run" + runData.size();
+    }
+
+    /**
+     * Loads Q and N(s,a) from the checkpoint of the current run.
+     * @return The number of episodes of the run learned before the checkpoint or 0 if there is none
+     */
+    private int resumeFromCheckpoint() {
+        if (checkpoints == null)
+            return 0;
+        QCheckpoint checkpoint = checkpoints.load(checkpointName(), QCheckpoint.class);
+        if (checkpoint == null || !checkpoint.parameter.equals(new Gson().toJson(parameter)))
+            return 0;
+        try {
+            agent.setQTable(checkpoint.table);
+        } catch (IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "Ignoring checkpoint of another MDP", e);
+            return 0;
+        }
+        if (LOGGER.isLoggable(Level.INFO))
+            LOGGER.info(String.format("Resuming run %d at episode %d", runData.size(), checkpoint.episodes));
+        return checkpoint.episodes;
+    }
+
+    /**
+     * Takes a snapshot of Q and N(s,a) and writes it in the background.
+     * @param episodes The number of episodes of the run learned so far
+     * @param finished True at the end of a run, the snapshot is always taken and the method waits until it is written
+     */
+    private void saveCheckpoint(int episodes, boolean finished) {
+        if (pendingCheckpoint != null && !pendingCheckpoint.isDone()) {
+            if (!finished) {
+                LOGGER.fine("Skipping checkpoint, the previous one is still being written");
+                return;
+            }
+            awaitCheckpoint();
+        }
+        QCheckpoint checkpoint = new QCheckpoint(new Gson().toJson(parameter), episodes, agent.getQTable());
+        String name = checkpointName();
+        pendingCheckpoint = checkpointWriter.submit(() -> checkpoints.save(name, checkpoint));
+        if (finished)
+            awaitCheckpoint();
+    }
+
+    private void awaitCheckpoint() {
+        try {
+            pendingCheckpoint.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.WARNING, "Could not write checkpoint", e.getCause());
+        }
+    }
+
     /**
      * Runs the QLearningAgent
      */
     public void runIterations() {
-        List<Pair<Integer, Double>> accumulatedRewards = new ArrayList<>();
+        // the rewards are only kept if they are not streamed to the episode log
+        List<Pair<Integer, Double>> accumulatedRewards = episodeLog == null ? new ArrayList<>() : null;
+        int firstEpisode = resumeFromCheckpoint();
+        int episodes = parameter.getIterations() + parameter.getInitialStateIterations();
 
         // run the q learning agent
         // Each run is started from a random state and run until a final state is reached.
         // This is done x times as defined in the "for" below
-        for (int i = 0; i < parameter.getIterations(); i++) {
+        for (int i = firstEpisode; i < parameter.getIterations(); i++) {
             // get random initial state and an action
-            int item = random.nextInt(mdp.states().size());
-            S curState = null;
-            int counter = 0;
-            for (S state : mdp.states()) {
-                if (counter == item) {
-                    curState = state;
-                    break;
-                }
-                counter++;
-            }
+            int curState = randomStartState();
 
-            List<Double> curRewards = runSingleIteration(curState, i);
-            double sum = 0;
-            for (Double r : curRewards)
-                sum += r != null ? r : 0;
-            accumulatedRewards.add(new Pair<>(i, sum));
+            addEpisode(accumulatedRewards, i, runSingleIteration(curState, i));
         }
 
-        for (int i = parameter.getIterations(); i < parameter.getIterations() + parameter.getInitialStateIterations(); i++) {
-            S curState = mdp.getInitialState();
+        for (int i = Math.max(firstEpisode, parameter.getIterations()); i < episodes; i++) {
+            int curState = mdp.getInitialStateId();
 
-            List<Double> curRewards = runSingleIteration(curState, i);
-            double sum = 0;
-            for (Double r : curRewards)
-                sum += r != null ? r : 0;
-            accumulatedRewards.add(new Pair<>(i, sum));
+            addEpisode(accumulatedRewards, i, runSingleIteration(curState, i));
         }
+        if (episodeLog != null)
+            episodeLog.endRun();
+        if (checkpoints != null)
+            saveCheckpoint(episodes, true);
 
-        byte[] q = null;
+        QTable q = null;
         if (parameter.getSaveQ()) {
-            try (ByteArrayOutputStream bout = new ByteArrayOutputStream(); ObjectOutputStream oos = new ObjectOutputStream(bout)) {
-                oos.writeObject((HashMap) agent.getQ());
-                q = bout.toByteArray();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            if (mdp.hasStableStateIds())
+                q = agent.getQTable();
+            else
+                LOGGER.warning("Q is not saved, the state IDs of the MDP depend on the order of discovery.");
         }
 
         Parameter usedParams = agent.getParameters();
         List<Pair<S, A>> path = null;
         double reward = 0.0;
         try {
-            path = getPreferredPath(0);
-            for (Pair<S, A> pair : path) {
-                if (pair.getB() != null)
-                    reward += mdp.reward(pair.getA(), pair.getB(), mdp.stateTransition(pair.getA(), pair.getB()));
-                else
-                    reward += mdp.reward(pair.getA(), null, null);
+            List<int[]> pathIds = getPreferredPathIds(0);
+            for (int[] stateAction : pathIds) {
+                reward += mdp.reward(stateAction[0], stateAction[1]);
             }
+            path = toStateActionPairs(pathIds);
         } catch (Exception e) {
             LOGGER.warning("could not get preferred path..");
         }
         runData.add(new FullRun<>(usedParams, accumulatedRewards, path, reward, q));
     }
 
+    private void addEpisode(List<Pair<Integer, Double>> accumulatedRewards, int iteration, double reward) {
+        if (episodeLog != null) {
+            episodeLog.add(runData.size(), iteration, reward);
+        } else {
+            accumulatedRewards.add(new Pair<>(iteration, reward));
+        }
+        int episodes = iteration + 1;
+        if (checkpoints != null && episodes % checkpointInterval == 0
+                && episodes < parameter.getIterations() + parameter.getInitialStateIterations())
+            saveCheckpoint(episodes, false);
+    }
+
     /**
      * This method runs a single iteration on the given state. The iteration denotes the current iteration. It is
      * used for logging and is also passed to the Q-Learning-Agent for the calculation of epsilon.
      *
      * @param initialState The initial state of the sequence
      * @param iteration The current iteration
-     * @return The rewards gained for each action in the sequence
+     * @return The sum of the rewards gained for each action in the sequence
      */
-    private List<Double> runSingleIteration(S initialState, int iteration) {
-        S curState = initialState;
+    private double runSingleIteration(int initialState, int iteration) {
+        int curState = initialState;
         // run the simulation from curState until we reach a final state
-        A curAction;
+        int curAction;
 
-        List<Double> rewards = new ArrayList<>();
+        double rewards = 0.0;
         if (iteration % loggingCount == 0 && LOGGER.isLoggable(Level.INFO))
             LOGGER.info(String.format("Running iteration %d...%n", iteration));
 
         do {
             // get next action using q learning
-            curAction = agent.execute(curState, mdp, iteration);
+            curAction = agent.execute(curState, iteration);
 
-            S nextState = null;
+            int nextState = -1;
             // Do the action and set the new state
-            if (curAction != null) {
+            if (curAction >= 0) {
                 nextState = mdp.stateTransition(curState, curAction);
             }
 
-            rewards.add(mdp.reward(curState, curAction, nextState));
+            rewards += mdp.reward(curState, curAction);
 
             curState = nextState;
 
-        } while (curAction != null);
+        } while (curAction >= 0);
 
         return rewards;
     }
@@ -198,16 +332,23 @@ public class QLearner<S extends Serializable, A extends Action & Serializable> {
      * @return The best path in a list of the current state and action. If an action is null, it was a finalState.
      */
     public List<Pair<S, A>> getPreferredPath(int loopSize) throws Exception {
-        List<Pair<S, A>> actionStates = new ArrayList<>();
-        S curState = mdp.getInitialState();
-        A curAction;
-        Map<Pair<S, A>, Double> Q = agent.getQ();
+        return toStateActionPairs(getPreferredPathIds(loopSize));
+    }
+
+    /**
+     * Returns the best action path that was learned as pairs of state ID and action index, where the action index
+     * is -1 for a final state. See getPreferredPath.
+     */
+    private List<int[]> getPreferredPathIds(int loopSize) throws Exception {
+        List<int[]> actionStates = new ArrayList<>();
+        int curState = mdp.getInitialStateId();
+        int curAction;
 
         do {
-            curAction = maxAPrime(curState, mdp.getActionsFunction(), Q, mdp);
-            actionStates.add(new Pair<>(curState, curAction));
+            curAction = maxAPrime(curState);
+            actionStates.add(new int[]{curState, curAction});
 
-            if (curAction != null) {
+            if (curAction >= 0) {
                 curState = mdp.stateTransition(curState, curAction);
             } else {
                 if (!mdp.isFinalState(curState))
@@ -218,43 +359,71 @@ public class QLearner<S extends Serializable, A extends Action & Serializable> {
                 if (actionStates.size() - (i + 1) < 0)
                     break;
 
-                Pair<S, A> past = actionStates.get(actionStates.size() - (i + 1));
-                if (past.getA().equals(curState))
+                int[] past = actionStates.get(actionStates.size() - (i + 1));
+                if (past[0] == curState)
                     throw new Exception("Loop detected. Cancelling computation");
             }
-        } while (curAction != null);
+        } while (curAction >= 0);
 
         return actionStates;
     }
 
+    private List<Pair<S, A>> toStateActionPairs(List<int[]> pathIds) {
+        List<Pair<S, A>> actionStates = new ArrayList<>();
+        for (int[] stateAction : pathIds) {
+            A action = stateAction[1] >= 0 ? mdp.getAction(stateAction[0], stateAction[1]) : null;
+            actionStates.add(new Pair<>(mdp.getState(stateAction[0]), action));
+        }
+        return actionStates;
+    }
+
+    /**
+     * Returns the filename, or the filename with the first number added, for which no file with any of the given
+     * suffixes exists (e.g. runData, runData0, runData1, ...). This is how saveData avoids overriding old data.
+     *
+     * @param filename The filename/path without suffix
+     * @param suffixes The suffixes of the files, which are written with the returned name
+     * @return The unused filename
+     */
+    public static String unusedFilename(String filename, String... suffixes) {
+        String newFilename = filename;
+        int counter = 0;
+        while (anyExists(newFilename, suffixes)) {
+            newFilename = filename + counter;
+            counter++;
+        }
+        return newFilename;
+    }
+
+    private static boolean anyExists(String filename, String[] suffixes) {
+        for (String suffix : suffixes) {
+            if (new File(filename + suffix).exists())
+                return true;
+        }
+        return false;
+    }
+
     /**
-     * Saves the run data to a json file with the given file name. In case Q should be saved, it is saved to a
-     * second file with the same filename + QData + number. In the original save file, the Q will be exchanged with
-     * the number added at the end of the QData file, so it is clear which QData belongs to which run.
+     * Saves the run data to a json file with the given file name. In case Q should be saved, it is saved together
+     * with N(s,a) to a second binary file (see QTable) with the same filename + QData + number + .qtable. In the
+     * original save file, the Q will be exchanged with the number added at the end of the QData file, so it is clear
+     * which QData belongs to which run.
      * If the given filename already exists, a number will be added, so that old data is not overridden.
      *
      * @param filename The filename/path where to save the file to (.json is added automatically)
+     * @param mdpFingerprint The fingerprint of the MDP, which is stored in the QData files
      */
-    public void saveData(String filename) {
+    public void saveData(String filename, long mdpFingerprint) {
         try {
             String json = ".json";
-
-            String newFilename = filename;
-            int counter = 0;
-            while (new File(newFilename + json).exists()) {
-                newFilename = filename + counter;
-                counter++;
-            }
+            String newFilename = unusedFilename(filename, json);
 
             Gson gson = new Gson();
-            counter = 0;
+            int counter = 0;
             for (FullRun<S,A> run : runData) {
-                byte[] q = run.getQ();
+                QTable q = run.getQTable();
                 if (q != null) {
-                    Writer writer = new FileWriter(newFilename + "QData" + counter + json);
-                    gson.toJson(q, writer);
-                    writer.flush();
-                    writer.close();
+                    q.write(Paths.get(newFilename + "QData" + counter + ".qtable"), mdpFingerprint);
                     run.removeQ(counter);
                     counter++;
                 }
@@ -270,37 +439,35 @@ public class QLearner<S extends Serializable, A extends Action & Serializable> {
     }
 
     /**
-     * Loads data from the given filename (must include the .json).
-     *
-     * WARNING: This method needs a lot of memory as it is not written well. Expect to need more than 8 GB of ram to
-     * run this.
+     * Loads Q and N(s,a) from the given QData file (must include the .qtable), which was saved by saveData.
      *
-     * @param filename The filename (including .json)
+     * @param filename The filename (including .qtable)
+     * @param mdpFingerprint The fingerprint of the MDP, the file is not loaded if it was saved for another MDP or if
+     *                       the state IDs of the MDP are not stable
      */
-    public void loadData(String filename) {
-        byte[] qFileData = null;
+    public void loadData(String filename, long mdpFingerprint) {
+        if (!mdp.hasStableStateIds()) {
+            LOGGER.severe(String.format("Could not load Q File with filename %s, the state IDs of the MDP depend on the order of discovery.", filename));
+            return;
+        }
         try {
-            qFileData = new Gson().fromJson(new FileReader(filename), new TypeToken<byte[]>() {
-            }.getType());
-        } catch (IOException e) {
+            agent.setQTable(QTable.read(Paths.get(filename), mdpFingerprint));
+        } catch (IOException | IllegalArgumentException e) {
             e.printStackTrace();
-        }
-
-        if (qFileData == null) {
             LOGGER.severe(String.format("Could not load Q File with filename %s.", filename));
         }
+    }
 
-        Map<Pair<S, A>, Double> q = null;
-        try (ByteArrayInputStream streamIn = new ByteArrayInputStream(qFileData); ObjectInputStream objectinputstream = new ObjectInputStream(streamIn)) {
-            q = (HashMap<Pair<S, A>, Double>) objectinputstream.readObject();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        if (q != null) {
-            agent.setQ(q);
-        } else {
-            LOGGER.severe(String.format("Could not load latest Q with filename %s.", filename));
-        }
+    /**
+     * Returns a random state, which is not flagged as dead end. The initial state is never a dead end, so a state
+     * is always found.
+     */
+    private int randomStartState() {
+        int stateId;
+        do {
+            stateId = random.nextInt(mdp.stateCount());
+        } while (mdp.isDeadEnd(stateId));
+        return stateId;
     }
 
     /**
@@ -308,21 +475,19 @@ public class QLearner<S extends Serializable, A extends Action & Serializable> {
      * change is that not the reward is returned, but the action itself.
      *
      * This method returns the action with the highest value, which would be chosen from the given state.
-     * @param sPrime The state from which the best action should be returned
-     * @param actionsFunction All possible actions
-     * @param Q The utility Map from the QLearningAgent
-     * @return The action which would be chosen
+     * @param sPrime The ID of the state from which the best action should be returned
+     * @return The index of the action which would be chosen or -1
      */
-    private A maxAPrime(S sPrime, ActionsFunction<S, A> actionsFunction, Map<Pair<S, A>, Double> Q, MDP<S, A> mdp) {
+    private int maxAPrime(int sPrime) {
         double max = Double.NEGATIVE_INFINITY;
-        A action = null;
+        int action = -1;
         if (mdp.isFinalState(sPrime)) {
             // a terminal state
-            max = Q.get(new Pair<>(sPrime, null));
+            max = agent.getTerminalQ(sPrime);
         } else {
-            for (A aPrime : actionsFunction.actions(sPrime)) {
-                Double Q_sPrimeAPrime = Q.get(new Pair<>(sPrime, aPrime));
-                if (null != Q_sPrimeAPrime && Q_sPrimeAPrime > max) {
+            for (int aPrime = 0; aPrime < mdp.actionCount(sPrime); aPrime++) {
+                double Q_sPrimeAPrime = agent.getQ(sPrime, aPrime);
+                if (Q_sPrimeAPrime > max) {
                     max = Q_sPrimeAPrime;
                     action = aPrime;
                 }
@@ -330,7 +495,7 @@ public class QLearner<S extends Serializable, A extends Action & Serializable> {
         }
         if (max == Double.NEGATIVE_INFINITY) {
             // Assign 0 as the mimics Q being initialized to 0 up front.
-            action = null;
+            action = -1;
         }
         return action;
     }
@@ -4,8 +4,7 @@ import java.io.Serializable;
 import java.util.*;
 
 import aima.core.agent.Action;
-import aima.core.probability.mdp.ActionsFunction;
-import aima.core.util.FrequencyCounter;
+import q_learning.interfaces.QMarkovDecisionProcess;
 import q_learning.utils.Pair;
 import q_learning.utils.Parameter;
 import q_learning.abstracts.QReinforcementAgent;
@@ -72,35 +71,47 @@ import q_learning.abstracts.QReinforcementAgent;
  *
  */
 public class QLearningAgent<S extends Serializable, A extends Action & Serializable> extends QReinforcementAgent<S, A> {
-    // persistent: Q, a table of action values indexed by state and action,
-    // initially zero
-    private final Map<Pair<S, A>, Double> Q = new HashMap<>();
+    // persistent: Q, a table of action values indexed by state ID and action index,
+    // initially zero. NaN marks values which were not set yet. The tables grow with the states of
+    // the MDP, the row of a state is null until the state is visited.
+    private double[][] Q;
+    // Q[s,None] of the terminal states
+    private double[] terminalQ;
     // N<sub>sa</sub>, a table of frequencies for state-action pairs, initially
     // zero
-    private final FrequencyCounter<Pair<S, A>> Nsa = new FrequencyCounter<>();
-    // s,a,r, the previous state, action, and reward, initially null
-    private S s = null;
-    private A a = null;
-    private Double r = null;
-    // The actions per state, the parameters and a random generator
-    private final ActionsFunction<S, A> actionsFunction;
+    private int[][] Nsa;
+    // s,a,r, the previous state, action, and reward, initially -1, -1 and 0
+    private int s = -1;
+    private int a = -1;
+    private double r = 0.0;
+    // The markov decision process, the parameters and a random generator
+    private final QMarkovDecisionProcess<S, A> mdp;
     private Parameter parameter;
     private Random random;
 
     /**
      * Constructor.
      *
-     * @param actionsFunction
-     *            a function that lists the legal actions from a state.
+     * @param mdp
+     *            the markov decision process, which provides the actions of a state, the transitions and the
+     *            rewards.
      * @param parameter
      *            the parameters for the learning
      */
-    public QLearningAgent(ActionsFunction<S, A> actionsFunction, Parameter parameter) {
+    public QLearningAgent(QMarkovDecisionProcess<S, A> mdp, Parameter parameter) {
         if (parameter == null)
             throw new IllegalArgumentException("Parameters are null");
-        this.actionsFunction = actionsFunction;
+        this.mdp = mdp;
         this.parameter = parameter;
         this.random = new Random(parameter.getSeed());
+        this.Q = new double[mdp.stateCount()][];
+        this.terminalQ = new double[mdp.stateCount()];
+        this.Nsa = new int[mdp.stateCount()][];
+        for (int id = 0; id < mdp.stateCount(); id++) {
+            Q[id] = new double[mdp.actionCount(id)];
+            Nsa[id] = new int[mdp.actionCount(id)];
+        }
+        clearQ();
     }
 
     public void setParameter(Parameter parameter) {
@@ -121,45 +132,43 @@ public class QLearningAgent<S extends Serializable, A extends Action & Serializa
      * learn the transition model because the Q-value of a state can be related
      * directly to those of its neighbors.
      *
-     * @param state
-     *            the current state
-     * @param mdp
-     *            The markov decision process, which is used to get the reward for a state and an action
-     * @return an action
+     * @param stateId
+     *            the ID of the current state
+     * @return the index of an action or -1 if the state is a final state
      */
     @Override
-    public A execute(S state, MDP<S, A> mdp, int curIteration) {
-        S sPrime = state;
+    public int execute(int stateId, int curIteration) {
+        int sPrime = stateId;
+        ensureState(sPrime);
 
         // if TERMAINAL?(s') then Q[s',None] <- r'
         if (mdp.isFinalState(sPrime)) {
-            Q.put(new Pair<>(sPrime, null), mdp.reward(state,null, null));
+            terminalQ[sPrime] = mdp.reward(sPrime, -1);
         }
 
         // if s is not null then
-        if (null != s) {
+        if (s >= 0) {
             // increment N<sub>sa</sub>[s,a]
-            Pair<S, A> sa = new Pair<>(s, a);
-            Nsa.incrementFor(sa);
+            Nsa[s][a]++;
             // Q[s,a] <- Q[s,a] + &alpha;(N<sub>sa</sub>[s,a])(r +
             // &gamma;max<sub>a'</sub>Q[s',a'] - Q[s,a])
-            Double Q_sa = Q.get(sa);
-            if (null == Q_sa) {
+            double Q_sa = Q[s][a];
+            if (Double.isNaN(Q_sa)) {
                 Q_sa = 0.0;
             }
-            Q.put(sa, Q_sa + alpha(Nsa, s, a)
-                    * (r + parameter.getDiscountFactor() * maxAPrime(sPrime, mdp) - Q_sa));
+            Q[s][a] = Q_sa + alpha(s, a)
+                    * (r + parameter.getDiscountFactor() * maxAPrime(sPrime) - Q_sa);
         }
         // if s'.TERMINAL? then s,a,r <- null else
         // s,a,r <- s',argmax<sub>a'</sub>f(Q[s',a'],N<sub>sa</sub>[s',a']),r'
         if (mdp.isFinalState(sPrime)) {
-            s = null;
-            a = null;
-            r = null;
+            s = -1;
+            a = -1;
+            r = 0.0;
         } else {
             s = sPrime;
             a = argmaxAPrime(sPrime, curIteration);
-            r = mdp.reward(s, a, mdp.stateTransition(s, a));
+            r = mdp.reward(s, a);
         }
 
         // return a
@@ -171,11 +180,15 @@ public class QLearningAgent<S extends Serializable, A extends Action & Serializa
      */
     @Override
     public void reset() {
-        Q.clear();
-        Nsa.clear();
-        s = null;
-        a = null;
-        r = null;
+        clearQ();
+        for (int[] counts : Nsa) {
+            if (counts != null) {
+                Arrays.fill(counts, 0);
+            }
+        }
+        s = -1;
+        a = -1;
+        r = 0.0;
     }
 
     /**
@@ -187,11 +200,18 @@ public class QLearningAgent<S extends Serializable, A extends Action & Serializa
         // (AIMA3e pg. 843 - 21.6) :
         // U(s) = max<sub>a</sub>Q(s,a).
         Map<S, Double> U = new HashMap<>();
-        for (Pair<S, A> sa : Q.keySet()) {
-            Double q = Q.get(sa);
-            Double u = U.get(sa.getA());
-            if (null == u || u < q) {
-                U.put(sa.getA(), q);
+        for (int id = 0; id < Q.length; id++) {
+            if (Q[id] == null) {
+                continue;
+            }
+            double u = terminalQ[id];
+            for (double q : Q[id]) {
+                if (Double.isNaN(u) || u < q) {
+                    u = q;
+                }
+            }
+            if (!Double.isNaN(u)) {
+                U.put(mdp.getState(id), u);
             }
         }
 
@@ -199,19 +219,141 @@ public class QLearningAgent<S extends Serializable, A extends Action & Serializa
     }
 
     /**
-     * returns Q itself
+     * Returns Q(s,a) of the state with the given ID and the action with the given index or NaN if it was not set.
+     */
+    public double getQ(int stateId, int actionIndex) {
+        if (stateId >= Q.length || Q[stateId] == null) {
+            return Double.NaN;
+        }
+        return Q[stateId][actionIndex];
+    }
+
+    /**
+     * Returns Q(s,None) of the final state with the given ID or NaN if it was not set.
+     */
+    public double getTerminalQ(int stateId) {
+        if (stateId >= terminalQ.length) {
+            return Double.NaN;
+        }
+        return terminalQ[stateId];
+    }
+
+    /**
+     * returns Q as a map, where the action of a final state is null
      */
     public Map<Pair<S, A>, Double> getQ() {
-        return Q;
+        Map<Pair<S, A>, Double> map = new HashMap<>();
+        for (int id = 0; id < Q.length; id++) {
+            if (Q[id] == null) {
+                continue;
+            }
+            if (!Double.isNaN(terminalQ[id])) {
+                map.put(new Pair<>(mdp.getState(id), null), terminalQ[id]);
+            }
+            for (int i = 0; i < Q[id].length; i++) {
+                if (!Double.isNaN(Q[id][i])) {
+                    map.put(new Pair<>(mdp.getState(id), mdp.getAction(id, i)), Q[id][i]);
+                }
+            }
+        }
+        return map;
     }
 
     /**
-     * Loads a new Q
+     * Loads a new Q. Values of states or actions, which are not part of the MDP, are ignored.
      */
     public void setQ(Map<Pair<S, A>, Double> Q) {
-        this.Q.clear();
+        clearQ();
         for (Map.Entry<Pair<S, A>, Double> entry : Q.entrySet()) {
-            this.Q.put(entry.getKey(), entry.getValue());
+            int id = mdp.getStateId(entry.getKey().getA());
+            if (id < 0) {
+                continue;
+            }
+            ensureState(id);
+            A action = entry.getKey().getB();
+            if (action == null) {
+                terminalQ[id] = entry.getValue();
+                continue;
+            }
+            for (int i = 0; i < mdp.actionCount(id); i++) {
+                if (action.equals(mdp.getAction(id, i))) {
+                    this.Q[id][i] = entry.getValue();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of Q and N<sub>sa</sub> as dense table of all states of the MDP. Values of states which were not
+     * visited are NaN and 0.
+     */
+    public QTable getQTable() {
+        int stateCount = mdp.stateCount();
+        int[] actionOffsets = new int[stateCount + 1];
+        for (int id = 0; id < stateCount; id++) {
+            actionOffsets[id + 1] = actionOffsets[id] + mdp.actionCount(id);
+        }
+        double[] q = new double[actionOffsets[stateCount]];
+        double[] terminal = new double[stateCount];
+        int[] n = new int[actionOffsets[stateCount]];
+        Arrays.fill(q, Double.NaN);
+        for (int id = 0; id < stateCount; id++) {
+            terminal[id] = getTerminalQ(id);
+            if (id < Q.length && Q[id] != null) {
+                System.arraycopy(Q[id], 0, q, actionOffsets[id], Q[id].length);
+                System.arraycopy(Nsa[id], 0, n, actionOffsets[id], Nsa[id].length);
+            }
+        }
+        return new QTable(actionOffsets, q, terminal, n);
+    }
+
+    /**
+     * Loads Q and N<sub>sa</sub> from a table, which was learned on the same MDP.
+     *
+     * @throws IllegalArgumentException if the states or actions of the table do not match the MDP
+     */
+    public void setQTable(QTable table) {
+        if (table.stateCount() != mdp.stateCount())
+            throw new IllegalArgumentException("The Q table does not match the states of the MDP.");
+        for (int id = 0; id < table.stateCount(); id++) {
+            if (table.actionCount(id) != mdp.actionCount(id))
+                throw new IllegalArgumentException("The Q table does not match the actions of state " + id + ".");
+        }
+        for (int id = 0; id < table.stateCount(); id++) {
+            ensureState(id);
+            table.copyRow(id, Q[id], Nsa[id]);
+            terminalQ[id] = table.getTerminalQ(id);
+        }
+    }
+
+    private void clearQ() {
+        for (double[] values : Q) {
+            if (values != null) {
+                Arrays.fill(values, Double.NaN);
+            }
+        }
+        Arrays.fill(terminalQ, Double.NaN);
+    }
+
+    /**
+     * Makes room for the state with the given ID in the tables. The MDP may discover new states while learning (e.g.
+     * the LazyMDP), so the tables are doubled if the ID does not fit and the row of a state is created on its first
+     * visit.
+     */
+    private void ensureState(int id) {
+        if (id >= Q.length) {
+            int capacity = Math.max(id + 1, Q.length * 2);
+            int oldCapacity = terminalQ.length;
+            Q = Arrays.copyOf(Q, capacity);
+            Nsa = Arrays.copyOf(Nsa, capacity);
+            terminalQ = Arrays.copyOf(terminalQ, capacity);
+            Arrays.fill(terminalQ, oldCapacity, capacity, Double.NaN);
+        }
+        if (Q[id] == null) {
+            Q[id] = new double[mdp.actionCount(id)];
+            Arrays.fill(Q[id], Double.NaN);
+            Nsa[id] = new int[mdp.actionCount(id)];
         }
     }
 
@@ -261,16 +403,14 @@ public class QLearningAgent<S extends Serializable, A extends Action & Serializa
      * <br>
      * <b>Note:</b> override this method to obtain the desired behavior.
      *
-     * @param Nsa
-     *            a frequency counter of observed state action pairs.
      * @param s
-     *            the current state.
-     * @param a the current action.
+     *            the ID of the current state.
+     * @param a the index of the current action.
      * @return the learning rate to use based on the frequency of the state
      *         passed in.
      */
-    protected double alpha(FrequencyCounter<Pair<S, A>> Nsa, S s, A a) {
-        int count = Nsa.getCount(new Pair<>(s, a));
+    protected double alpha(int s, int a) {
+        int count = Nsa[s][a];
         double t = Math.min((double)count / (double)parameter.getLearningRateMaxCount(), 1.0);
         return conc(parameter.getLearningRateEndValue(), parameter.getLearningRateStartValue(), 0.0, parameter.getLearningRateSlope(), t);
     }
@@ -310,15 +450,14 @@ public class QLearningAgent<S extends Serializable, A extends Action & Serializa
         return u;
     }
 
-    private double maxAPrime(S sPrime, MDP<S, A> mdp) {
+    private double maxAPrime(int sPrime) {
         double max = Double.NEGATIVE_INFINITY;
         if (mdp.isFinalState(sPrime)) {
             // a terminal state
-            max = Q.get(new Pair<>(sPrime, null));
+            max = terminalQ[sPrime];
         } else {
-            for (A aPrime : actionsFunction.actions(sPrime)) {
-                Double Q_sPrimeAPrime = Q.get(new Pair<>(sPrime, aPrime));
-                if (null != Q_sPrimeAPrime && Q_sPrimeAPrime > max) {
+            for (double Q_sPrimeAPrime : Q[sPrime]) {
+                if (Q_sPrimeAPrime > max) {
                     max = Q_sPrimeAPrime;
                 }
             }
@@ -337,32 +476,23 @@ public class QLearningAgent<S extends Serializable, A extends Action & Serializa
      * Also in case multiple actions share the same utility, a random action from the actions with maximum utility
      * is selected.
      */
-    private A argmaxAPrime(S sPrime, int curIteration) {
-        A a = null;
+    private int argmaxAPrime(int sPrime, int curIteration) {
+        int a;
         if (random.nextDouble() < epsilon(curIteration)) {
             // choose random action
-            int item = random.nextInt(actionsFunction.actions(sPrime).size());
-            int i = 0;
-            for (A action : actionsFunction.actions(sPrime)) {
-                if (i == item) {
-                    a = action;
-                    break;
-                }
-                i++;
-            }
+            a = random.nextInt(Q[sPrime].length);
         } else {
             // choose best action by estimated utility
-            List<Pair<A, Double>> actionReward = new ArrayList<>();
-            for (A aPrime : actionsFunction.actions(sPrime)) {
-                Pair<S, A> sPrimeAPrime = new Pair<>(sPrime, aPrime);
-                double explorationValue = f(Q.get(sPrimeAPrime), Nsa
-                        .getCount(sPrimeAPrime));
+            List<Pair<Integer, Double>> actionReward = new ArrayList<>();
+            for (int aPrime = 0; aPrime < Q[sPrime].length; aPrime++) {
+                double Q_sPrimeAPrime = Q[sPrime][aPrime];
+                double explorationValue = f(Double.isNaN(Q_sPrimeAPrime) ? null : Q_sPrimeAPrime, Nsa[sPrime][aPrime]);
                 actionReward.add(new Pair<>(aPrime, explorationValue));
             }
             actionReward.sort(Comparator.comparing(Pair::getB, Collections.reverseOrder()));
             double max = actionReward.get(0).getB();
-            List<A> maxActions = new ArrayList<>();
-            for (Pair<A, Double> aReward : actionReward) {
+            List<Integer> maxActions = new ArrayList<>();
+            for (Pair<Integer, Double> aReward : actionReward) {
                 if (aReward.getB() < max - parameter.getError())
                     break;
                 maxActions.add(aReward.getA());
@@ -31,6 +31,17 @@ public class QStateTransition<S extends Serializable, A extends Action & Seriali
         transitions.put(new Pair<>(state, action), targetState);
     }
 
+    /**
+     * Checks whether a transition from the given origin state with the given action was set.
+     *
+     * @param state The origin state
+     * @param action The action
+     * @return true if the transition was set
+     */
+    public boolean hasTransition(S state, A action) {
+        return transitions.containsKey(new Pair<>(state, action));
+    }
+
     /**
      * Returns the state reached by doing the action on the given state. Throws an exception if the transition
      * was not set.
@@ -0,0 +1,175 @@
+package q_learning.mdp;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The learned values of a QLearningAgent as dense arrays indexed like the transitions of the MDP: the actions of
+ * state i are the entries actionOffsets[i] to actionOffsets[i + 1] - 1. Q values which were not set are NaN.
+ *
+ * A table is saved in a binary file, which is bound to the MDP it was learned on by the fingerprint of the MDP
+ * (e.g. MDPSerializer.getMDPFingerprint), since the state IDs and action indices are only valid for this MDP.
+ * All values are big endian:
+ * <pre>
+ * header:          MAGIC, VERSION (int), fingerprint (long), stateCount, transitionCount (int)
+ * action offsets:  stateCount + 1 ints
+ * Q:               transitionCount doubles, Q(s,a)
+ * terminal Q:      stateCount doubles, Q(s,None) of the final states
+ * N:               transitionCount ints, N(s,a)
+ * </pre>
+ */
+public class QTable implements Serializable {
+    public static final int MAGIC = 0x51544142;
+    public static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 * Integer.BYTES + Long.BYTES;
+
+    private final int[] actionOffsets;
+    private final double[] q;
+    private final double[] terminalQ;
+    private final int[] n;
+
+    /**
+     * @param actionOffsets - the offsets of the actions of every state and the number of transitions at the end
+     * @param q - Q(s,a) of every transition
+     * @param terminalQ - Q(s,None) of every state
+     * @param n - N(s,a) of every transition
+     * @throws IllegalArgumentException if the sizes of the arrays do not match the offsets
+     */
+    public QTable(int[] actionOffsets, double[] q, double[] terminalQ, int[] n) {
+        if (actionOffsets.length == 0 || actionOffsets[0] != 0
+                || q.length != actionOffsets[actionOffsets.length - 1] || n.length != q.length
+                || terminalQ.length != actionOffsets.length - 1)
+            throw new IllegalArgumentException("The sizes of the arrays do not match the action offsets.");
+        for (int i = 1; i < actionOffsets.length; i++) {
+            if (actionOffsets[i] < actionOffsets[i - 1])
+                throw new IllegalArgumentException("The action offsets are not ascending.");
+        }
+        this.actionOffsets = actionOffsets;
+        this.q = q;
+        this.terminalQ = terminalQ;
+        this.n = n;
+    }
+
+    public int stateCount() {
+        return terminalQ.length;
+    }
+
+    public int actionCount(int stateId) {
+        return actionOffsets[stateId + 1] - actionOffsets[stateId];
+    }
+
+    public double getQ(int stateId, int actionIndex) {
+        return q[actionOffsets[stateId] + actionIndex];
+    }
+
+    public double getTerminalQ(int stateId) {
+        return terminalQ[stateId];
+    }
+
+    public int getN(int stateId, int actionIndex) {
+        return n[actionOffsets[stateId] + actionIndex];
+    }
+
+    /**
+     * Copies Q(s,a) and N(s,a) of a state into the given rows.
+     */
+    void copyRow(int stateId, double[] qRow, int[] nRow) {
+        System.arraycopy(q, actionOffsets[stateId], qRow, 0, qRow.length);
+        System.arraycopy(n, actionOffsets[stateId], nRow, 0, nRow.length);
+    }
+
+    /**
+     * Writes the table.
+     * @param file - the file, it is overwritten
+     * @param fingerprint - the fingerprint of the MDP the table was learned on
+     * @throws IOException if the file can not be written
+     */
+    public void write(Path file, long fingerprint) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(stateCount());
+            out.writeInt(q.length);
+            for (int offset : actionOffsets) {
+                out.writeInt(offset);
+            }
+            for (double value : q) {
+                out.writeDouble(value);
+            }
+            for (double value : terminalQ) {
+                out.writeDouble(value);
+            }
+            for (int value : n) {
+                out.writeInt(value);
+            }
+        }
+    }
+
+    /**
+     * Reads a table by mapping the file into memory and copying the arrays in bulk.
+     * @param file - the file
+     * @param fingerprint - the fingerprint of the MDP the table has to belong to
+     * @return - the table
+     * @throws IOException if the file can not be read, is not a table of this version or belongs to another MDP
+     */
+    public static QTable read(Path file, long fingerprint) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC)
+                throw new IOException("Not a Q table file: " + file);
+            int version = buffer.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported Q table version " + version + ", expected " + VERSION);
+            if (buffer.getLong() != fingerprint)
+                throw new IOException("The Q table " + file + " was learned on another MDP");
+            int stateCount = buffer.getInt();
+            int transitionCount = buffer.getInt();
+            if (stateCount < 0 || transitionCount < 0 || buffer.remaining() != (stateCount + 1L) * Integer.BYTES
+                    + (long) transitionCount * (Double.BYTES + Integer.BYTES) + (long) stateCount * Double.BYTES)
+                throw new IOException("The Q table " + file + " is truncated");
+
+            int[] actionOffsets = new int[stateCount + 1];
+            buffer.asIntBuffer().get(actionOffsets);
+            buffer.position(buffer.position() + actionOffsets.length * Integer.BYTES);
+            double[] q = new double[transitionCount];
+            buffer.asDoubleBuffer().get(q);
+            buffer.position(buffer.position() + q.length * Double.BYTES);
+            double[] terminalQ = new double[stateCount];
+            buffer.asDoubleBuffer().get(terminalQ);
+            buffer.position(buffer.position() + terminalQ.length * Double.BYTES);
+            int[] n = new int[transitionCount];
+            buffer.asIntBuffer().get(n);
+            return new QTable(actionOffsets, q, terminalQ, n);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Invalid Q table " + file, e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        QTable qTable = (QTable) o;
+        return Arrays.equals(actionOffsets, qTable.actionOffsets) && Arrays.equals(q, qTable.q)
+                && Arrays.equals(terminalQ, qTable.terminalQ) && Arrays.equals(n, qTable.n);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(actionOffsets);
+        result = 31 * result + Arrays.hashCode(q);
+        result = 31 * result + Arrays.hashCode(terminalQ);
+        result = 31 * result + Arrays.hashCode(n);
+        return result;
+    }
+}
@@ -0,0 +1,71 @@
+package q_learning.mdp;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hands out a canonical instance and a dense int ID for every distinct state. IDs start with 0 and are assigned in
+ * the order the states are interned, so they can be used as array indices.
+ *
+ * @param <S> The state class
+ */
+public class StateInterner<S extends Serializable> implements Serializable {
+    private final Map<S, Integer> ids = new HashMap<>();
+    private final List<S> states = new ArrayList<>();
+
+    /**
+     * Returns the ID of the given state. If an equal state was not interned before, the given state becomes the
+     * canonical instance and gets the next free ID.
+     *
+     * @param state The state
+     * @return The ID of the state
+     */
+    public int intern(S state) {
+        Integer id = ids.get(state);
+        if (id == null) {
+            id = states.size();
+            ids.put(state, id);
+            states.add(state);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the ID of the given state without interning it.
+     *
+     * @param state The state
+     * @return The ID of the state or -1 if the state was not interned
+     */
+    public int getId(S state) {
+        Integer id = ids.get(state);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the canonical instance of the state with the given ID.
+     *
+     * @param id The ID of the state
+     * @return The canonical state
+     */
+    public S getState(int id) {
+        return states.get(id);
+    }
+
+    /**
+     * Returns all canonical states ordered by their ID.
+     */
+    public List<S> getStates() {
+        return Collections.unmodifiableList(states);
+    }
+
+    /**
+     * Returns the number of interned states.
+     */
+    public int size() {
+        return states.size();
+    }
+}
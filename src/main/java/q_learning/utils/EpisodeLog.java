@@ -0,0 +1,129 @@
+package q_learning.utils;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Streams the reward of every episode of the learning to an append-only CSV file with the columns
+ * run, episode and reward, so the memory needed does not grow with the number of episodes and the rewards of the
+ * episodes written so far are kept, if the learning crashes.
+ *
+ * With a sample interval greater than 1 the episodes are downsampled: one row is written for every sampleInterval
+ * episodes of a run, which contains the last episode and the mean reward of these episodes.
+ */
+public class EpisodeLog implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(EpisodeLog.class.getName());
+    private static final String HEADER = "run,episode,reward";
+    // number of rows after which the file is flushed
+    private static final int FLUSH_INTERVAL = 10000;
+
+    private final Path file;
+    private final BufferedWriter writer;
+    private final int sampleInterval;
+
+    private int run = -1;
+    private int lastEpisode;
+    private double sampleSum;
+    private int sampleCount;
+    private int unflushedRows;
+    private boolean failed;
+
+    /**
+     * Opens the file for appending. The header is written, if the file is new.
+     * @param file - the CSV file
+     * @param sampleInterval - number of episodes per row, 1 writes every episode
+     * @throws IOException if the file can not be opened
+     * @throws IllegalArgumentException if the sample interval is not positive
+     */
+    public EpisodeLog(Path file, int sampleInterval) throws IOException {
+        if (sampleInterval < 1)
+            throw new IllegalArgumentException("The sample interval must be positive.");
+        this.file = file;
+        this.sampleInterval = sampleInterval;
+        boolean newFile = !Files.exists(file) || Files.size(file) == 0;
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+        if (newFile) {
+            writer.write(HEADER);
+            writer.newLine();
+        }
+    }
+
+    /**
+     * Adds the reward of an episode. The episodes of a run have to be added in order.
+     * @param run - the number of the run
+     * @param episode - the number of the episode in the run
+     * @param reward - the accumulated reward of the episode
+     */
+    public void add(int run, int episode, double reward) {
+        if (run != this.run) {
+            endRun();
+            this.run = run;
+        }
+        lastEpisode = episode;
+        sampleSum += reward;
+        sampleCount++;
+        if (sampleCount == sampleInterval) {
+            writeSample();
+        }
+    }
+
+    /**
+     * Writes the remaining episodes of the current run and flushes the file.
+     */
+    public void endRun() {
+        if (sampleCount > 0) {
+            writeSample();
+        }
+        flush();
+    }
+
+    private void writeSample() {
+        if (!failed) {
+            try {
+                writer.write(String.format(Locale.ROOT, "%d,%d,%s", run, lastEpisode, sampleSum / sampleCount));
+                writer.newLine();
+            } catch (IOException e) {
+                fail(e);
+            }
+            if (++unflushedRows >= FLUSH_INTERVAL) {
+                flush();
+            }
+        }
+        sampleSum = 0.0;
+        sampleCount = 0;
+    }
+
+    private void flush() {
+        if (!failed) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+        unflushedRows = 0;
+    }
+
+    /**
+     * A failed write is logged and the following episodes are skipped, since the learning can go on without them.
+     */
+    private void fail(IOException e) {
+        failed = true;
+        LOGGER.log(Level.WARNING, "Could not write episodes to " + file + ", skipping the following episodes", e);
+    }
+
+    @Override
+    public void close() throws IOException {
+        endRun();
+        writer.close();
+    }
+}
@@ -1,33 +1,38 @@
 package q_learning.utils;
 
+import q_learning.mdp.QTable;
+
 import java.io.Serializable;
 import java.util.List;
 
 /**
  * This class stores a complete run of Q-Learning with all parameters, rewards, the policy, its reward and the learned
  * Q.
- * NOTE: This class is saved as a JSON file and therefore does not require getters.
+ * NOTE: This class is saved as a JSON file and therefore does not require getters. The learned Q is not part of the
+ * JSON, it is saved in its own file, whose number is stored instead. The rewards are null, if they were streamed to
+ * an EpisodeLog.
  */
 public class FullRun<S extends Serializable, A extends Serializable> {
     private final Parameter parameter;
     private final List<Pair<Integer, Double>> rewards;
     private final List<Pair<S, A>> policy;
     private final double policyReward;
-    private byte[] q;
+    private transient QTable qTable;
+    private Integer q;
 
     public FullRun(Parameter parameter, List<Pair<Integer, Double>> rewards, List<Pair<S, A>> policy, double policyReward,
-                   byte[] q) {
+                   QTable qTable) {
         this.parameter = parameter;
         this.rewards = rewards;
         this.policy = policy;
         this.policyReward = policyReward;
-        this.q = q;
+        this.qTable = qTable;
     }
 
-    public byte[] getQ() { return q; }
+    public QTable getQTable() { return qTable; }
 
     public void removeQ(int counter) {
-        q = new byte[1];
-        q[0] = (byte)(counter % 256);
+        qTable = null;
+        q = counter;
     }
 }
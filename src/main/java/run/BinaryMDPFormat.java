@@ -0,0 +1,362 @@
+package run;
+
+import core.AdversaryAction;
+import core.NodeAction;
+import core.State;
+import environment.NetworkNode;
+import q_learning.interfaces.QMarkovDecisionProcess;
+import q_learning.mdp.CompactMDP;
+import q_learning.mdp.MDP;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A versioned binary file format of the MDP, which is read in seconds instead of deserializing the whole object graph.
+ * All values are big endian. The file consists of a header and the following sections:
+ * <pre>
+ * header:          MAGIC, VERSION (int), fingerprint (long), stateCount, words, initialState, startState (-1 if none),
+ *                  actionCount, transitionCount (all int)
+ * actions:         the dictionary of the distinct node actions, each as the names of its action, actor and target
+ *                  (unsigned short length and UTF-8 bytes)
+ * states:          the packed facts (see StateEncoding) of every state by state ID, words longs per state
+ * action offsets:  stateCount + 1 ints, the actions of state i are the transitions actionOffsets[i] to
+ *                  actionOffsets[i + 1] - 1
+ * action IDs:      transitionCount ints, the index of the action of every transition in the dictionary
+ * targets:         transitionCount ints, the target state ID of every transition
+ * rewards:         transitionCount doubles, the reward of every transition
+ * final rewards:   stateCount doubles, the reward of every state if no action is taken
+ * final states:    (stateCount + 63) / 64 longs, a bitset of the final states
+ * dead ends:       (stateCount + 63) / 64 longs, a bitset of the states flagged as dead ends (see
+ *                  MDP.withDeadEndsFlagged)
+ * </pre>
+ * The states are read in compact mode, so the world has to be set up with the same StateEncoding before reading.
+ * The fingerprint identifies the world and settings the MDP was built for (see MDPSerializer.getMDPFingerprint), it
+ * is not checked when reading.
+ */
+public class BinaryMDPFormat {
+    public static final int MAGIC = 0x4D445042;
+    public static final int VERSION = 3;
+
+    private BinaryMDPFormat() {
+    }
+
+    /**
+     * Writes the MDP. The rewards of all transitions are computed while writing.
+     * @param mdp - the MDP, all its transitions have to be set
+     * @param file - the file, it is overwritten
+     * @param fingerprint - the fingerprint of the world and settings of the MDP
+     * @throws IOException if the file can not be written
+     * @throws IllegalArgumentException if a state can not be stored in compact mode
+     */
+    public static void write(QMarkovDecisionProcess<State, NodeAction> mdp, Path file, long fingerprint) throws IOException {
+        int stateCount = mdp.stateCount();
+        int words = Simulation.getStateEncoding().size() + 63 >>> 6;
+        Map<NodeAction, Integer> actionIds = new LinkedHashMap<>();
+        int transitionCount = 0;
+        int startState = -1;
+        for (int id = 0; id < stateCount; id++) {
+            for (int i = 0; i < mdp.actionCount(id); i++) {
+                actionIds.putIfAbsent(mdp.getAction(id, i), actionIds.size());
+            }
+            transitionCount += mdp.actionCount(id);
+            if (mdp.getState(id).isStartState())
+                startState = id;
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(stateCount);
+            out.writeInt(words);
+            out.writeInt(mdp.getInitialStateId());
+            out.writeInt(startState);
+            out.writeInt(actionIds.size());
+            out.writeInt(transitionCount);
+            for (NodeAction action : actionIds.keySet()) {
+                out.writeUTF(action.getAction().name());
+                out.writeUTF(action.getCurrentActor().name());
+                out.writeUTF(action.getTarget().name());
+            }
+            for (int id = 0; id < stateCount; id++) {
+                long[] facts = mdp.getState(id).getPackedFacts();
+                for (int word = 0; word < words; word++) {
+                    out.writeLong(facts[word]);
+                }
+            }
+            int offset = 0;
+            for (int id = 0; id < stateCount; id++) {
+                out.writeInt(offset);
+                offset += mdp.actionCount(id);
+            }
+            out.writeInt(offset);
+            for (int id = 0; id < stateCount; id++) {
+                for (int i = 0; i < mdp.actionCount(id); i++) {
+                    out.writeInt(actionIds.get(mdp.getAction(id, i)));
+                }
+            }
+            for (int id = 0; id < stateCount; id++) {
+                for (int i = 0; i < mdp.actionCount(id); i++) {
+                    out.writeInt(mdp.stateTransition(id, i));
+                }
+            }
+            for (int id = 0; id < stateCount; id++) {
+                for (int i = 0; i < mdp.actionCount(id); i++) {
+                    out.writeDouble(mdp.reward(id, i));
+                }
+            }
+            for (int id = 0; id < stateCount; id++) {
+                out.writeDouble(mdp.reward(id, -1));
+            }
+            BitSet finalStates = new BitSet(stateCount);
+            BitSet deadEnds = new BitSet(stateCount);
+            for (int id = 0; id < stateCount; id++) {
+                if (mdp.isFinalState(id))
+                    finalStates.set(id);
+                if (mdp.isDeadEnd(id))
+                    deadEnds.set(id);
+            }
+            writeBitSet(out, finalStates, stateCount);
+            writeBitSet(out, deadEnds, stateCount);
+        }
+    }
+
+    private static void writeBitSet(DataOutputStream out, BitSet bits, int size) throws IOException {
+        for (long word : Arrays.copyOf(bits.toLongArray(), (size + 63) >>> 6)) {
+            out.writeLong(word);
+        }
+    }
+
+    /**
+     * Reads a MDP. The rewards are the precomputed rewards of the file.
+     * @param file - the file
+     * @return - the MDP
+     * @throws IOException if the file can not be read or is not a MDP of this version and world
+     */
+    public static MDP<State, NodeAction> read(Path file) throws IOException {
+        Tables tables = readTables(file);
+        List<NodeAction> actions = new ArrayList<>(tables.actionIds.length);
+        for (int actionId : tables.actionIds) {
+            actions.add(tables.header.actions[actionId]);
+        }
+        try {
+            return MDP.fromTables(Arrays.asList(tables.states), tables.header.initialState, tables.actionOffsets,
+                    actions, tables.targets, tables.rewards, tables.finalRewards, tables.finalStates, tables.deadEnds);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid MDP in " + file, e);
+        }
+    }
+
+    /**
+     * Reads a MDP into a CompactMDP, which keeps the arrays of the file as they are.
+     * @param file - the file
+     * @return - the MDP
+     * @throws IOException if the file can not be read or is not a MDP of this version and world
+     */
+    public static CompactMDP<State, NodeAction> readCompact(Path file) throws IOException {
+        Tables tables = readTables(file);
+        try {
+            return CompactMDP.fromTables(Arrays.asList(tables.states), tables.header.initialState,
+                    tables.actionOffsets, Arrays.asList(tables.header.actions), tables.actionIds, tables.targets,
+                    tables.rewards, tables.finalRewards, tables.finalStates, tables.deadEnds);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid MDP in " + file, e);
+        }
+    }
+
+    private static Tables readTables(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        Tables tables = new Tables();
+        Header header = Header.read(buffer);
+        if (buffer.capacity() != header.fileSize())
+            throw new IOException("The MDP file " + file + " is truncated");
+        tables.header = header;
+
+        tables.states = new State[header.stateCount];
+        for (int id = 0; id < header.stateCount; id++) {
+            long[] facts = new long[header.words];
+            buffer.asLongBuffer().get(facts);
+            buffer.position(buffer.position() + header.words * Long.BYTES);
+            tables.states[id] = State.fromPackedFacts(facts, id == header.startState);
+        }
+        tables.actionOffsets = new int[header.stateCount + 1];
+        readInts(buffer, tables.actionOffsets);
+        tables.actionIds = new int[header.transitionCount];
+        readInts(buffer, tables.actionIds);
+        tables.targets = new int[header.transitionCount];
+        readInts(buffer, tables.targets);
+        tables.rewards = new double[header.transitionCount];
+        readDoubles(buffer, tables.rewards);
+        tables.finalRewards = new double[header.stateCount];
+        readDoubles(buffer, tables.finalRewards);
+        tables.finalStates = readBitSet(buffer, header.stateCount);
+        tables.deadEnds = readBitSet(buffer, header.stateCount);
+
+        for (int actionId : tables.actionIds) {
+            if (actionId < 0 || actionId >= header.actions.length)
+                throw new IOException("Invalid action ID " + actionId + " in " + file);
+        }
+        return tables;
+    }
+
+    /**
+     * The arrays of a MDP file.
+     */
+    private static class Tables {
+        Header header;
+        State[] states;
+        int[] actionOffsets;
+        int[] actionIds;
+        int[] targets;
+        double[] rewards;
+        double[] finalRewards;
+        BitSet finalStates;
+        BitSet deadEnds;
+    }
+
+    /**
+     * Reads only the fingerprint of a MDP file.
+     * @param file - the file
+     * @return - the fingerprint of the world and settings the MDP was built for
+     * @throws IOException if the file can not be read or is not a MDP file of this version
+     */
+    public static long readFingerprint(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not a binary MDP file");
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported MDP file version " + version + ", expected " + VERSION);
+            return in.readLong();
+        } catch (EOFException e) {
+            throw new IOException("Not a binary MDP file", e);
+        }
+    }
+
+    private static void readInts(ByteBuffer buffer, int[] values) {
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Integer.BYTES);
+    }
+
+    private static void readDoubles(ByteBuffer buffer, double[] values) {
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Double.BYTES);
+    }
+
+    private static BitSet readBitSet(ByteBuffer buffer, int size) {
+        long[] words = new long[(size + 63) >>> 6];
+        buffer.asLongBuffer().get(words);
+        buffer.position(buffer.position() + words.length * Long.BYTES);
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * The header and the action dictionary of a file. Reading it leaves the buffer at the start of the states.
+     */
+    static class Header {
+        final int stateCount;
+        final int words;
+        final int initialState;
+        final int startState;
+        final int transitionCount;
+        final NodeAction[] actions;
+        final long fingerprint;
+        // the position of the states section, the other sections follow it without gaps
+        final long statesOffset;
+
+        private Header(int stateCount, int words, int initialState, int startState, int transitionCount,
+                       NodeAction[] actions, long fingerprint, long statesOffset) {
+            this.stateCount = stateCount;
+            this.words = words;
+            this.initialState = initialState;
+            this.startState = startState;
+            this.transitionCount = transitionCount;
+            this.actions = actions;
+            this.fingerprint = fingerprint;
+            this.statesOffset = statesOffset;
+        }
+
+        long actionOffsetsOffset() {
+            return statesOffset + (long) stateCount * words * Long.BYTES;
+        }
+
+        long actionIdsOffset() {
+            return actionOffsetsOffset() + (stateCount + 1L) * Integer.BYTES;
+        }
+
+        long targetsOffset() {
+            return actionIdsOffset() + (long) transitionCount * Integer.BYTES;
+        }
+
+        long rewardsOffset() {
+            return targetsOffset() + (long) transitionCount * Integer.BYTES;
+        }
+
+        long finalRewardsOffset() {
+            return rewardsOffset() + (long) transitionCount * Double.BYTES;
+        }
+
+        long finalStatesOffset() {
+            return finalRewardsOffset() + (long) stateCount * Double.BYTES;
+        }
+
+        long deadEndsOffset() {
+            return finalStatesOffset() + ((stateCount + 63L) >>> 6) * Long.BYTES;
+        }
+
+        long fileSize() {
+            return deadEndsOffset() + ((stateCount + 63L) >>> 6) * Long.BYTES;
+        }
+
+        static Header read(ByteBuffer buffer) throws IOException {
+            if (buffer.remaining() < 8 * Integer.BYTES + Long.BYTES || buffer.getInt() != MAGIC)
+                throw new IOException("Not a binary MDP file");
+            int version = buffer.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported MDP file version " + version + ", expected " + VERSION);
+            long fingerprint = buffer.getLong();
+            int stateCount = buffer.getInt();
+            int words = buffer.getInt();
+            int initialState = buffer.getInt();
+            int startState = buffer.getInt();
+            int actionCount = buffer.getInt();
+            int transitionCount = buffer.getInt();
+            if (words != Simulation.getStateEncoding().size() + 63 >>> 6)
+                throw new IOException("The MDP file was written for another world");
+            if (stateCount < 1 || transitionCount < 0 || actionCount < 0 || initialState < 0 || initialState >= stateCount)
+                throw new IOException("Invalid MDP file header");
+            NodeAction[] actions = new NodeAction[actionCount];
+            try {
+                for (int i = 0; i < actionCount; i++) {
+                    AdversaryAction action = AdversaryAction.valueOf(readString(buffer));
+                    NetworkNode.TYPE actor = NetworkNode.TYPE.valueOf(readString(buffer));
+                    NetworkNode.TYPE target = NetworkNode.TYPE.valueOf(readString(buffer));
+                    actions[i] = new NodeAction(target, actor, action);
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Unknown action in MDP file", e);
+            } catch (BufferUnderflowException e) {
+                throw new IOException("The MDP file is truncated", e);
+            }
+            return new Header(stateCount, words, initialState, startState, transitionCount, actions, fingerprint,
+                    buffer.position());
+        }
+
+        private static String readString(ByteBuffer buffer) {
+            byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
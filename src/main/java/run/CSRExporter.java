@@ -0,0 +1,167 @@
+package run;
+
+import core.NodeAction;
+import core.State;
+import q_learning.interfaces.QMarkovDecisionProcess;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Exports the MDP as a bundle of files, which can be memory mapped by external numerical tools (e.g. numpy.memmap)
+ * without any Java specific decoding. The transitions are a sparse matrix in CSR layout with one row per state and
+ * one entry per action. All arrays are raw little endian files without a header, the suffix is the type of the values:
+ * <pre>
+ * manifest.txt       key=value lines: format, version, byteOrder, fingerprint, states, transitions, actions,
+ *                    initialState, words, facts
+ * row_ptr.i32        states + 1 ints, the entries of state i are row_ptr[i] to row_ptr[i + 1] - 1
+ * col_idx.i32        transitions ints, the target state of every entry
+ * action_idx.i32     transitions ints, the action of every entry (line in actions.tsv)
+ * reward.f64         transitions doubles, the reward of every entry
+ * final_reward.f64   states doubles, the reward of every state if no action is taken
+ * final.u8           states bytes, 1 for final states, 0 otherwise
+ * states.i64         states * words longs, the packed facts of every state, bit j of a state is
+ *                    (states[i * words + j / 64] >>> (j % 64)) & 1
+ * facts.txt          the name of every fact (bit) of the states, one per line
+ * actions.tsv        the action, actor and target of every action, one per line
+ * </pre>
+ * The state and action IDs are the same as in the MDP.
+ */
+public class CSRExporter {
+    public static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private CSRExporter() {
+    }
+
+    /**
+     * Exports the MDP into the given directory. Existing files of a bundle are overwritten.
+     * @param mdp - the MDP, all its transitions have to be set
+     * @param directory - the directory of the bundle, it is created if it does not exist
+     * @param fingerprint - the fingerprint of the world and settings of the MDP
+     * @throws IOException if a file can not be written
+     */
+    public static void export(QMarkovDecisionProcess<State, NodeAction> mdp, Path directory, long fingerprint) throws IOException {
+        Files.createDirectories(directory);
+        int stateCount = mdp.stateCount();
+        int words = Simulation.getStateEncoding().size() + 63 >>> 6;
+        Map<NodeAction, Integer> actionIds = new LinkedHashMap<>();
+        int transitionCount = 0;
+
+        try (Column rowPointers = new Column(directory.resolve("row_ptr.i32"));
+             Column finalRewards = new Column(directory.resolve("final_reward.f64"));
+             Column finalStates = new Column(directory.resolve("final.u8"));
+             Column states = new Column(directory.resolve("states.i64"))) {
+            for (int id = 0; id < stateCount; id++) {
+                rowPointers.putInt(transitionCount);
+                transitionCount += mdp.actionCount(id);
+                finalRewards.putDouble(mdp.reward(id, -1));
+                finalStates.putByte(mdp.isFinalState(id) ? 1 : 0);
+                long[] facts = mdp.getState(id).getPackedFacts();
+                for (int word = 0; word < words; word++) {
+                    states.putLong(facts[word]);
+                }
+            }
+            rowPointers.putInt(transitionCount);
+        }
+
+        try (Column columns = new Column(directory.resolve("col_idx.i32"));
+             Column actions = new Column(directory.resolve("action_idx.i32"));
+             Column rewards = new Column(directory.resolve("reward.f64"))) {
+            for (int id = 0; id < stateCount; id++) {
+                for (int i = 0; i < mdp.actionCount(id); i++) {
+                    Integer actionId = actionIds.putIfAbsent(mdp.getAction(id, i), actionIds.size());
+                    columns.putInt(mdp.stateTransition(id, i));
+                    actions.putInt(actionId == null ? actionIds.size() - 1 : actionId);
+                    rewards.putDouble(mdp.reward(id, i));
+                }
+            }
+        }
+
+        List<String> actionLines = new ArrayList<>();
+        for (NodeAction action : actionIds.keySet()) {
+            actionLines.add(action.getAction() + "\t" + action.getCurrentActor() + "\t" + action.getTarget());
+        }
+        Files.write(directory.resolve("actions.tsv"), actionLines, StandardCharsets.UTF_8);
+        List<String> facts = Simulation.getStateEncoding().factNames();
+        Files.write(directory.resolve("facts.txt"), facts, StandardCharsets.UTF_8);
+
+        // the manifest is written last, so a bundle with a manifest is complete
+        try (BufferedWriter manifest = Files.newBufferedWriter(directory.resolve("manifest.txt"), StandardCharsets.UTF_8)) {
+            manifest.write("format=mdp-csr\n");
+            manifest.write("version=" + VERSION + "\n");
+            manifest.write("byteOrder=" + ByteOrder.LITTLE_ENDIAN + "\n");
+            manifest.write("fingerprint=" + fingerprint + "\n");
+            manifest.write("states=" + stateCount + "\n");
+            manifest.write("transitions=" + transitionCount + "\n");
+            manifest.write("actions=" + actionIds.size() + "\n");
+            manifest.write("initialState=" + mdp.getInitialStateId() + "\n");
+            manifest.write("words=" + words + "\n");
+            manifest.write("facts=" + facts.size() + "\n");
+        }
+    }
+
+    /**
+     * Writes the values of a single array through a little endian buffer.
+     */
+    private static class Column implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        Column(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void putByte(int value) throws IOException {
+            ensureRemaining();
+            buffer.put((byte) value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensureRemaining();
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensureRemaining();
+            buffer.putLong(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensureRemaining();
+            buffer.putDouble(value);
+        }
+
+        private void ensureRemaining() throws IOException {
+            if (buffer.remaining() < Long.BYTES)
+                flush();
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -2,21 +2,27 @@ package run;
 
 import aima.core.probability.mdp.ActionsFunction;
 import core.AdversaryAction;
+import core.CheckpointStore;
 import core.NodeAction;
 import core.State;
+import core.StateSpace;
+import core.StateSpaceExplorer;
 import environment.NetworkNode;
+import q_learning.QLearnerNetwork;
 import q_learning.env_network.KnowledgeStateReward;
 import q_learning.interfaces.QActionsFunctionInterface;
 import q_learning.interfaces.StateReward;
+import q_learning.mdp.CompactMDP;
+import q_learning.mdp.LazyMDP;
 import q_learning.mdp.MDP;
+import q_learning.mdp.MDPBuilder;
 import q_learning.mdp.QActionsFunction;
 import q_learning.mdp.QStateTransition;
 
 import java.io.*;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,7 +30,24 @@ public class MDPSerializer {
     private static final Logger LOGGER = Logger.getLogger(MDPSerializer.class.getName());
 
     private static final String FILENAME = "mdp.ser";
+    private static final String BINARY_FILENAME = "mdp.bin";
+    //true = the MDP is stored in the binary format of BinaryMDPFormat, false = as serialized object in mdp.ser
+    public static final boolean BINARY_MDP_ENABLED = true;
+    // export the MDP as CSR bundle (see CSRExporter) whenever it is built
+    public static final boolean CSR_EXPORT_ENABLED = false;
+    private static final String CSR_DIRECTORY = "mdp_csr";
     public static final boolean FAILED_STATE_ENABLED = false;
+    //true = with partial order reduction the MDP is built from the reduced transitions of the state space,
+    //false = all actions of the states are executed again to build the MDP
+    public static final boolean REDUCED_TRANSITIONS_ENABLED = false;
+    //number of states, whose actions, transitions and rewards are cached by the lazy MDP
+    public static final int LAZY_MDP_CACHE_SIZE = 100000;
+    //true = states from which no final state can be reached are flagged, so they are not used as random start states
+    public static final boolean DEAD_END_FLAGGING_ENABLED = false;
+    //true = states from which no final state can be reached and the transitions into them are removed from the MDP
+    public static final boolean DEAD_END_REMOVAL_ENABLED = false;
+    //number of states, whose actions or transitions are generated between two possible checkpoints
+    private static final int CHECKPOINT_BATCH_SIZE = 4096;
 
     //set these values to include a honeypot
     private static final Set<NetworkNode.TYPE> actorsFailedTransition = Set.of(NetworkNode.TYPE.WEBSERVER, NetworkNode.TYPE.ADVERSARY, NetworkNode.TYPE.DATABASE);
@@ -35,17 +58,35 @@ public class MDPSerializer {
     private static final AdversaryAction zerodayAction = AdversaryAction.VALID_ACCOUNTS_VULN;
 
     public static void computeMDP(Set<State> stateSet){
+        computeMDP(stateSet, null);
+    }
+
+    /**
+     * Computes the MDP like computeMDP(Set), but saves the generated actions and transitions to the given checkpoints
+     * from time to time and after they are complete. If a checkpoint of the same world is found, the generation
+     * resumes from it.
+     * @param stateSet - all states
+     * @param checkpoints - store of the checkpoints or null to disable checkpoints
+     */
+    public static void computeMDP(Set<State> stateSet, CheckpointStore checkpoints){
+        writeMDP(generateMDP(stateSet, checkpoints));
+    }
+
+    /**
+     * Generates the MDP of computeMDP(Set, CheckpointStore) without writing it.
+     */
+    static MDP<State, NodeAction> generateMDP(Set<State> stateSet, CheckpointStore checkpoints){
         if (LOGGER.isLoggable(Level.INFO))
             LOGGER.info("Generating states...");
         HashMap<State, StateReward<State, NodeAction>> states = generateStates(stateSet);
 
         if (LOGGER.isLoggable(Level.INFO))
             LOGGER.info("Generating Actions...");
-        QActionsFunctionInterface<State, NodeAction> actions = generateActions(states);
+        QActionsFunctionInterface<State, NodeAction> actions = generateActions(states, checkpoints);
 
         if (LOGGER.isLoggable(Level.INFO))
             LOGGER.info("Generating Transitions...");
-        QStateTransition<State, NodeAction> transitions = generateTransitions(states, actions);
+        QStateTransition<State, NodeAction> transitions = generateTransitions(states, actions, checkpoints);
 
         if (LOGGER.isLoggable(Level.INFO))
             LOGGER.info("Generating final states...");
@@ -53,15 +94,265 @@ public class MDPSerializer {
 
         if (LOGGER.isLoggable(Level.INFO))
             LOGGER.info("Generating MDP...");
-        MDP<State, NodeAction> mdp = new MDP<>(states, State.getStartState(), actions, transitions, finalStates);
+        return new MDP<>(states, State.getStartState(), actions, transitions, finalStates);
+    }
+
+    /**
+     * Computes the MDP like computeMDP(Set), but takes the actions and transitions from the state space, where every
+     * action was executed once while exploring. The states, rewards, actions, transitions and final states (including
+     * the failed states) are collected in a single pass over the state space, so no action is executed again.
+     * If the state space was explored with partial order reduction, the MDP only contains one order of independent
+     * actions, which reduces the number of transitions.
+     * @param stateSpace - all states and their transitions
+     */
+    public static void computeMDP(StateSpace stateSpace){
+        if (LOGGER.isLoggable(Level.INFO))
+            LOGGER.info("Generating states, actions and transitions...");
+        MDPBuilder<State, NodeAction> builder = new MDPBuilder<>();
+        Set<NodeAction> failedNodeActions = getFailedNodeActions();
+        Set<NodeAction> zerodayTransitions = getZerodayTransitions();
+        for (State state : stateSpace.getStates()) {
+            builder.addState(state, new KnowledgeStateReward(state, failedNodeActions, zerodayTransitions), state.isFinalState());
+            for (Map.Entry<NodeAction, State> transition : stateSpace.getTransitions(state).entrySet()) {
+                builder.addTransition(state, transition.getKey(), transition.getValue());
+                if (FAILED_STATE_ENABLED && failedNodeActions.contains(transition.getKey()))
+                    builder.addFinalState(transition.getValue());
+            }
+        }
+
+        if (LOGGER.isLoggable(Level.INFO))
+            LOGGER.info("Generating MDP...");
+        writeMDP(builder.build(State.getStartState()));
+    }
+
+    /**
+     * Creates an MDP, which computes the actions, transitions and rewards of a state on its first visit instead of
+     * enumerating all states up front, so no mdp.ser has to be built. The actions of a state are ordered by action,
+     * actor and target, so they keep their indices if a state is computed again. All discovered states are kept by
+     * the MDP, so they are stored in compact mode if compact states are enabled in the simulation.
+     * NOTE: Failed states are not supported, since they depend on the transition leading to a state.
+     * @return - the lazy MDP starting in the start state
+     * @throws UnsupportedOperationException if failed states are enabled
+     */
+    public static LazyMDP<State, NodeAction> createLazyMDP(){
+        if (FAILED_STATE_ENABLED)
+            throw new UnsupportedOperationException("Failed states are not supported by the lazy MDP.");
+        Set<NodeAction> failedNodeActions = getFailedNodeActions();
+        Set<NodeAction> zerodayTransitions = getZerodayTransitions();
+        Comparator<NodeAction> order = Comparator.comparing(NodeAction::getAction)
+                .thenComparing(NodeAction::getCurrentActor)
+                .thenComparing(NodeAction::getTarget);
+        boolean compact = Simulation.isCompactStatesEnabled();
+        State startState = State.getStartState();
+        return new LazyMDP<>(compact ? startState.toCompact() : startState,
+                state -> {
+                    List<NodeAction> actions = new ArrayList<>(NodeAction.getAllActionPossibleWithChangeState(state.unpacked()));
+                    actions.sort(order);
+                    return actions;
+                },
+                (state, action) -> {
+                    State target = NodeAction.performNodeAction(action, state.unpacked());
+                    return compact ? target.toCompact() : target;
+                },
+                state -> new KnowledgeStateReward(state, failedNodeActions, zerodayTransitions),
+                State::isFinalState,
+                LAZY_MDP_CACHE_SIZE);
+    }
 
+    private static void writeMDP(MDP<State, NodeAction> mdp){
+        if (DEAD_END_REMOVAL_ENABLED || DEAD_END_FLAGGING_ENABLED)
+            mdp = pruneDeadEnds(mdp);
+
+        long fingerprint = getMDPFingerprint();
+        if (CSR_EXPORT_ENABLED) {
+            try {
+                CSRExporter.export(mdp, Paths.get(CSR_DIRECTORY), fingerprint);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (BINARY_MDP_ENABLED) {
+            try {
+                BinaryMDPFormat.write(mdp, Paths.get(BINARY_FILENAME), fingerprint);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
         try (FileOutputStream fout = new FileOutputStream(FILENAME); ObjectOutputStream oos = new ObjectOutputStream(fout)) {
+            oos.writeLong(fingerprint);
             oos.writeObject(mdp);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Computes a fingerprint of the world (see Simulation.getWorldFingerprint), of the layout of the packed states
+     * (see StateEncoding.factNames) and of the settings changing the MDP,
+     * i.e. the honeypot, the zero day, the transition and dead end settings and the settings and version of the
+     * rewards (see KnowledgeStateReward.VERSION), since the rewards are stored in the MDP file. It is stored in the
+     * MDP file to detect a MDP of another world or settings.
+     * NOTE: Other changes of the code do not change the fingerprint.
+     * @return - the fingerprint
+     */
+    public static long getMDPFingerprint(){
+        List<String> facts = new ArrayList<>();
+        facts.add("world|" + Simulation.getWorldFingerprint());
+        facts.add("stateEncoding|" + Simulation.fingerprint(Simulation.getStateEncoding().factNames()));
+        facts.add("failedState|" + FAILED_STATE_ENABLED);
+        facts.add("reducedTransitions|" + REDUCED_TRANSITIONS_ENABLED);
+        facts.add("deadEndFlagging|" + DEAD_END_FLAGGING_ENABLED);
+        facts.add("deadEndRemoval|" + DEAD_END_REMOVAL_ENABLED);
+        for (NetworkNode.TYPE actor : actorsFailedTransition) {
+            facts.add("honeypotActor|" + actor);
+        }
+        facts.add("honeypot|" + targetFailedTransition + "|" + failedAction);
+        facts.add("zeroday|" + zerodayTarget + "|" + zerodayAction);
+        facts.add("failedStateReward|" + QLearnerNetwork.FAILED_STATE_ENABLED);
+        facts.add("rewardVersion|" + KnowledgeStateReward.VERSION);
+        return Simulation.fingerprint(facts);
+    }
+
+    /**
+     * Reads the fingerprint stored in the MDP file.
+     * @return - the fingerprint or null if there is no readable MDP file
+     */
+    private static Long readMDPFingerprint(){
+        try {
+            if (BINARY_MDP_ENABLED)
+                return BinaryMDPFormat.readFingerprint(Paths.get(BINARY_FILENAME));
+            try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(FILENAME)))) {
+                return in.readLong();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Builds the MDP file, if there is none or if it was built for another world or settings (see
+     * getMDPFingerprint). Otherwise the cached MDP file is kept.
+     */
+    public static void ensureMDP(){
+        long fingerprint = getMDPFingerprint();
+        Long cached = readMDPFingerprint();
+        if (cached != null && cached == fingerprint) {
+            if (LOGGER.isLoggable(Level.INFO))
+                LOGGER.info("Using cached MDP " + (BINARY_MDP_ENABLED ? BINARY_FILENAME : FILENAME));
+            return;
+        }
+        if (LOGGER.isLoggable(Level.INFO))
+            LOGGER.info(cached == null ? "No cached MDP found, building MDP..."
+                    : "Cached MDP was built for another world or settings, building MDP...");
+        Simulation.buildMDP();
+    }
+
+    /**
+     * Loads the MDP written by computeMDP, from mdp.bin or mdp.ser depending on BINARY_MDP_ENABLED. The MDP is built
+     * first, if the file does not match the world and settings (see ensureMDP).
+     * The world has to be set up before.
+     * @return - the MDP or null if it could not be loaded
+     */
+    public static MDP<State, NodeAction> loadMDP(){
+        ensureMDP();
+        if (BINARY_MDP_ENABLED) {
+            try {
+                return BinaryMDPFormat.read(Paths.get(BINARY_FILENAME));
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+        try (FileInputStream streamIn = new FileInputStream(FILENAME); ObjectInputStream objectinputstream = new ObjectInputStream(streamIn)) {
+            objectinputstream.readLong();
+            //the file only holds the MDP written by writeMDP
+            @SuppressWarnings("unchecked")
+            MDP<State, NodeAction> mdp = (MDP<State, NodeAction>) objectinputstream.readObject();
+            return mdp;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Loads the mdp.bin written by computeMDP into a CompactMDP. The MDP is built first, if the file does not match
+     * the world and settings (see ensureMDP). The world has to be set up before.
+     * @return - the MDP or null if it could not be loaded
+     * @throws UnsupportedOperationException if BINARY_MDP_ENABLED is false
+     */
+    public static CompactMDP<State, NodeAction> loadCompactMDP(){
+        if (!BINARY_MDP_ENABLED)
+            throw new UnsupportedOperationException("Only the binary MDP file can be loaded into a CompactMDP.");
+        ensureMDP();
+        try {
+            return BinaryMDPFormat.readCompact(Paths.get(BINARY_FILENAME));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Maps the mdp.bin written by computeMDP read-only into memory, see MappedMDP. The MDP is built first, if the file
+     * does not match the world and settings (see ensureMDP). The world has to be set up before.
+     * @return - the MDP or null if it could not be mapped
+     * @throws UnsupportedOperationException if BINARY_MDP_ENABLED is false
+     */
+    public static MappedMDP openMappedMDP(){
+        if (!BINARY_MDP_ENABLED)
+            throw new UnsupportedOperationException("Only the binary MDP file can be mapped.");
+        ensureMDP();
+        try {
+            return new MappedMDP(Paths.get(BINARY_FILENAME));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Exports the MDP as CSR bundle for external tools, see CSRExporter. The MDP is built first, if the cached file
+     * does not match the world and settings (see ensureMDP). The world has to be set up before.
+     * @param directory - the directory of the bundle
+     * @throws IOException if the MDP can not be loaded or the bundle can not be written
+     */
+    public static void exportCSR(Path directory) throws IOException {
+        MDP<State, NodeAction> mdp = loadMDP();
+        if (mdp == null)
+            throw new IOException("The MDP could not be loaded");
+        CSRExporter.export(mdp, directory, getMDPFingerprint());
+    }
+
+    /**
+     * Removes or flags the states of the MDP, from which no final state can be reached, and logs how much of the MDP
+     * is affected.
+     * @param mdp - the MDP
+     * @return - the MDP without or with flagged dead ends
+     */
+    private static MDP<State, NodeAction> pruneDeadEnds(MDP<State, NodeAction> mdp){
+        if (LOGGER.isLoggable(Level.INFO))
+            LOGGER.info("Finding dead ends...");
+        if (DEAD_END_REMOVAL_ENABLED) {
+            MDP<State, NodeAction> pruned = mdp.withDeadEndsRemoved();
+            int removedStates = mdp.stateCount() - pruned.stateCount();
+            int removedTransitions = mdp.transitionCount() - pruned.transitionCount();
+            LOGGER.info(String.format("Removed %d of %d states (%.1f%%) and %d of %d transitions (%.1f%%), which can not reach a final state",
+                    removedStates, mdp.stateCount(), 100.0 * removedStates / mdp.stateCount(),
+                    removedTransitions, mdp.transitionCount(), 100.0 * removedTransitions / Math.max(1, mdp.transitionCount())));
+            return pruned;
+        }
+        MDP<State, NodeAction> flagged = mdp.withDeadEndsFlagged();
+        int deadEnds = 0;
+        for (int id = 0; id < flagged.stateCount(); id++) {
+            if (flagged.isDeadEnd(id))
+                deadEnds++;
+        }
+        LOGGER.info(String.format("Flagged %d of %d states (%.1f%%), which can not reach a final state",
+                deadEnds, mdp.stateCount(), 100.0 * deadEnds / mdp.stateCount()));
+        return flagged;
+    }
 
     /**
      * Initializes the states
@@ -82,24 +373,95 @@ public class MDPSerializer {
      * @param states The states possible
      * @return An ActionFunction, which returns all possible actions per state
      */
-    private static QActionsFunctionInterface<State, NodeAction> generateActions(Map<State, StateReward<State, NodeAction>> states) {
-        QActionsFunction<State, NodeAction> actions = new QActionsFunction(states);
-        for (State state : states.keySet()) {
-            for (NodeAction nodeAction : NodeAction.getAllActionPossibleWithChangeState(state)) {
-                actions.addAction(state, nodeAction);
+    private static QActionsFunctionInterface<State, NodeAction> generateActions(Map<State, StateReward<State, NodeAction>> states,
+                                                                               CheckpointStore checkpoints) {
+        //the actions of the states are computed in parallel, but added in the order of the states
+        List<State> stateList = new ArrayList<>(states.keySet());
+        GenerationCheckpoint<QActionsFunction<State, NodeAction>> checkpoint = loadCheckpoint(checkpoints, "actions", stateList.size());
+        if (checkpoint == null) {
+            checkpoint = new GenerationCheckpoint<>(new QActionsFunction<>(states), stateList.size());
+        }
+        try (StateSpaceExplorer explorer = new StateSpaceExplorer(Simulation.getExplorationThreads())) {
+            while (checkpoint.generated < stateList.size()) {
+                List<State> batch = stateList.subList(checkpoint.generated, Math.min(checkpoint.generated + CHECKPOINT_BATCH_SIZE, stateList.size()));
+                List<Set<NodeAction>> possibleActions = explorer.map(batch,
+                        state -> NodeAction.getAllActionPossibleWithChangeState(state.unpacked()));
+                for (int i = 0; i < batch.size(); i++) {
+                    for (NodeAction nodeAction : possibleActions.get(i)) {
+                        checkpoint.result.addAction(batch.get(i), nodeAction);
+                    }
+                }
+                checkpoint.generated += batch.size();
+                saveCheckpoint(checkpoints, "actions", checkpoint);
             }
         }
-        return actions;
+        return checkpoint.result;
     }
 
-    private static QStateTransition<State, NodeAction> generateTransitions(Map<State,StateReward<State, NodeAction>> states, ActionsFunction<State, NodeAction> actions) {
-        QStateTransition<State, NodeAction> transition = new QStateTransition<>();
-        for (State state : states.keySet()) {
-            for (NodeAction action : actions.actions(state)) {
-                transition.addTransition(state, action, NodeAction.performNodeAction(action,state));
+    private static QStateTransition<State, NodeAction> generateTransitions(Map<State,StateReward<State, NodeAction>> states,
+                                                                           ActionsFunction<State, NodeAction> actions,
+                                                                           CheckpointStore checkpoints) {
+        List<State> stateList = new ArrayList<>(states.keySet());
+        GenerationCheckpoint<QStateTransition<State, NodeAction>> checkpoint = loadCheckpoint(checkpoints, "transitions", stateList.size());
+        if (checkpoint == null) {
+            checkpoint = new GenerationCheckpoint<>(new QStateTransition<>(), stateList.size());
+        }
+        try (StateSpaceExplorer explorer = new StateSpaceExplorer(Simulation.getExplorationThreads())) {
+            while (checkpoint.generated < stateList.size()) {
+                List<State> batch = stateList.subList(checkpoint.generated, Math.min(checkpoint.generated + CHECKPOINT_BATCH_SIZE, stateList.size()));
+                List<Map<NodeAction, State>> successors = explorer.map(batch, state -> {
+                    Map<NodeAction, State> performed = new LinkedHashMap<>();
+                    State unpacked = state.unpacked();
+                    for (NodeAction action : actions.actions(state)) {
+                        //the targets are kept in the mode of the states, so they are compared without decoding
+                        State target = NodeAction.performNodeAction(action, unpacked);
+                        performed.put(action, state.isCompact() ? target.toCompact() : target);
+                    }
+                    return performed;
+                });
+                for (int i = 0; i < batch.size(); i++) {
+                    for (Map.Entry<NodeAction, State> successor : successors.get(i).entrySet()) {
+                        checkpoint.result.addTransition(batch.get(i), successor.getKey(), successor.getValue());
+                    }
+                }
+                checkpoint.generated += batch.size();
+                saveCheckpoint(checkpoints, "transitions", checkpoint);
             }
         }
-        return transition;
+        return checkpoint.result;
+    }
+
+    /**
+     * The actions or transitions of the first generated states. The states are generated in the order of the state
+     * map, which is the same in every JVM, since the hash codes of states do not depend on the JVM.
+     */
+    private static class GenerationCheckpoint<T extends Serializable> implements Serializable {
+        private final T result;
+        private final int stateCount;
+        private int generated;
+
+        GenerationCheckpoint(T result, int stateCount) {
+            this.result = result;
+            this.stateCount = stateCount;
+        }
+    }
+
+    private static <T extends Serializable> GenerationCheckpoint<T> loadCheckpoint(CheckpointStore checkpoints, String name, int stateCount) {
+        if (checkpoints == null)
+            return null;
+        //the type of the result is not stored, but every name is only saved with one type
+        @SuppressWarnings("unchecked")
+        GenerationCheckpoint<T> checkpoint = checkpoints.load(name, GenerationCheckpoint.class);
+        if (checkpoint != null && checkpoint.stateCount != stateCount) {
+            LOGGER.info(String.format("Ignoring checkpoint %s of %d states", name, checkpoint.stateCount));
+            return null;
+        }
+        return checkpoint;
+    }
+
+    private static void saveCheckpoint(CheckpointStore checkpoints, String name, GenerationCheckpoint<?> checkpoint) {
+        if (checkpoints != null && (checkpoint.generated == checkpoint.stateCount || checkpoints.isDue()))
+            checkpoints.save(name, checkpoint);
     }
 
     private static Set<State> getFailedStates(Map<State,StateReward<State, NodeAction>> states, ActionsFunction<State, NodeAction> actions){
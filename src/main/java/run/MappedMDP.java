@@ -0,0 +1,300 @@
+package run;
+
+import aima.core.probability.mdp.ActionsFunction;
+import core.NodeAction;
+import core.State;
+import core.StateEncoding;
+import q_learning.interfaces.QMarkovDecisionProcess;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A read-only view of a MDP file of the BinaryMDPFormat, which maps the file into memory instead of reading it.
+ * The actions, transitions and rewards are read from the file when they are accessed, states are only decoded when
+ * asked for. So opening the MDP takes no time and almost no heap, and several JVMs learning on the same MDP share
+ * the page cache of the file instead of holding a copy each.
+ *
+ * The only data kept on the heap is the action dictionary and, once getStateId is called, an index of the states
+ * (one int per state).
+ *
+ * NOTE: The world has to be set up with the same StateEncoding before the file is opened. The file must not be
+ * modified while it is mapped.
+ */
+public class MappedMDP implements QMarkovDecisionProcess<State, NodeAction> {
+    // a MappedByteBuffer can not be larger than 2 GB, so the file is mapped in chunks of 1 GB, each overlapping the
+    // next by one long, so every value can be read from a single chunk
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+    private final MappedByteBuffer[] chunks;
+    private final BinaryMDPFormat.Header header;
+    private final Map<NodeAction, Integer> actionIds = new HashMap<>();
+    private final long actionOffsets;
+    private final long actionIdsOffset;
+    private final long targets;
+    private final long rewards;
+    private final long finalRewards;
+    private final long finalStates;
+    private final long deadEnds;
+
+    // open addressing table of the state IDs by the fingerprint of their packed facts, -1 = empty
+    private int[] index;
+
+    /**
+     * Maps a MDP file.
+     * @param file - the file written by BinaryMDPFormat.write
+     * @throws IOException if the file can not be read or is not a MDP of this version and world
+     */
+    public MappedMDP(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            chunks = new MappedByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_BITS)];
+            for (int i = 0; i < chunks.length; i++) {
+                long position = (long) i << CHUNK_BITS;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(CHUNK_MASK + 1 + Long.BYTES, size - position));
+            }
+            if (chunks.length == 0)
+                throw new IOException("Not a binary MDP file");
+            header = BinaryMDPFormat.Header.read(chunks[0].duplicate());
+            if (size != header.fileSize())
+                throw new IOException("The MDP file " + file + " is truncated");
+        }
+        for (int i = 0; i < header.actions.length; i++) {
+            actionIds.put(header.actions[i], i);
+        }
+        actionOffsets = header.actionOffsetsOffset();
+        actionIdsOffset = header.actionIdsOffset();
+        targets = header.targetsOffset();
+        rewards = header.rewardsOffset();
+        finalRewards = header.finalRewardsOffset();
+        finalStates = header.finalStatesOffset();
+        deadEnds = header.deadEndsOffset();
+    }
+
+    private int getInt(long position) {
+        return chunks[(int) (position >>> CHUNK_BITS)].getInt((int) (position & CHUNK_MASK));
+    }
+
+    private long getLong(long position) {
+        return chunks[(int) (position >>> CHUNK_BITS)].getLong((int) (position & CHUNK_MASK));
+    }
+
+    private double getDouble(long position) {
+        return chunks[(int) (position >>> CHUNK_BITS)].getDouble((int) (position & CHUNK_MASK));
+    }
+
+    private long stateOffset(int stateId) {
+        return header.statesOffset + (long) stateId * header.words * Long.BYTES;
+    }
+
+    private int firstTransition(int stateId) {
+        return getInt(actionOffsets + (long) stateId * Integer.BYTES);
+    }
+
+    private int knownStateId(State state) {
+        int id = getStateId(state);
+        if (id < 0)
+            throw new IllegalArgumentException("The state is not a state of the MDP.");
+        return id;
+    }
+
+    private int actionIndex(int stateId, NodeAction action) {
+        Integer actionId = actionIds.get(action);
+        if (actionId != null) {
+            int first = firstTransition(stateId);
+            int count = actionCount(stateId);
+            for (int i = 0; i < count; i++) {
+                if (getInt(actionIdsOffset + (long) (first + i) * Integer.BYTES) == actionId)
+                    return i;
+            }
+        }
+        throw new IllegalArgumentException("No state action pair set.");
+    }
+
+    /**
+     * Builds the index of the states on first use.
+     */
+    private synchronized int[] index() {
+        if (index == null) {
+            int[] table = new int[Integer.highestOneBit(Math.max(1, header.stateCount) * 2 - 1) * 2];
+            Arrays.fill(table, -1);
+            long[] facts = new long[header.words];
+            for (int id = 0; id < header.stateCount; id++) {
+                long offset = stateOffset(id);
+                for (int word = 0; word < header.words; word++) {
+                    facts[word] = getLong(offset + (long) word * Long.BYTES);
+                }
+                int slot = (int) StateEncoding.fingerprint(facts) & (table.length - 1);
+                while (table[slot] >= 0) {
+                    slot = (slot + 1) & (table.length - 1);
+                }
+                table[slot] = id;
+            }
+            index = table;
+        }
+        return index;
+    }
+
+    @Override
+    public ActionsFunction<State, NodeAction> getActionsFunction() {
+        return this::actions;
+    }
+
+    @Override
+    public State stateTransition(State state, NodeAction action) {
+        int id = knownStateId(state);
+        return getState(stateTransition(id, actionIndex(id, action)));
+    }
+
+    /**
+     * Returns all states ordered by their ID. This decodes every state of the file onto the heap.
+     */
+    @Override
+    public Set<State> states() {
+        Set<State> states = new LinkedHashSet<>();
+        for (int id = 0; id < header.stateCount; id++) {
+            states.add(getState(id));
+        }
+        return Collections.unmodifiableSet(states);
+    }
+
+    @Override
+    public State getInitialState() {
+        return getState(header.initialState);
+    }
+
+    @Override
+    public Set<NodeAction> actions(State state) {
+        int id = knownStateId(state);
+        Set<NodeAction> actions = new LinkedHashSet<>();
+        for (int i = 0; i < actionCount(id); i++) {
+            actions.add(getAction(id, i));
+        }
+        return Collections.unmodifiableSet(actions);
+    }
+
+    /**
+     * Returns a laplacian probability for the given state.
+     */
+    @Override
+    public double transitionProbability(State sDelta, State state, NodeAction action) {
+        return 1.0 / (double) actionCount(knownStateId(state));
+    }
+
+    /**
+     * This method is unsupported and not used by the QLearningAgent. Instead use the reward(state, action, targetState)
+     * method.
+     */
+    @Override
+    public double reward(State state) {
+        throw new UnsupportedOperationException("State, action and target action are required. Use reward(state, action, targetState) instead.");
+    }
+
+    /**
+     * Returns the stored reward of the transition. Since the MDP is deterministic, the target state is not needed.
+     * If the action or the target state is null, the reward of the state without an action is returned.
+     */
+    @Override
+    public double reward(State state, NodeAction action, State targetState) {
+        int id = knownStateId(state);
+        if (action == null || targetState == null)
+            return reward(id, -1);
+        return reward(id, actionIndex(id, action));
+    }
+
+    @Override
+    public boolean isFinalState(State state) {
+        int id = getStateId(state);
+        return id >= 0 && isFinalState(id);
+    }
+
+    @Override
+    public int stateCount() {
+        return header.stateCount;
+    }
+
+    @Override
+    public int getInitialStateId() {
+        return header.initialState;
+    }
+
+    @Override
+    public int getStateId(State state) {
+        long[] facts = state.getPackedFacts();
+        int[] table = index();
+        int slot = (int) StateEncoding.fingerprint(facts) & (table.length - 1);
+        while (table[slot] >= 0) {
+            long offset = stateOffset(table[slot]);
+            boolean equal = true;
+            for (int word = 0; word < header.words && equal; word++) {
+                equal = getLong(offset + (long) word * Long.BYTES) == facts[word];
+            }
+            if (equal)
+                return table[slot];
+            slot = (slot + 1) & (table.length - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Decodes the state with the given ID. Every call returns a new State.
+     */
+    @Override
+    public State getState(int stateId) {
+        if (stateId < 0 || stateId >= header.stateCount)
+            throw new IndexOutOfBoundsException("Invalid state ID " + stateId);
+        long[] facts = new long[header.words];
+        long offset = stateOffset(stateId);
+        for (int word = 0; word < header.words; word++) {
+            facts[word] = getLong(offset + (long) word * Long.BYTES);
+        }
+        return State.fromPackedFacts(facts, stateId == header.startState);
+    }
+
+    @Override
+    public int actionCount(int stateId) {
+        return firstTransition(stateId + 1) - firstTransition(stateId);
+    }
+
+    @Override
+    public NodeAction getAction(int stateId, int actionIndex) {
+        return header.actions[getInt(actionIdsOffset + (long) transition(stateId, actionIndex) * Integer.BYTES)];
+    }
+
+    @Override
+    public int stateTransition(int stateId, int actionIndex) {
+        return getInt(targets + (long) transition(stateId, actionIndex) * Integer.BYTES);
+    }
+
+    @Override
+    public double reward(int stateId, int actionIndex) {
+        if (actionIndex < 0)
+            return getDouble(finalRewards + (long) stateId * Double.BYTES);
+        return getDouble(rewards + (long) transition(stateId, actionIndex) * Double.BYTES);
+    }
+
+    @Override
+    public boolean isFinalState(int stateId) {
+        long word = getLong(finalStates + (long) (stateId >>> 6) * Long.BYTES);
+        return (word & (1L << stateId)) != 0;
+    }
+
+    @Override
+    public boolean isDeadEnd(int stateId) {
+        long word = getLong(deadEnds + (long) (stateId >>> 6) * Long.BYTES);
+        return (word & (1L << stateId)) != 0;
+    }
+
+    private int transition(int stateId, int actionIndex) {
+        int first = firstTransition(stateId);
+        if (actionIndex < 0 || actionIndex >= firstTransition(stateId + 1) - first)
+            throw new IndexOutOfBoundsException("Invalid action index " + actionIndex + " of state " + stateId);
+        return first + actionIndex;
+    }
+}
@@ -1,10 +1,19 @@
 package run;
 
+import com.google.gson.Gson;
+import core.CheckpointStore;
 import core.State;
+import core.StateEncoding;
+import core.StateSpace;
+import core.StateSpaceExplorer;
 import environment.*;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
-import java.util.function.Predicate;
 
 /**
  * This class sets up our simulation by specifying and initializing the network and its hosts,
@@ -38,20 +47,56 @@ public class Simulation {
     private static final NetworkWorld simWorld = new NetworkWorld();
     private static final State state = State.getStartState();
 
-    private static boolean preconditionFilterEnabled;
+    //read by all threads exploring the state space
+    private static volatile boolean preconditionFilterEnabled;
+    //number of threads used to explore the state space and to generate the MDP
+    private static final int EXPLORATION_THREADS = Runtime.getRuntime().availableProcessors();
+    //true = independent actions are only explored in one order, all states are found, but not all transitions
+    private static final boolean PARTIAL_ORDER_REDUCTION_ENABLED = false;
+    //true = states are stored and serialized as bitsets of the StateEncoding of this world
+    private static final boolean COMPACT_STATES_ENABLED = true;
+    //set by setupWorld and read without locking by all threads packing states
+    private static volatile StateEncoding stateEncoding;
+    //true = the state enumeration and the MDP generation are checkpointed to CHECKPOINT_DIRECTORY and resumed from it
+    private static final boolean CHECKPOINTS_ENABLED = false;
+    private static final String CHECKPOINT_DIRECTORY = "checkpoints";
+    //minimum time between two checkpoints
+    private static final long CHECKPOINT_INTERVAL_MILLIS = 5 * 60 * 1000;
 
     public static void main(String[] args) {
         System.out.println("Starting simulation");
         setupWorld(false);
-        Set<State> states = computeStates();
-        MDPSerializer.computeMDP(states);
+        buildMDP();
     }
 
     /**
-     * This method computes all possible simulation states.
+     * Computes all states and writes the MDP of the world, which has to be set up before.
      */
-    private static Set<State> computeStates(){
-        Set<State> states = State.computeListOfPossibleStates(state);
+    public static void buildMDP() {
+        CheckpointStore checkpoints = !CHECKPOINTS_ENABLED ? null
+                : new CheckpointStore(Paths.get(CHECKPOINT_DIRECTORY), getWorldFingerprint(), CHECKPOINT_INTERVAL_MILLIS);
+        StateSpace stateSpace = computeStates(checkpoints);
+        if (PARTIAL_ORDER_REDUCTION_ENABLED && !MDPSerializer.REDUCED_TRANSITIONS_ENABLED) {
+            //the state space does not contain all transitions, so all actions are executed again
+            MDPSerializer.computeMDP(stateSpace.getStates(), checkpoints);
+        } else {
+            MDPSerializer.computeMDP(stateSpace);
+        }
+        //the MDP is written, so a restart has to compute everything again
+        if (checkpoints != null) {
+            checkpoints.clear();
+        }
+    }
+
+    /**
+     * This method computes all possible simulation states. If checkpoints are given, the computation resumes from
+     * the last checkpoint of this world.
+     * @param checkpoints - store of the checkpoints or null
+     */
+    private static StateSpace computeStates(CheckpointStore checkpoints){
+        StateSpace stateSpace = new StateSpaceExplorer(getExplorationThreads(), isPartialOrderReductionEnabled(),
+                checkpoints).explore(state);
+        Set<State> states = stateSpace.getStates();
         int states_nr = states.size();
         int finalStates = 0;
         int rootNodes= 0;
@@ -75,7 +120,7 @@ public class Simulation {
                 +finalStates+"\nKnown Netw: "+knownNetw+"\nRoot Nodes: "+rootNodes
                 +"\nRead DB: "+readDB);
 
-        return states;
+        return stateSpace;
     }
 
     /**
@@ -84,6 +129,8 @@ public class Simulation {
      */
     public static void setupWorld(boolean filterEnabled){
         preconditionFilterEnabled = filterEnabled;
+        FlyweightPool.clear();
+        simWorld.reset();
         //add Router, currently no Software
         Map<Integer, Data> routerData = new HashMap<>();
         Set<Software> routerSW = new HashSet<>();
@@ -100,6 +147,31 @@ public class Simulation {
         //should add data here that can be sniffed in the network
         simWorld.initializeNetworkTopology();
         simWorld.setSniffableData(getNetworkData());
+        registerWorldObjects();
+        stateEncoding = new StateEncoding(simWorld);
+    }
+
+    /**
+     * Registers the data, credentials and vulnerabilities of the world as canonical instances, so knowledge read
+     * from disk references the objects of this world instead of own copies.
+     */
+    private static void registerWorldObjects(){
+        for (NetworkNode node : simWorld.getNodes()) {
+            for (Data data : node.getDataSet().values()) {
+                FlyweightPool.register(data);
+                FlyweightPool.register(data.getCredentials());
+            }
+            for (Software software : node.getRemoteSoftware()) {
+                software.getVulnerabilities().forEach(FlyweightPool::register);
+            }
+            for (Software software : node.getLocalSoftware()) {
+                software.getVulnerabilities().forEach(FlyweightPool::register);
+            }
+        }
+        for (Data data : simWorld.getSniffableData().values()) {
+            FlyweightPool.register(data);
+            FlyweightPool.register(data.getCredentials());
+        }
     }
 
     static Set<Software> setWebserverRemoteSW(){
@@ -183,10 +255,10 @@ public class Simulation {
      * @return - simulation node
      */
     public static NetworkNode getNodeByType(NetworkNode.TYPE type){
-        Predicate<NetworkNode> isRealNode = node -> node.getType().equals(type);
-        Optional<NetworkNode> first = simWorld.getNodes().stream().filter(isRealNode).findFirst();
-        if (first.isPresent()) {
-            return first.get();
+        NetworkTopology topology = simWorld.getTopology();
+        NetworkNode node = topology == null ? null : topology.getNode(type);
+        if (node != null) {
+            return node;
         }else throw new RuntimeException("Node doesnt exist in Simulation");
     }
 
@@ -199,7 +271,82 @@ public class Simulation {
         return networkData;
     }
 
+    /**
+     * Computes a fingerprint of the world configuration, i.e. the nodes with their software, vulnerabilities and data,
+     * the sniffable data and the settings changing the reachable states. It is the same in every JVM, so it
+     * identifies checkpoints of this world.
+     * @return - the fingerprint
+     */
+    public static long getWorldFingerprint() {
+        //the facts are sorted, since the sets of the world are hash sets
+        List<String> facts = new ArrayList<>();
+        Gson gson = new Gson();
+        for (NetworkNode node : simWorld.getNodes()) {
+            String prefix = node.getType() + "|";
+            facts.add(prefix + String.join("|", node.getPub_ip(), node.getPriv_ip(), node.getHostname(),
+                    node.getOperatingSystem(), node.getOsVersion()));
+            addSoftwareFacts(facts, prefix + "remote|", node.getRemoteSoftware());
+            addSoftwareFacts(facts, prefix + "local|", node.getLocalSoftware());
+            for (Data data : node.getDataSet().values()) {
+                facts.add(prefix + "data|" + gson.toJson(data));
+            }
+        }
+        for (Data data : simWorld.getSniffableData().values()) {
+            facts.add("sniffable|" + gson.toJson(data));
+        }
+        facts.add("filter|" + preconditionFilterEnabled);
+        facts.add("partialOrderReduction|" + PARTIAL_ORDER_REDUCTION_ENABLED);
+        return fingerprint(facts);
+    }
+
+    /**
+     * Computes a fingerprint of the given facts, which does not depend on their order.
+     * @param facts - the facts, they are sorted
+     * @return - the first 64 bits of the SHA-256 of the sorted facts
+     */
+    static long fingerprint(List<String> facts) {
+        Collections.sort(facts);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(String.join("\n", facts).getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private static void addSoftwareFacts(List<String> facts, String prefix, Set<Software> softwareSet) {
+        for (Software software : softwareSet) {
+            String softwarePrefix = prefix + software.getName() + "|" + software.getVersion();
+            facts.add(softwarePrefix);
+            for (Vulnerability vulnerability : software.getVulnerabilities()) {
+                facts.add(softwarePrefix + "|" + vulnerability.getCve() + "|" + vulnerability.getType()
+                        + "|" + vulnerability.getZeroday());
+            }
+        }
+    }
+
     public static boolean isPreconditionFilterEnabled() {
         return preconditionFilterEnabled;
     }
+
+    public static int getExplorationThreads() {
+        return EXPLORATION_THREADS;
+    }
+
+    public static boolean isPartialOrderReductionEnabled() {
+        return PARTIAL_ORDER_REDUCTION_ENABLED;
+    }
+
+    public static boolean isCompactStatesEnabled() {
+        return COMPACT_STATES_ENABLED;
+    }
+
+    /**
+     * Returns the fact layout of the simulation world, which is used to store states in compact mode.
+     * @return - the state encoding, null if the world was not set up
+     */
+    public static StateEncoding getStateEncoding() {
+        return stateEncoding;
+    }
 }
@@ -1,4 +1,6 @@
+import csv
 import json
+import os
 import matplotlib.pyplot as plt
 
 
@@ -12,18 +14,32 @@ class Plotter:
         self.legend = []
 
     def load(self, filename, color):
+        """Loads the run data (e.g. runData.json) and the rewards of its episodes from the episode log next to it
+        (e.g. runDataEpisodes.csv). Runs written before the episode log existed hold the rewards in the run data."""
         run_data = []
         with open(filename, "r") as f:
             run_data = json.load(f)
 
         reward_x = []
         reward_y = []
-        last_iteration = 0
-        for data in run_data:
-            reward_x.extend([x['a'] + last_iteration for x in data['rewards']])
-            reward_y.extend([y['b'] for y in data['rewards']])
+        if os.path.exists(episodes_filename(filename)):
+            last_iteration = 0
+            for rewards in read_episodes(episodes_filename(filename)):
+                previous_episode = -1
+                for episode, reward in rewards:
+                    # a downsampled row holds the mean reward of the episodes since the previous row
+                    reward_x.append(episode + last_iteration)
+                    reward_y.append(reward * (episode - previous_episode))
+                    previous_episode = episode
+                if reward_x:
+                    last_iteration = reward_x[-1]
+        else:
+            last_iteration = 0
+            for data in run_data:
+                reward_x.extend([x['a'] + last_iteration for x in data['rewards']])
+                reward_y.extend([y['b'] for y in data['rewards']])
 
-            last_iteration = reward_x[-1]
+                last_iteration = reward_x[-1]
 
         for i in range(1, len(reward_y)):
             reward_y[i] = reward_y[i - 1] + reward_y[i]
@@ -50,3 +66,21 @@ class Plotter:
         #    ax.text(0, -100000, t[0])
         ax.legend()
         plt.show()
+
+
+def episodes_filename(filename):
+    """Returns the episode log written together with the given run data, e.g. runDataEpisodes.csv for
+    runData.json."""
+    if filename.endswith(".json"):
+        filename = filename[:-len(".json")]
+    return filename + "Episodes.csv"
+
+
+def read_episodes(filename):
+    """Returns the (episode, reward) pairs of every run of the episode log ordered by episode. After a run was
+    resumed from a checkpoint, episodes may be logged twice, only the last row of an episode is kept."""
+    runs = {}
+    with open(filename, "r", newline="") as f:
+        for row in csv.DictReader(f):
+            runs.setdefault(row['run'], {})[int(row['episode'])] = float(row['reward'])
+    return [sorted(rewards.items()) for rewards in runs.values()]
@@ -5,5 +5,6 @@ with open("./../../../runData.json", "r") as f:
     runData = json.load(f)
 
 for run in runData:
-    del run['rewards']
+    # the rewards of the episodes are in the episode log (e.g. runDataEpisodes.csv), see Plotter
+    run.pop('rewards', None)
     print(run)
\ No newline at end of file
@@ -5,7 +5,8 @@ with open("./../../../results.normal/runData50.json", "r") as f:
     runData = json.load(f)
 
 for run in runData:
-    del run['rewards']
+    # the rewards of the episodes are in the episode log (e.g. runDataEpisodes.csv), see Plotter
+    run.pop('rewards', None)
     print("policy length (actions done):", len(run['policy']) - 1)
     print("policy reward:", run['policyReward'])
     policy = run['policy']
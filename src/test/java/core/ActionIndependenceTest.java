@@ -0,0 +1,52 @@
+package core;
+
+import environment.NetworkNode;
+import org.junit.Before;
+import org.junit.Test;
+import run.Simulation;
+
+import static org.junit.Assert.*;
+
+public class ActionIndependenceTest {
+    State state;
+
+    @Before
+    public void setUp() {
+        Simulation.setupWorld(false);
+        state = State.getStartState();
+        state.setStartState(false);
+        state.addNodeKnowledge(NetworkNode.TYPE.WEBSERVER);
+        state.addNodeKnowledge(NetworkNode.TYPE.ADMINPC);
+        state.addNodeAccessLevel(NetworkNode.TYPE.WEBSERVER, NetworkNode.ACCESS_LEVEL.USER);
+        state.addNodeAccessLevel(NetworkNode.TYPE.ADMINPC, NetworkNode.ACCESS_LEVEL.USER);
+    }
+
+    @Test
+    public void testActionsOnDifferentNodesAreIndependent() {
+        NodeAction webserverData = new NodeAction(NetworkNode.TYPE.WEBSERVER, NetworkNode.TYPE.WEBSERVER, AdversaryAction.DATA_FROM_LOCAL_SYSTEM);
+        NodeAction adminSoftware = new NodeAction(NetworkNode.TYPE.ADMINPC, NetworkNode.TYPE.ADMINPC, AdversaryAction.SOFTWARE_DISCOVERY);
+        assertIndependent(true, webserverData, adminSoftware);
+    }
+
+    @Test
+    public void testDataAndPrivilegeEscalationAreDependent_angryPath() {
+        //root access reveals more data
+        NodeAction webserverData = new NodeAction(NetworkNode.TYPE.WEBSERVER, NetworkNode.TYPE.WEBSERVER, AdversaryAction.DATA_FROM_LOCAL_SYSTEM);
+        NodeAction privilegeEscalation = new NodeAction(NetworkNode.TYPE.WEBSERVER, NetworkNode.TYPE.WEBSERVER, AdversaryAction.EXPLOIT_FOR_PRIVILEGE_ESCALATION);
+        assertIndependent(false, webserverData, privilegeEscalation);
+    }
+
+    private void assertIndependent(boolean independent, NodeAction a, NodeAction b) {
+        int aWrites = ActionIndependence.writes(a.action.getPostConditionDelta(a.target, state, a.currentActor));
+        int bWrites = ActionIndependence.writes(b.action.getPostConditionDelta(b.target, state, b.currentActor));
+        assertNotEquals(0, aWrites);
+        assertNotEquals(0, bWrites);
+        assertEquals(independent, ActionIndependence.isIndependent(ActionIndependence.index(a), aWrites,
+                ActionIndependence.index(b), bWrites));
+        if (independent) {
+            State ab = NodeAction.performNodeAction(b, NodeAction.performNodeAction(a, state));
+            State ba = NodeAction.performNodeAction(a, NodeAction.performNodeAction(b, state));
+            assertEquals(ab, ba);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package core;
+
+import environment.NetworkNode;
+import environment.Software;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import run.Simulation;
+
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class StateCopyTest {
+    static State scannedState;
+    static NetworkNode.TYPE target = NetworkNode.TYPE.WEBSERVER;
+    static NetworkNode.TYPE currentActor = NetworkNode.TYPE.ADVERSARY;
+
+    @BeforeClass
+    public static void setUp() {
+        Simulation.setupWorld(true);
+        State start = State.getStartState();
+        State routerScanned = AdversaryAction.ACTIVE_SCAN_IP_PORT.executePostConditionOnTarget(NetworkNode.TYPE.ROUTER, start, currentActor);
+        scannedState = AdversaryAction.ACTIVE_SCAN_VULNERABILITY.executePostConditionOnTarget(target, routerScanned, currentActor);
+    }
+
+    @Test
+    public void testCopyIsEqual() {
+        State copy = scannedState.copy();
+        assertEquals(scannedState, copy);
+        assertEquals(scannedState.hashCode(), copy.hashCode());
+    }
+
+    @Test
+    public void testCopyDoesNotModifyOriginal() {
+        int knownSoftware = scannedState.getSoftwareKnowledgeMap().get(target).size();
+        State copy = scannedState.copy();
+        copy.addNodeAccessLevel(target, NetworkNode.ACCESS_LEVEL.ROOT);
+        copy.addNodeData(target, 0, Simulation.getNodeByType(target).getDataSet().get(0));
+        Set<Software> localSoftware = Simulation.getNodeByType(target).getLocalSoftware();
+        copy.addNodeLocalSoftware(target, localSoftware);
+
+        assertTrue(copy.getNodeKnowledgeMap().get(target).hasAccessLevelRoot());
+        assertFalse(scannedState.getNodeKnowledgeMap().get(target).hasAccessLevelRoot());
+        assertTrue(scannedState.getNodeKnowledgeMap().get(target).getKnownData().isEmpty());
+        for (Software s : localSoftware) {
+            assertTrue(copy.isSoftwareContainedInSet(s.getName(), copy.getSoftwareKnowledgeMap().get(target)));
+        }
+        assertEquals(knownSoftware, scannedState.getSoftwareKnowledgeMap().get(target).size());
+        assertNotEquals(scannedState, copy);
+    }
+
+    @Test
+    public void testPostConditionKeepsCurrentState() {
+        State before = scannedState.copy();
+        State newState = AdversaryAction.SOFTWARE_DISCOVERY.executePostConditionOnTarget(target, scannedState, target);
+        assertNotEquals(scannedState, newState);
+        assertEquals(before, scannedState);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testCopiedKnowledgeIsImmutable_angryPath() {
+        State copy = scannedState.copy();
+        copy.getNodeKnowledgeMap().get(target).addAccessLevel(NetworkNode.ACCESS_LEVEL.ROOT);
+    }
+}
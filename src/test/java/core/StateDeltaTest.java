@@ -0,0 +1,60 @@
+package core;
+
+import environment.NetworkNode;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import run.Simulation;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class StateDeltaTest {
+    static State scannedState;
+    static NetworkNode.TYPE target = NetworkNode.TYPE.WEBSERVER;
+    static NetworkNode.TYPE currentActor = NetworkNode.TYPE.ADVERSARY;
+
+    @BeforeClass
+    public static void setUp() {
+        Simulation.setupWorld(false);
+        State start = State.getStartState();
+        State routerScanned = AdversaryAction.ACTIVE_SCAN_IP_PORT.executePostConditionOnTarget(NetworkNode.TYPE.ROUTER, start, currentActor);
+        scannedState = AdversaryAction.ACTIVE_SCAN_VULNERABILITY.executePostConditionOnTarget(target, routerScanned, currentActor);
+    }
+
+    @Test
+    public void testEmptyDeltaMeansNoChange() {
+        Set<State> layer = new HashSet<>();
+        layer.add(State.getStartState());
+        for (int depth = 0; depth < 3; depth++) {
+            Set<State> next = new HashSet<>();
+            for (State state : layer) {
+                //without the precondition filter, the actions contain the ones without a state change as well
+                for (NodeAction action : NodeAction.getAllActionPossible(state)) {
+                    StateDelta delta = action.action.getPostConditionDelta(action.target, state, action.currentActor);
+                    State newState = delta.apply();
+                    assertEquals(delta.isEmpty(), newState.equals(state));
+                    next.add(newState);
+                }
+            }
+            layer = next;
+        }
+    }
+
+    @Test
+    public void testDeltaDoesNotModifyState() {
+        State before = scannedState.copy();
+        StateDelta delta = AdversaryAction.SOFTWARE_DISCOVERY.getPostConditionDelta(target, scannedState, target);
+        assertFalse(delta.isEmpty());
+        assertEquals(before, scannedState);
+        assertTrue(delta.getSoftwareKnowledge(target).size() > scannedState.getSoftwareKnowledgeMap().get(target).size());
+        assertNotEquals(scannedState, delta.apply());
+    }
+
+    @Test
+    public void testNoChange_angryPath() {
+        State rooted = AdversaryAction.VALID_ACCOUNTS_VULN.executePostConditionOnTarget(target, scannedState, currentActor);
+        assertTrue(AdversaryAction.EXPLOIT_FOR_PRIVILEGE_ESCALATION.getPostConditionDelta(target, rooted, currentActor).isEmpty());
+    }
+}
@@ -0,0 +1,96 @@
+package core;
+
+import environment.NetworkNode;
+import knowledge.SoftwareKnowledge;
+import knowledge.impl.SoftwareKnowledgeImpl;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import run.Simulation;
+
+import java.io.*;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StateEncodingTest {
+    static State scannedState;
+    static NetworkNode.TYPE currentActor = NetworkNode.TYPE.ADVERSARY;
+
+    @BeforeClass
+    public static void setUp() {
+        Simulation.setupWorld(true);
+        State start = State.getStartState();
+        State routerScanned = AdversaryAction.ACTIVE_SCAN_IP_PORT.executePostConditionOnTarget(NetworkNode.TYPE.ROUTER, start, currentActor);
+        scannedState = AdversaryAction.ACTIVE_SCAN_VULNERABILITY.executePostConditionOnTarget(NetworkNode.TYPE.WEBSERVER, routerScanned, currentActor);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        State compact = scannedState.toCompact();
+        assertTrue(compact.isCompact());
+        assertEquals(scannedState, compact);
+        assertEquals(compact, scannedState);
+        assertEquals(scannedState.hashCode(), compact.hashCode());
+        assertEquals(scannedState.getSoftwareKnowledgeMap(), compact.getSoftwareKnowledgeMap());
+        assertEquals(scannedState.getNodeKnowledgeMap(), compact.getNodeKnowledgeMap());
+        //reading the knowledge does not modify the compact state
+        assertTrue(compact.isCompact());
+        try {
+            compact.getNodeKnowledgeMap().remove(NetworkNode.TYPE.ROUTER);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            assertTrue(compact.isCompact());
+        }
+        assertEquals(scannedState.getNodeKnowledgeMap(), compact.getNodeKnowledgeMap());
+    }
+
+    @Test
+    public void testCompactEquality() {
+        State start = State.getStartState().toCompact();
+        assertEquals(State.getStartState().toCompact(), start);
+        assertNotEquals(scannedState.toCompact(), start);
+    }
+
+    @Test
+    public void testSerializedCompact() throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(outputStream)) {
+            out.writeObject(scannedState);
+        }
+        State read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            read = (State) in.readObject();
+        }
+        assertTrue(read.isCompact());
+        assertEquals(scannedState, read);
+        assertEquals(scannedState.hashCode(), read.hashCode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownSoftware_angryPath() {
+        State state = State.getStartState();
+        state.getSoftwareKnowledgeMap().put(NetworkNode.TYPE.WEBSERVER, new HashSet<>());
+        SoftwareKnowledge unknown = new SoftwareKnowledgeImpl("Php", true);
+        state.getSoftwareKnowledgeMap().get(NetworkNode.TYPE.WEBSERVER).add(unknown);
+        state.toCompact();
+    }
+
+    @Test
+    public void testFactNames() {
+        List<String> names = Simulation.getStateEncoding().factNames();
+        assertEquals(Simulation.getStateEncoding().size(), names.size());
+        assertEquals(names.size(), new HashSet<>(names).size());
+        assertTrue(names.contains("WEBSERVER.known"));
+        assertTrue(names.contains("ROUTER.access.root"));
+        //the vulnerabilities of a software are ordered by CVE, not by their hash codes
+        for (int i = 1; i < names.size(); i++) {
+            String previous = names.get(i - 1);
+            String name = names.get(i);
+            int vulnerability = name.indexOf(".vulnerability.");
+            if (vulnerability >= 0 && previous.startsWith(name.substring(0, vulnerability) + ".vulnerability.")) {
+                assertTrue(previous.compareTo(name) < 0);
+            }
+        }
+    }
+}
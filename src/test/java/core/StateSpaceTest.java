@@ -0,0 +1,185 @@
+package core;
+
+import environment.NetworkNode;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import run.Simulation;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static org.junit.Assert.*;
+
+public class StateSpaceTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    static StateSpace stateSpace;
+
+    @BeforeClass
+    public static void setUp() {
+        Simulation.setupWorld(false);
+        stateSpace = State.computeStateSpace(State.getStartState());
+    }
+
+    @Test
+    public void testAllStatesFound() {
+        assertEquals(33049, stateSpace.size());
+        assertEquals(stateSpace.size(), stateSpace.getLayerSizes().stream().mapToInt(Integer::intValue).sum());
+        assertEquals(1, (int) stateSpace.getLayerSizes().get(0));
+        assertTrue(stateSpace.getStates().iterator().next().isStartState());
+    }
+
+    @Test
+    public void testTransitionsStayInStateSpace() {
+        int transitions = 0;
+        for (State state : stateSpace.getStates()) {
+            for (Map.Entry<NodeAction, State> transition : stateSpace.getTransitions(state).entrySet()) {
+                assertNotNull(stateSpace.getTransitions(transition.getValue()));
+                assertNotEquals(state, transition.getValue());
+                transitions++;
+            }
+        }
+        assertEquals(stateSpace.getTransitionCount(), transitions);
+    }
+
+    @Test
+    public void testSequentialExplorationEqualsParallel() {
+        StateSpace sequential = new StateSpaceExplorer(1).explore(State.getStartState());
+        StateSpace parallel = new StateSpaceExplorer(4).explore(State.getStartState());
+        for (StateSpace other : List.of(sequential, parallel)) {
+            assertEquals(new ArrayList<>(stateSpace.getStates()), new ArrayList<>(other.getStates()));
+            assertEquals(stateSpace.getLayerSizes(), other.getLayerSizes());
+            assertEquals(stateSpace.getTransitionCount(), other.getTransitionCount());
+            for (State state : stateSpace.getStates()) {
+                assertEquals(stateSpace.getTransitions(state), other.getTransitions(state));
+            }
+        }
+    }
+
+    @Test
+    public void testPartialOrderReductionFindsAllStates() {
+        StateSpace reduced = new StateSpaceExplorer(2, true).explore(State.getStartState());
+        assertEquals(new HashSet<>(stateSpace.getStates()), new HashSet<>(reduced.getStates()));
+        assertEquals(reduced.size(), reduced.getLayerSizes().stream().mapToInt(Integer::intValue).sum());
+        assertTrue(reduced.getTransitionCount() < stateSpace.getTransitionCount());
+        int transitions = 0;
+        for (State state : reduced.getStates()) {
+            for (Map.Entry<NodeAction, State> transition : reduced.getTransitions(state).entrySet()) {
+                assertEquals(stateSpace.getTransitions(state).get(transition.getKey()), transition.getValue());
+                transitions++;
+            }
+        }
+        assertEquals(reduced.getTransitionCount(), transitions);
+    }
+
+    @Test
+    public void testDiskExplorationEqualsHeap() throws IOException {
+        try (DiskStateSpace diskStateSpace = State.computeStateSpaceOnDisk(State.getStartState(),
+                folder.newFile("states.bin").toPath())) {
+            assertEquals(stateSpace.size(), diskStateSpace.size());
+            assertEquals(stateSpace.getTransitionCount(), diskStateSpace.getTransitionCount());
+            for (int i = 0; i < stateSpace.getLayerSizes().size(); i++) {
+                assertEquals((long) stateSpace.getLayerSizes().get(i), (long) diskStateSpace.getLayerSizes().get(i));
+            }
+            Iterator<State> diskStates = diskStateSpace.iterator();
+            for (State state : stateSpace.getStates()) {
+                State diskState = diskStates.next();
+                assertTrue(diskState.isCompact());
+                assertEquals(state, diskState);
+                assertEquals(state.isStartState(), diskState.isStartState());
+            }
+            assertFalse(diskStates.hasNext());
+
+            State unknown = State.getStartState();
+            unknown.addNodeKnowledge(NetworkNode.TYPE.DATABASE);
+            assertFalse(diskStateSpace.contains(unknown));
+            assertTrue(diskStateSpace.contains(State.getStartState()));
+        }
+    }
+
+    @Test
+    public void testExplorationResumesFromCheckpoint() throws IOException {
+        Path directory = folder.newFolder("checkpoints").toPath();
+        //the exploration dies after the third checkpoint
+        CheckpointStore dying = new CheckpointStore(directory, Simulation.getWorldFingerprint(), 0) {
+            private int saved;
+
+            @Override
+            public void save(String name, Serializable checkpoint) {
+                super.save(name, checkpoint);
+                if (++saved == 3) {
+                    throw new IllegalStateException("JVM died");
+                }
+            }
+        };
+        try {
+            new StateSpaceExplorer(2, false, dying).explore(State.getStartState());
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("JVM died", e.getMessage());
+        }
+
+        CheckpointStore checkpoints = new CheckpointStore(directory, Simulation.getWorldFingerprint(), Long.MAX_VALUE);
+        StateSpace resumed = new StateSpaceExplorer(2, false, checkpoints).explore(State.getStartState());
+        assertEquals(new ArrayList<>(stateSpace.getStates()), new ArrayList<>(resumed.getStates()));
+        assertEquals(stateSpace.getLayerSizes(), resumed.getLayerSizes());
+        assertEquals(stateSpace.getTransitionCount(), resumed.getTransitionCount());
+        for (State state : stateSpace.getStates()) {
+            assertEquals(stateSpace.getTransitions(state), resumed.getTransitions(state));
+        }
+        //the states are stored in the mode of the simulation, also when read from the checkpoint
+        for (State state : resumed.getStates()) {
+            assertEquals(Simulation.isCompactStatesEnabled(), state.isCompact());
+        }
+
+        //the finished exploration is saved, but not used for another world
+        assertNotNull(checkpoints.load("states", Serializable.class));
+        assertNull(new CheckpointStore(directory, Simulation.getWorldFingerprint() + 1, 0).load("states", Serializable.class));
+        checkpoints.clear();
+        assertNull(checkpoints.load("states", Serializable.class));
+    }
+
+    @Test
+    public void testMapThreads() {
+        List<State> states = new ArrayList<>(stateSpace.getStates()).subList(0, 100);
+        //a single thread maps in the calling thread
+        List<Thread> threads = new StateSpaceExplorer(1).map(states, state -> Thread.currentThread());
+        assertEquals(new HashSet<>(List.of(Thread.currentThread())), new HashSet<>(threads));
+
+        //more threads map on the pool of the explorer, which is kept for the next call
+        Set<ForkJoinPool> pools = new HashSet<>();
+        try (StateSpaceExplorer explorer = new StateSpaceExplorer(2)) {
+            pools.addAll(explorer.map(states, state -> ForkJoinTask.getPool()));
+            pools.addAll(explorer.map(states, state -> ForkJoinTask.getPool()));
+        }
+        assertEquals(1, pools.size());
+        ForkJoinPool pool = pools.iterator().next();
+        assertNotNull(pool);
+        assertNotSame(ForkJoinPool.commonPool(), pool);
+        assertTrue(pool.isShutdown());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoThreads_angryPath() {
+        new StateSpaceExplorer(0);
+    }
+
+    @Test
+    public void testUnknownState_angryPath() {
+        State unknown = State.getStartState();
+        unknown.addNodeKnowledge(NetworkNode.TYPE.DATABASE);
+        assertNull(stateSpace.getTransitions(unknown));
+    }
+}
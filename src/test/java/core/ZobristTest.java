@@ -0,0 +1,59 @@
+package core;
+
+import environment.NetworkNode;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import run.Simulation;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ZobristTest {
+
+    @BeforeClass
+    public static void setUp() {
+        Simulation.setupWorld(true);
+    }
+
+    private static int hashFromScratch(State state) {
+        return Zobrist.fold(Zobrist.of(state.getNodeKnowledgeMap(), state.getNetworkKnowledge(),
+                state.getSoftwareKnowledgeMap()));
+    }
+
+    @Test
+    public void testIncrementalHashMatchesFullHash() {
+        Set<State> layer = new HashSet<>();
+        layer.add(State.getStartState());
+        for (int depth = 0; depth < 4; depth++) {
+            Set<State> next = new HashSet<>();
+            for (State state : layer) {
+                for (NodeAction action : NodeAction.getAllActionPossibleWithChangeState(state)) {
+                    State newState = NodeAction.performNodeAction(action, state);
+                    int hash = newState.hashCode();
+                    assertEquals(hashFromScratch(newState), hash);
+                    //the copies only read the knowledge, so the hash is still tracked
+                    assertEquals(hash, newState.hashCode());
+                    next.add(newState);
+                }
+            }
+            layer = next;
+        }
+        assertFalse(layer.isEmpty());
+    }
+
+    @Test
+    public void testEqualStatesFromDifferentOrder() {
+        State start = State.getStartState();
+        State first = start.copy();
+        first.addNodeHostname(NetworkNode.TYPE.ROUTER, "router");
+        first.addNodeOS(NetworkNode.TYPE.ROUTER, "os");
+        State second = start.copy();
+        second.addNodeOS(NetworkNode.TYPE.ROUTER, "os");
+        second.addNodeHostname(NetworkNode.TYPE.ROUTER, "router");
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertNotEquals(start.hashCode(), first.hashCode());
+    }
+}
@@ -0,0 +1,62 @@
+package environment;
+
+import knowledge.NodeKnowledge;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import run.Simulation;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+public class FlyweightPoolTest {
+
+    @BeforeClass
+    public static void setUp() {
+        Simulation.setupWorld(true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T serializeAndRead(T object) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(outputStream)) {
+            out.writeObject(object);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            return (T) in.readObject();
+        }
+    }
+
+    @Test
+    public void testDeserializedDataIsCanonical() throws IOException, ClassNotFoundException {
+        Data data = Simulation.getNodeByType(NetworkNode.TYPE.WEBSERVER).getDataSet().get(0);
+        Data read = serializeAndRead(data);
+        assertSame(data, read);
+        assertSame(data.getCredentials(), read.getCredentials());
+    }
+
+    @Test
+    public void testDeserializedKnowledgeReferencesCanonicalData() throws IOException, ClassNotFoundException {
+        Data data = Simulation.getNodeByType(NetworkNode.TYPE.WEBSERVER).getDataSet().get(0);
+        NodeKnowledge knowledge = NodeKnowledge.addNode(NetworkNode.TYPE.WEBSERVER);
+        knowledge.addData(0, data);
+        NodeKnowledge immutable = knowledge.toImmutable();
+        NodeKnowledge read = serializeAndRead(immutable);
+        assertEquals(immutable, read);
+        assertSame(data, read.getKnownData().get(0));
+    }
+
+    @Test
+    public void testKnowledgeIsNotPooled() {
+        int size = FlyweightPool.size();
+        NodeKnowledge knowledge = NodeKnowledge.addNode(NetworkNode.TYPE.WEBSERVER).toImmutable()
+                .withHostname("host").withAccessLevel(NetworkNode.ACCESS_LEVEL.USER);
+        assertSame(knowledge, FlyweightPool.canonical(knowledge));
+        assertEquals(size, FlyweightPool.size());
+    }
+
+    @Test
+    public void testCanonical_angryPath() {
+        assertNull(FlyweightPool.canonical(null));
+    }
+}
@@ -0,0 +1,46 @@
+package environment;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import run.Simulation;
+
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class NetworkTopologyTest {
+
+    @BeforeClass
+    public static void setUp() {
+        Simulation.setupWorld(true);
+    }
+
+    @Test
+    public void testSetupWorldResetsNodes() {
+        Simulation.setupWorld(true);
+        assertEquals(4, Simulation.getSimWorld().getNodes().size());
+        assertSame(Simulation.getNodeByType(NetworkNode.TYPE.DATABASE),
+                Simulation.getSimWorld().getTopology().getNode(NetworkNode.TYPE.DATABASE));
+    }
+
+    @Test
+    public void testViewableNodes() {
+        assertEquals(Set.of(NetworkNode.TYPE.ROUTER, NetworkNode.TYPE.WEBSERVER, NetworkNode.TYPE.ADMINPC),
+                NetworkTopology.getViewableNodes(NetworkNode.TYPE.ADVERSARY));
+        assertTrue(NetworkTopology.isViewable(NetworkNode.TYPE.WEBSERVER, NetworkNode.TYPE.DATABASE));
+        assertFalse(NetworkTopology.isViewable(NetworkNode.TYPE.ADVERSARY, NetworkNode.TYPE.DATABASE));
+        assertTrue(Simulation.getSimWorld().getTopology().isConnected(NetworkNode.TYPE.ROUTER, NetworkNode.TYPE.DATABASE));
+    }
+
+    @Test
+    public void testVisibleSoftwareByAdversary() {
+        Set<Software> visible = NetworkTopology.getRemoteSWMapByScanningNode(NetworkNode.TYPE.ADVERSARY).get(NetworkNode.TYPE.ADMINPC);
+        assertEquals(1, visible.size());
+        assertEquals(Simulation.SERVICE_SSH, visible.iterator().next().getName());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testConnectedHostsImmutable_angryPath() {
+        NetworkTopology.getConnectedHosts(NetworkNode.TYPE.ADVERSARY).add(NetworkNode.TYPE.DATABASE);
+    }
+}
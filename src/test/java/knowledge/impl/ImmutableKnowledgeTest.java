@@ -0,0 +1,58 @@
+package knowledge.impl;
+
+import environment.NetworkNode;
+import knowledge.NetworkKnowledge;
+import knowledge.NodeKnowledge;
+import knowledge.SoftwareKnowledge;
+import org.junit.Test;
+
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class ImmutableKnowledgeTest {
+
+    @Test
+    public void testNodeWither() {
+        NodeKnowledge mutable = NodeKnowledge.addNode(NetworkNode.TYPE.WEBSERVER);
+        mutable.addPubIp("1.1.1.1");
+        NodeKnowledge immutable = mutable.toImmutable();
+        assertEquals(mutable, immutable);
+        assertEquals(immutable, mutable);
+        assertEquals(mutable.hashCode(), immutable.hashCode());
+
+        NodeKnowledge root = immutable.withAccessLevel(NetworkNode.ACCESS_LEVEL.ROOT);
+        assertNotSame(immutable, root);
+        assertTrue(root.hasAccessLevelRoot());
+        assertFalse(immutable.hasAccessLevelRoot());
+        assertSame(mutable, mutable.withAccessLevel(NetworkNode.ACCESS_LEVEL.ROOT));
+        assertEquals(mutable, root);
+        assertEquals(mutable.hashCode(), root.hashCode());
+    }
+
+    @Test
+    public void testSoftwareWither() {
+        SoftwareKnowledge mutable = SoftwareKnowledge.addNew("Php", true);
+        SoftwareKnowledge immutable = mutable.toImmutable();
+        SoftwareKnowledge versioned = immutable.withVersion("7.0");
+        assertEquals("", immutable.getVersion());
+        assertEquals("7.0", versioned.getVersion());
+        mutable.addVersion("7.0");
+        assertEquals(mutable, versioned);
+        assertEquals(mutable.hashCode(), versioned.hashCode());
+    }
+
+    @Test
+    public void testNetworkWither() {
+        NetworkKnowledge immutable = NetworkKnowledge.create().toImmutable();
+        NetworkKnowledge withNode = immutable.withNode(NetworkNode.TYPE.ROUTER);
+        assertTrue(immutable.getKnownNodes().isEmpty());
+        assertTrue(withNode.getKnownNodes().contains(NetworkNode.TYPE.ROUTER));
+        assertSame(withNode, withNode.withNode(NetworkNode.TYPE.ROUTER));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAdd_angryPath() {
+        SoftwareKnowledge.addNew("Php", true).toImmutable().addVulnerabilities(new HashSet<>());
+    }
+}
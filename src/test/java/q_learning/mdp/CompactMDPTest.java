@@ -0,0 +1,89 @@
+package q_learning.mdp;
+
+import org.junit.Test;
+import q_learning.env_cells.CellAction;
+import q_learning.env_cells.CellState;
+import q_learning.env_cells.CellStateReward;
+import q_learning.utils.Parameter;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompactMDPTest {
+    private static final int EPISODES = 100;
+    private final CellAction moveLeft = new CellAction(2);
+    private final CellAction moveRight = new CellAction(3);
+
+    /**
+     * Creates a corridor of cells, where the right cell is a final state with reward 1.0.
+     */
+    private MDP<CellState, CellAction> createCorridor() {
+        MDPBuilder<CellState, CellAction> builder = new MDPBuilder<>();
+        for (int x = 0; x < 4; x++) {
+            CellState cell = new CellState(x, 0);
+            builder.addState(cell, new CellStateReward(cell, x == 3 ? 1.0 : 0.0), x == 3);
+            if (x == 3)
+                continue;
+            if (x > 0)
+                builder.addTransition(cell, moveLeft, new CellState(x - 1, 0));
+            builder.addTransition(cell, moveRight, new CellState(x + 1, 0));
+        }
+        return builder.build(new CellState(0, 0));
+    }
+
+    @Test
+    public void copy_happyPath() {
+        MDP<CellState, CellAction> mdp = createCorridor();
+        CompactMDP<CellState, CellAction> compact = CompactMDP.of(mdp);
+
+        assertEquals(mdp.stateCount(), compact.stateCount());
+        assertEquals(mdp.transitionCount(), compact.transitionCount());
+        assertEquals(mdp.getInitialStateId(), compact.getInitialStateId());
+        for (int id = 0; id < mdp.stateCount(); id++) {
+            CellState state = mdp.getState(id);
+            assertEquals(id, compact.getStateId(state));
+            assertEquals(mdp.isFinalState(id), compact.isFinalState(id));
+            assertEquals(mdp.reward(id, -1), compact.reward(id, -1), 0.0);
+            assertEquals(mdp.actions(state), compact.actions(state));
+            assertEquals(mdp.actionCount(id), compact.actionCount(id));
+            for (int i = 0; i < mdp.actionCount(id); i++) {
+                CellAction action = mdp.getAction(id, i);
+                assertEquals(action, compact.getAction(id, i));
+                assertEquals(mdp.stateTransition(id, i), compact.stateTransition(id, i));
+                assertEquals(mdp.reward(id, i), compact.reward(id, i), 0.0);
+                assertEquals(mdp.stateTransition(state, action), compact.stateTransition(state, action));
+                assertEquals(mdp.reward(state, action, mdp.stateTransition(state, action)),
+                        compact.reward(state, action, compact.stateTransition(state, action)), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void learning_happyPath() {
+        Parameter param = new Parameter(1, 0.2, 0.2, 1.0,
+                0.05, 0.05, 1.0, 1.0, 0, 0.000000001, 5, 1.0,
+                EPISODES / 2, EPISODES / 2, "", false);
+        MDP<CellState, CellAction> mdp = createCorridor();
+        QLearner<CellState, CellAction> learner = new QLearner<>(mdp, param, EPISODES);
+        learner.runIterations();
+        QLearner<CellState, CellAction> compactLearner = new QLearner<>(CompactMDP.of(mdp), param, EPISODES);
+        compactLearner.runIterations();
+        // the compact MDP has the same IDs and action indices, so the same seed learns the same values
+        assertEquals(learner.getUtility(), compactLearner.getUtility());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void targetNotAState_angryPath() {
+        CellState cell = new CellState(0, 0);
+        CompactMDP.fromTables(List.of(cell), 0, new int[]{0, 1}, List.of(moveRight), new int[]{0},
+                new int[]{1}, new double[]{0.0}, new double[]{0.0}, new BitSet(), new BitSet());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void invalidActionIndex_angryPath() {
+        CompactMDP<CellState, CellAction> compact = CompactMDP.of(createCorridor());
+        compact.stateTransition(compact.getInitialStateId(), 1);
+    }
+}
@@ -0,0 +1,142 @@
+package q_learning.mdp;
+
+import core.CheckpointStore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import q_learning.env_cells.CellAction;
+import q_learning.env_cells.CellState;
+import q_learning.env_cells.CellStateReward;
+import q_learning.utils.Parameter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the LazyMDP on a corridor of four cells, where the agent starts on the left and the right cell is a final
+ * state with reward 1.0.
+ */
+public class LazyMDPTest {
+    private static final int LENGTH = 4;
+    private final CellAction moveLeft = new CellAction(2);
+    private final CellAction moveRight = new CellAction(3);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private LazyMDP<CellState, CellAction> createMDP(int cacheSize) {
+        return new LazyMDP<>(new CellState(0, 0),
+                state -> {
+                    List<CellAction> actions = new ArrayList<>();
+                    if (state.getX() == LENGTH - 1)
+                        return actions;
+                    if (state.getX() > 0)
+                        actions.add(moveLeft);
+                    actions.add(moveRight);
+                    return actions;
+                },
+                (state, action) -> new CellState(state.getX() + (action.equals(moveRight) ? 1 : -1), state.getY()),
+                state -> new CellStateReward(state, state.getX() == LENGTH - 1 ? 1.0 : 0.0),
+                state -> state.getX() == LENGTH - 1,
+                cacheSize);
+    }
+
+    @Test
+    public void statesDiscoveredOnFirstVisit_happyPath() {
+        LazyMDP<CellState, CellAction> mdp = createMDP(10);
+        assertEquals(1, mdp.stateCount());
+        assertEquals(0, mdp.getInitialStateId());
+        assertEquals(-1, mdp.getStateId(new CellState(1, 0)));
+
+        assertEquals(1, mdp.actionCount(0));
+        assertEquals(moveRight, mdp.getAction(0, 0));
+        int second = mdp.stateTransition(0, 0);
+        assertEquals(2, mdp.stateCount());
+        assertEquals(new CellState(1, 0), mdp.getState(second));
+        assertEquals(second, mdp.getStateId(new CellState(1, 0)));
+
+        assertEquals(0, mdp.stateTransition(second, 0));
+        int third = mdp.stateTransition(second, 1);
+        int last = mdp.stateTransition(third, 1);
+        assertEquals(LENGTH, mdp.stateCount());
+        assertTrue(mdp.isFinalState(last));
+        assertFalse(mdp.isFinalState(third));
+        assertEquals(1.0, mdp.reward(last, -1), 0.0);
+        assertEquals(0.0, mdp.reward(third, 1), 0.0);
+    }
+
+    @Test
+    public void evictedStatesComputedAgain_happyPath() {
+        LazyMDP<CellState, CellAction> cached = createMDP(10);
+        LazyMDP<CellState, CellAction> evicting = createMDP(1);
+        for (int round = 0; round < 2; round++) {
+            for (LazyMDP<CellState, CellAction> mdp : List.of(cached, evicting)) {
+                int id = mdp.getInitialStateId();
+                while (!mdp.isFinalState(id)) {
+                    id = mdp.stateTransition(id, mdp.actionCount(id) - 1);
+                }
+            }
+        }
+        assertEquals(cached.stateCount(), evicting.stateCount());
+        for (int id = 0; id < cached.stateCount(); id++) {
+            assertEquals(cached.getState(id), evicting.getState(id));
+            assertEquals(cached.actionCount(id), evicting.actionCount(id));
+            for (int i = 0; i < cached.actionCount(id); i++) {
+                assertEquals(cached.getAction(id, i), evicting.getAction(id, i));
+                assertEquals(cached.stateTransition(id, i), evicting.stateTransition(id, i));
+                assertEquals(cached.reward(id, i), evicting.reward(id, i), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void learnWhileDiscovering_happyPath() {
+        LazyMDP<CellState, CellAction> mdp = createMDP(2);
+        Parameter param = new Parameter(1, 0.2, 0.2, 1.0,
+                0.05, 0.05, 1.0, 1.0, 0, 0.000000001, 5, 1.0,
+                2000, 200, "", false);
+        QLearner<CellState, CellAction> learner = new QLearner<>(mdp, param, 100);
+        learner.runIterations();
+
+        assertEquals(LENGTH, mdp.stateCount());
+        Map<CellState, Double> util = learner.getUtility();
+        assertEquals(LENGTH, util.size());
+        for (double utility : util.values()) {
+            assertEquals(1.0, utility, 10e-10);
+        }
+    }
+
+    @Test
+    public void qNotStored_happyPath() {
+        LazyMDP<CellState, CellAction> mdp = createMDP(2);
+        Parameter param = new Parameter(1, 0.2, 0.2, 1.0,
+                0.05, 0.05, 1.0, 1.0, 0, 0.000000001, 5, 1.0,
+                200, 20, "", true);
+        QLearner<CellState, CellAction> learner = new QLearner<>(mdp, param, 100);
+        File checkpoints = new File(folder.getRoot(), "checkpoints");
+        learner.setCheckpoints(new CheckpointStore(checkpoints.toPath(), 1L, 0), 10);
+        learner.runIterations();
+        String filename = new File(folder.getRoot(), "runData").getPath();
+        learner.saveData(filename, 1L);
+
+        // the IDs of another lazy MDP may differ, so neither checkpoints nor QData files are written
+        assertFalse(mdp.hasStableStateIds());
+        assertEquals(0, checkpoints.list().length);
+        assertTrue(new File(filename + ".json").exists());
+        assertFalse(new File(filename + "QData0.qtable").exists());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noCache_angryPath() {
+        createMDP(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void undiscoveredState_angryPath() {
+        createMDP(10).actions(new CellState(2, 0));
+    }
+}
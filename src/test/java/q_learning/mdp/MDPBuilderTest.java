@@ -0,0 +1,45 @@
+package q_learning.mdp;
+
+import org.junit.Test;
+import q_learning.env_cells.CellAction;
+import q_learning.env_cells.CellState;
+import q_learning.env_cells.CellStateReward;
+
+import static org.junit.Assert.*;
+
+public class MDPBuilderTest {
+    private final CellState left = new CellState(0, 0);
+    private final CellState right = new CellState(1, 0);
+    private final CellAction moveRight = new CellAction(3);
+
+    @Test
+    public void build_happyPath() {
+        MDPBuilder<CellState, CellAction> builder = new MDPBuilder<>();
+        builder.addState(left, new CellStateReward(left, 0.0), false);
+        // the target state is added after its transition
+        builder.addTransition(left, moveRight, right);
+        builder.addState(right, new CellStateReward(right, 1.0), false);
+        builder.addFinalState(right);
+        MDP<CellState, CellAction> mdp = builder.build(left);
+
+        int leftId = mdp.getStateId(left);
+        int rightId = mdp.getStateId(right);
+        assertEquals(2, mdp.stateCount());
+        assertEquals(leftId, mdp.getInitialStateId());
+        assertEquals(1, mdp.actionCount(leftId));
+        assertEquals(moveRight, mdp.getAction(leftId, 0));
+        assertEquals(rightId, mdp.stateTransition(leftId, 0));
+        assertEquals(0, mdp.actionCount(rightId));
+        assertTrue(mdp.isFinalState(rightId));
+        assertFalse(mdp.isFinalState(leftId));
+        assertEquals(1.0, mdp.reward(rightId, -1), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownOrigin_angryPath() {
+        MDPBuilder<CellState, CellAction> builder = new MDPBuilder<>();
+        builder.addState(right, new CellStateReward(right, 1.0), true);
+        builder.addTransition(left, moveRight, right);
+        builder.build(right);
+    }
+}
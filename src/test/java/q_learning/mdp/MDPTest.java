@@ -0,0 +1,158 @@
+package q_learning.mdp;
+
+import org.junit.Test;
+import q_learning.env_cells.CellAction;
+import q_learning.env_cells.CellState;
+import q_learning.env_cells.CellStateReward;
+import q_learning.interfaces.StateReward;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class MDPTest {
+    private final CellState left = new CellState(0, 0);
+    private final CellState right = new CellState(1, 0);
+    private final CellAction moveRight = new CellAction(3);
+
+    private HashMap<CellState, StateReward<CellState, CellAction>> generateStates() {
+        HashMap<CellState, StateReward<CellState, CellAction>> states = new HashMap<>();
+        states.put(left, new CellStateReward(left, 0.0));
+        states.put(right, new CellStateReward(right, 1.0));
+        return states;
+    }
+
+    @Test
+    public void intBasedAccess_happyPath() {
+        HashMap<CellState, StateReward<CellState, CellAction>> states = generateStates();
+        QActionsFunction<CellState, CellAction> actions = new QActionsFunction<>(states);
+        actions.addAction(left, moveRight);
+        QStateTransition<CellState, CellAction> transitions = new QStateTransition<>();
+        transitions.addTransition(left, moveRight, new CellState(1, 0));
+        HashSet<CellState> finalStates = new HashSet<>();
+        finalStates.add(right);
+        MDP<CellState, CellAction> mdp = new MDP<>(states, new CellState(0, 0), actions, transitions, finalStates);
+
+        int leftId = mdp.getStateId(left);
+        int rightId = mdp.getStateId(right);
+        assertEquals(2, mdp.stateCount());
+        assertEquals(leftId, mdp.getInitialStateId());
+        assertEquals(1, mdp.actionCount(leftId));
+        assertEquals(moveRight, mdp.getAction(leftId, 0));
+        assertEquals(rightId, mdp.stateTransition(leftId, 0));
+        assertSame(mdp.getState(rightId), mdp.stateTransition(left, moveRight));
+        assertTrue(mdp.isFinalState(rightId));
+        assertFalse(mdp.isFinalState(leftId));
+        assertEquals(1.0, mdp.reward(rightId, -1), 0.0);
+    }
+
+    /**
+     * A StateReward, which counts how often it is evaluated.
+     */
+    private static class CountingReward extends CellStateReward {
+        private int calls;
+
+        CountingReward(CellState state, double reward) {
+            super(state, reward);
+        }
+
+        @Override
+        public double reward(CellAction action, CellState targetState) {
+            calls++;
+            return super.reward(action, targetState);
+        }
+    }
+
+    @Test
+    public void precomputedRewards_happyPath() {
+        HashMap<CellState, StateReward<CellState, CellAction>> states = new HashMap<>();
+        CountingReward leftReward = new CountingReward(left, 0.0);
+        states.put(left, leftReward);
+        states.put(right, new CellStateReward(right, 1.0));
+        QActionsFunction<CellState, CellAction> actions = new QActionsFunction<>(states);
+        actions.addAction(left, moveRight);
+        QStateTransition<CellState, CellAction> transitions = new QStateTransition<>();
+        transitions.addTransition(left, moveRight, right);
+        MDP<CellState, CellAction> mdp = new MDP<>(states, left, actions, transitions, new HashSet<>(Set.of(right)));
+        int built = leftReward.calls;
+
+        int leftId = mdp.getStateId(left);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(leftReward.reward(moveRight, right), mdp.reward(leftId, 0), 0.0);
+            assertEquals(mdp.reward(leftId, 0), mdp.reward(left, moveRight, right), 0.0);
+            assertEquals(leftReward.reward(null, null), mdp.reward(leftId, -1), 0.0);
+        }
+        // only the comparisons above evaluated the StateReward after the MDP was built
+        assertEquals(built + 20, leftReward.calls);
+    }
+
+    /**
+     * Creates an MDP, where the right state is final and the trap below the left state leads to another trap, from
+     * which no final state can be reached.
+     */
+    private MDP<CellState, CellAction> createMDPWithTraps(CellState initialState) {
+        CellState trap = new CellState(0, 1);
+        CellState deeperTrap = new CellState(0, 2);
+        CellAction moveDown = new CellAction(1);
+        HashMap<CellState, StateReward<CellState, CellAction>> states = generateStates();
+        states.put(trap, new CellStateReward(trap, 0.0));
+        states.put(deeperTrap, new CellStateReward(deeperTrap, 0.0));
+        QActionsFunction<CellState, CellAction> actions = new QActionsFunction<>(states);
+        QStateTransition<CellState, CellAction> transitions = new QStateTransition<>();
+        actions.addAction(left, moveRight);
+        transitions.addTransition(left, moveRight, right);
+        actions.addAction(left, moveDown);
+        transitions.addTransition(left, moveDown, trap);
+        actions.addAction(trap, moveDown);
+        transitions.addTransition(trap, moveDown, deeperTrap);
+        HashSet<CellState> finalStates = new HashSet<>();
+        finalStates.add(right);
+        return new MDP<>(states, initialState, actions, transitions, finalStates);
+    }
+
+    @Test
+    public void deadEnds_happyPath() {
+        MDP<CellState, CellAction> mdp = createMDPWithTraps(left);
+        BitSet deadEnds = mdp.findDeadEnds();
+        assertEquals(2, deadEnds.cardinality());
+        assertTrue(deadEnds.get(mdp.getStateId(new CellState(0, 1))));
+        assertTrue(deadEnds.get(mdp.getStateId(new CellState(0, 2))));
+        assertEquals(3, mdp.transitionCount());
+
+        MDP<CellState, CellAction> flagged = mdp.withDeadEndsFlagged();
+        assertEquals(4, flagged.stateCount());
+        assertTrue(flagged.isDeadEnd(flagged.getStateId(new CellState(0, 1))));
+        assertFalse(flagged.isDeadEnd(flagged.getInitialStateId()));
+        assertFalse(mdp.isDeadEnd(mdp.getStateId(new CellState(0, 1))));
+
+        MDP<CellState, CellAction> pruned = mdp.withDeadEndsRemoved();
+        assertEquals(2, pruned.stateCount());
+        assertEquals(1, pruned.transitionCount());
+        assertEquals(-1, pruned.getStateId(new CellState(0, 1)));
+        int leftId = pruned.getInitialStateId();
+        assertEquals(left, pruned.getState(leftId));
+        assertEquals(1, pruned.actionCount(leftId));
+        assertEquals(moveRight, pruned.getAction(leftId, 0));
+        assertEquals(Set.of(moveRight), pruned.actions(left));
+        assertTrue(pruned.isFinalState(pruned.stateTransition(leftId, 0)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void deadEndInitialState_angryPath() {
+        createMDPWithTraps(new CellState(0, 1)).withDeadEndsRemoved();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownTransitionTarget_angryPath() {
+        HashMap<CellState, StateReward<CellState, CellAction>> states = generateStates();
+        QActionsFunction<CellState, CellAction> actions = new QActionsFunction<>(states);
+        actions.addAction(right, moveRight);
+        QStateTransition<CellState, CellAction> transitions = new QStateTransition<>();
+        transitions.addTransition(right, moveRight, new CellState(2, 0));
+
+        new MDP<>(states, left, actions, transitions, new HashSet<>());
+    }
+}
@@ -0,0 +1,134 @@
+package q_learning.mdp;
+
+import core.CheckpointStore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import q_learning.env_cells.CellAction;
+import q_learning.env_cells.CellState;
+import q_learning.env_cells.CellStateReward;
+import q_learning.utils.EpisodeLog;
+import q_learning.utils.Parameter;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the checkpoints of a learner on a corridor of cells, where the agent starts on the left and the right cell
+ * is a final state with reward 1.0.
+ */
+public class QLearnerCheckpointTest {
+    private static final int EPISODES = 100;
+    private final CellAction moveLeft = new CellAction(2);
+    private final CellAction moveRight = new CellAction(3);
+    private final Parameter param = new Parameter(1, 0.2, 0.2, 1.0,
+            0.05, 0.05, 1.0, 1.0, 0, 0.000000001, 5, 1.0,
+            EPISODES / 2, EPISODES / 2, "", false);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MDP<CellState, CellAction> createCorridor() {
+        MDPBuilder<CellState, CellAction> builder = new MDPBuilder<>();
+        for (int x = 0; x < 4; x++) {
+            CellState cell = new CellState(x, 0);
+            builder.addState(cell, new CellStateReward(cell, x == 3 ? 1.0 : 0.0), x == 3);
+            if (x == 3)
+                continue;
+            if (x > 0)
+                builder.addTransition(cell, moveLeft, new CellState(x - 1, 0));
+            builder.addTransition(cell, moveRight, new CellState(x + 1, 0));
+        }
+        return builder.build(new CellState(0, 0));
+    }
+
+    /**
+     * A store, which only keeps the first checkpoint, as if the JVM died after it was written.
+     */
+    private static class DyingStore extends CheckpointStore {
+        private int saves;
+
+        DyingStore(Path directory) {
+            super(directory, 1L, 0);
+        }
+
+        @Override
+        public void save(String name, Serializable checkpoint) {
+            if (saves++ == 0)
+                super.save(name, checkpoint);
+        }
+    }
+
+    @Test
+    public void finishedRunResumed_happyPath() {
+        MDP<CellState, CellAction> mdp = createCorridor();
+        CheckpointStore checkpoints = new CheckpointStore(folder.getRoot().toPath(), 1L, 0);
+        QLearner<CellState, CellAction> learner = new QLearner<>(mdp, param, EPISODES);
+        learner.setCheckpoints(checkpoints, 10);
+        learner.runIterations();
+
+        QLearner<CellState, CellAction> resumed = new QLearner<>(mdp, param, EPISODES);
+        resumed.setCheckpoints(checkpoints, 10);
+        resumed.runIterations();
+        assertEquals(learner.getUtility(), resumed.getUtility());
+    }
+
+    @Test
+    public void interruptedRunResumed_happyPath() throws IOException {
+        MDP<CellState, CellAction> mdp = createCorridor();
+        Path directory = folder.newFolder("checkpoints").toPath();
+        QLearner<CellState, CellAction> interrupted = new QLearner<>(mdp, param, EPISODES);
+        interrupted.setCheckpoints(new DyingStore(directory), 10);
+        interrupted.runIterations();
+
+        Path episodes = folder.getRoot().toPath().resolve("episodes.csv");
+        QLearner<CellState, CellAction> resumed = new QLearner<>(mdp, param, EPISODES);
+        resumed.setCheckpoints(new CheckpointStore(directory, 1L, 0), 10);
+        try (EpisodeLog log = new EpisodeLog(episodes, 1)) {
+            resumed.setEpisodeLog(log);
+            resumed.runIterations();
+        }
+        List<String> lines = Files.readAllLines(episodes);
+        // the first 10 episodes were restored from the checkpoint
+        assertEquals(EPISODES - 10 + 1, lines.size());
+        assertEquals("0,10,", lines.get(1).substring(0, 5));
+        for (double utility : resumed.getUtility().values()) {
+            assertEquals(1.0, utility, 0.01);
+        }
+    }
+
+    @Test
+    public void otherParameters_happyPath() throws IOException {
+        MDP<CellState, CellAction> mdp = createCorridor();
+        CheckpointStore checkpoints = new CheckpointStore(folder.getRoot().toPath(), 1L, 0);
+        QLearner<CellState, CellAction> learner = new QLearner<>(mdp, param, EPISODES);
+        learner.setCheckpoints(checkpoints, 10);
+        learner.runIterations();
+
+        // the checkpoint of another seed is ignored, so all episodes are learned
+        Parameter other = new Parameter(1, 0.2, 0.2, 1.0,
+                0.05, 0.05, 1.0, 1.0, 1, 0.000000001, 5, 1.0,
+                EPISODES / 2, EPISODES / 2, "", false);
+        Path episodes = folder.getRoot().toPath().resolve("episodes.csv");
+        QLearner<CellState, CellAction> fresh = new QLearner<>(mdp, other, EPISODES);
+        fresh.setCheckpoints(checkpoints, 10);
+        try (EpisodeLog log = new EpisodeLog(episodes, 1)) {
+            fresh.setEpisodeLog(log);
+            fresh.runIterations();
+        }
+        List<String> lines = Files.readAllLines(episodes);
+        assertEquals(EPISODES + 1, lines.size());
+        assertEquals("0,0,", lines.get(1).substring(0, 4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noInterval_angryPath() {
+        new QLearner<>(createCorridor(), param, EPISODES)
+                .setCheckpoints(new CheckpointStore(folder.getRoot().toPath(), 1L, 0), 0);
+    }
+}
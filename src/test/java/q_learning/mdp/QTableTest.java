@@ -0,0 +1,94 @@
+package q_learning.mdp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import q_learning.env_cells.CellAction;
+import q_learning.env_cells.CellState;
+import q_learning.env_cells.CellStateReward;
+import q_learning.utils.Parameter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests saving and loading the Q table of an agent learning on a corridor of cells, where the agent starts on the
+ * left and the right cell is a final state with reward 1.0.
+ */
+public class QTableTest {
+    private static final long FINGERPRINT = 42L;
+    private final CellAction moveLeft = new CellAction(2);
+    private final CellAction moveRight = new CellAction(3);
+    private final Parameter param = new Parameter(1, 0.2, 0.2, 1.0,
+            0.05, 0.05, 1.0, 1.0, 0, 0.000000001, 5, 1.0,
+            100, 0, "", true);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MDP<CellState, CellAction> createCorridor(int length) {
+        MDPBuilder<CellState, CellAction> builder = new MDPBuilder<>();
+        for (int x = 0; x < length; x++) {
+            CellState cell = new CellState(x, 0);
+            builder.addState(cell, new CellStateReward(cell, x == length - 1 ? 1.0 : 0.0), x == length - 1);
+            if (x == length - 1)
+                continue;
+            if (x > 0)
+                builder.addTransition(cell, moveLeft, new CellState(x - 1, 0));
+            builder.addTransition(cell, moveRight, new CellState(x + 1, 0));
+        }
+        return builder.build(new CellState(0, 0));
+    }
+
+    private QLearningAgent<CellState, CellAction> learn(MDP<CellState, CellAction> mdp) {
+        QLearningAgent<CellState, CellAction> agent = new QLearningAgent<>(mdp, param);
+        for (int iteration = 0; iteration < param.getIterations(); iteration++) {
+            int state = mdp.getInitialStateId();
+            int action;
+            do {
+                action = agent.execute(state, iteration);
+                if (action >= 0)
+                    state = mdp.stateTransition(state, action);
+            } while (action >= 0);
+        }
+        return agent;
+    }
+
+    @Test
+    public void saveAndLoad_happyPath() throws IOException {
+        MDP<CellState, CellAction> mdp = createCorridor(4);
+        QTable learned = learn(mdp).getQTable();
+        assertEquals(1.0, learned.getTerminalQ(mdp.getStateId(new CellState(3, 0))), 0.0);
+        assertTrue(learned.getN(mdp.getStateId(new CellState(0, 0)), 0) > 0);
+
+        Path file = folder.getRoot().toPath().resolve("q.qtable");
+        learned.write(file, FINGERPRINT);
+        QTable read = QTable.read(file, FINGERPRINT);
+        assertEquals(learned, read);
+
+        QLearningAgent<CellState, CellAction> agent = new QLearningAgent<>(mdp, param);
+        agent.setQTable(read);
+        assertEquals(learned, agent.getQTable());
+        for (int id = 0; id < mdp.stateCount(); id++) {
+            for (int i = 0; i < mdp.actionCount(id); i++) {
+                assertEquals(learned.getQ(id, i), agent.getQ(id, i), 0.0);
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void otherMDP_angryPath() throws IOException {
+        MDP<CellState, CellAction> mdp = createCorridor(4);
+        Path file = folder.getRoot().toPath().resolve("q.qtable");
+        learn(mdp).getQTable().write(file, FINGERPRINT);
+        QTable.read(file, FINGERPRINT + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void otherStates_angryPath() {
+        QTable learned = learn(createCorridor(4)).getQTable();
+        new QLearningAgent<>(createCorridor(5), param).setQTable(learned);
+    }
+}
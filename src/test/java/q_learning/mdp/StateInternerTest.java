@@ -0,0 +1,31 @@
+package q_learning.mdp;
+
+import org.junit.Test;
+import q_learning.env_cells.CellState;
+
+import static org.junit.Assert.*;
+
+public class StateInternerTest {
+
+    @Test
+    public void intern_happyPath() {
+        StateInterner<CellState> interner = new StateInterner<>();
+        CellState first = new CellState(0, 0);
+        assertEquals(0, interner.intern(first));
+        assertEquals(1, interner.intern(new CellState(1, 0)));
+        assertEquals(0, interner.intern(new CellState(0, 0)));
+
+        assertEquals(2, interner.size());
+        assertSame(first, interner.getState(0));
+        assertEquals(1, interner.getId(new CellState(1, 0)));
+    }
+
+    @Test
+    public void getId_notInterned_angryPath() {
+        StateInterner<CellState> interner = new StateInterner<>();
+        interner.intern(new CellState(0, 0));
+
+        assertEquals(-1, interner.getId(new CellState(1, 1)));
+        assertEquals(1, interner.size());
+    }
+}
@@ -0,0 +1,55 @@
+package q_learning.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EpisodeLogTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void everyEpisode_happyPath() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("episodes.csv");
+        try (EpisodeLog log = new EpisodeLog(file, 1)) {
+            log.add(0, 0, 1.0);
+            log.add(0, 1, 2.5);
+            log.endRun();
+            // the episodes are flushed at the end of a run
+            assertEquals(List.of("run,episode,reward", "0,0,1.0", "0,1,2.5"), Files.readAllLines(file));
+            log.add(1, 0, -1.0);
+        }
+        // a second log appends to the file without a second header
+        try (EpisodeLog log = new EpisodeLog(file, 1)) {
+            log.add(2, 0, 0.0);
+        }
+        assertEquals(List.of("run,episode,reward", "0,0,1.0", "0,1,2.5", "1,0,-1.0", "2,0,0.0"),
+                Files.readAllLines(file));
+    }
+
+    @Test
+    public void downsampled_happyPath() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("episodes.csv");
+        try (EpisodeLog log = new EpisodeLog(file, 2)) {
+            for (int episode = 0; episode < 5; episode++) {
+                log.add(0, episode, episode);
+            }
+            // a new run starts a new sample
+            log.add(1, 0, 4.0);
+        }
+        assertEquals(List.of("run,episode,reward", "0,1,0.5", "0,3,2.5", "0,4,4.0", "1,0,4.0"),
+                Files.readAllLines(file));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noSampleInterval_angryPath() throws IOException {
+        new EpisodeLog(folder.getRoot().toPath().resolve("episodes.csv"), 0);
+    }
+}
@@ -0,0 +1,254 @@
+package run;
+
+import core.NodeAction;
+import core.State;
+import core.StateSpace;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import q_learning.env_network.KnowledgeStateReward;
+import q_learning.mdp.CompactMDP;
+import q_learning.mdp.MDP;
+import q_learning.mdp.MDPBuilder;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class BinaryMDPFormatTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final long FINGERPRINT = 0x1234567890ABCDEFL;
+
+    static StateSpace stateSpace;
+    static MDP<State, NodeAction> mdp;
+
+    @BeforeClass
+    public static void setUp() {
+        Simulation.setupWorld(false);
+        stateSpace = State.computeStateSpace(State.getStartState());
+        mdp = buildMDP(null);
+    }
+
+    /**
+     * Builds the MDP of the state space, the given state gets no actions.
+     */
+    private static MDP<State, NodeAction> buildMDP(State withoutActions) {
+        MDPBuilder<State, NodeAction> builder = new MDPBuilder<>();
+        for (State state : stateSpace.getStates()) {
+            builder.addState(state, new KnowledgeStateReward(state, Set.of(), Set.of()), state.isFinalState());
+            if (state.equals(withoutActions))
+                continue;
+            for (Map.Entry<NodeAction, State> transition : stateSpace.getTransitions(state).entrySet()) {
+                builder.addTransition(state, transition.getKey(), transition.getValue());
+            }
+        }
+        return builder.build(State.getStartState());
+    }
+
+    @Test
+    public void roundTrip_happyPath() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("mdp.bin");
+        BinaryMDPFormat.write(mdp, file, FINGERPRINT);
+        MDP<State, NodeAction> read = BinaryMDPFormat.read(file);
+
+        assertEquals(mdp.stateCount(), read.stateCount());
+        assertEquals(mdp.transitionCount(), read.transitionCount());
+        assertEquals(mdp.getInitialStateId(), read.getInitialStateId());
+        assertTrue(read.getState(read.getInitialStateId()).isStartState());
+        for (int id = 0; id < mdp.stateCount(); id++) {
+            assertEquals(mdp.getState(id), read.getState(id));
+            assertEquals(id, read.getStateId(mdp.getState(id)));
+            assertEquals(mdp.isFinalState(id), read.isFinalState(id));
+            assertEquals(mdp.reward(id, -1), read.reward(id, -1), 0.0);
+            assertEquals(mdp.actionCount(id), read.actionCount(id));
+            for (int i = 0; i < mdp.actionCount(id); i++) {
+                assertEquals(mdp.getAction(id, i), read.getAction(id, i));
+                assertEquals(mdp.stateTransition(id, i), read.stateTransition(id, i));
+                assertEquals(mdp.reward(id, i), read.reward(id, i), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void compactRoundTrip_happyPath() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("mdp.bin");
+        BinaryMDPFormat.write(mdp, file, FINGERPRINT);
+        CompactMDP<State, NodeAction> read = BinaryMDPFormat.readCompact(file);
+
+        assertEquals(mdp.stateCount(), read.stateCount());
+        assertEquals(mdp.transitionCount(), read.transitionCount());
+        assertEquals(mdp.getInitialStateId(), read.getInitialStateId());
+        for (int id = 0; id < mdp.stateCount(); id++) {
+            assertEquals(mdp.getState(id), read.getState(id));
+            assertEquals(mdp.isFinalState(id), read.isFinalState(id));
+            assertEquals(mdp.reward(id, -1), read.reward(id, -1), 0.0);
+            assertEquals(mdp.actionCount(id), read.actionCount(id));
+            for (int i = 0; i < mdp.actionCount(id); i++) {
+                assertEquals(mdp.getAction(id, i), read.getAction(id, i));
+                assertEquals(mdp.stateTransition(id, i), read.stateTransition(id, i));
+                assertEquals(mdp.reward(id, i), read.reward(id, i), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void deadEnds_happyPath() throws IOException {
+        //a state without actions, which is not final, is a dead end
+        int deadEndId = mdp.stateCount() - 1;
+        while (mdp.isFinalState(deadEndId)) {
+            deadEndId--;
+        }
+        State deadEnd = mdp.getState(deadEndId);
+        MDP<State, NodeAction> flagged = buildMDP(deadEnd).withDeadEndsFlagged();
+        Path file = folder.getRoot().toPath().resolve("mdp.bin");
+        BinaryMDPFormat.write(flagged, file, FINGERPRINT);
+        MDP<State, NodeAction> read = BinaryMDPFormat.read(file);
+        CompactMDP<State, NodeAction> compact = BinaryMDPFormat.readCompact(file);
+        MappedMDP mapped = new MappedMDP(file);
+
+        int deadEnds = 0;
+        for (int id = 0; id < flagged.stateCount(); id++) {
+            assertEquals(flagged.isDeadEnd(id), read.isDeadEnd(id));
+            assertEquals(flagged.isDeadEnd(id), compact.isDeadEnd(id));
+            assertEquals(flagged.isDeadEnd(id), mapped.isDeadEnd(id));
+            if (flagged.isDeadEnd(id))
+                deadEnds++;
+        }
+        assertEquals(flagged.findDeadEnds().cardinality(), deadEnds);
+        assertTrue(deadEnds > 0);
+    }
+
+    @Test
+    public void fingerprint_happyPath() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("mdp.bin");
+        BinaryMDPFormat.write(mdp, file, FINGERPRINT);
+        assertEquals(FINGERPRINT, BinaryMDPFormat.readFingerprint(file));
+    }
+
+    @Test
+    public void mappedView_happyPath() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("mdp.bin");
+        BinaryMDPFormat.write(mdp, file, FINGERPRINT);
+        MappedMDP mapped = new MappedMDP(file);
+
+        assertEquals(mdp.stateCount(), mapped.stateCount());
+        assertEquals(mdp.getInitialStateId(), mapped.getInitialStateId());
+        assertEquals(mdp.getInitialState(), mapped.getInitialState());
+        assertTrue(mapped.getInitialState().isStartState());
+        for (int id = 0; id < mdp.stateCount(); id++) {
+            State state = mdp.getState(id);
+            assertEquals(state, mapped.getState(id));
+            assertEquals(id, mapped.getStateId(state));
+            assertEquals(mdp.isFinalState(id), mapped.isFinalState(id));
+            assertEquals(mdp.reward(id, -1), mapped.reward(id, -1), 0.0);
+            assertEquals(mdp.actionCount(id), mapped.actionCount(id));
+            for (int i = 0; i < mdp.actionCount(id); i++) {
+                assertEquals(mdp.getAction(id, i), mapped.getAction(id, i));
+                assertEquals(mdp.stateTransition(id, i), mapped.stateTransition(id, i));
+                assertEquals(mdp.reward(id, i), mapped.reward(id, i), 0.0);
+            }
+        }
+        State initial = mdp.getInitialState();
+        assertEquals(mdp.actions(initial), mapped.actions(initial));
+        for (NodeAction action : mdp.actions(initial)) {
+            State target = mdp.stateTransition(initial, action);
+            assertEquals(target, mapped.stateTransition(initial, action));
+            assertEquals(mdp.reward(initial, action, target), mapped.reward(initial, action, target), 0.0);
+        }
+    }
+
+    @Test
+    public void csrExport_happyPath() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("csr");
+        CSRExporter.export(mdp, directory, FINGERPRINT);
+
+        List<String> manifest = Files.readAllLines(directory.resolve("manifest.txt"));
+        assertTrue(manifest.contains("states=" + mdp.stateCount()));
+        assertTrue(manifest.contains("transitions=" + mdp.transitionCount()));
+        assertTrue(manifest.contains("initialState=" + mdp.getInitialStateId()));
+        assertTrue(manifest.contains("fingerprint=" + FINGERPRINT));
+        List<String> facts = Files.readAllLines(directory.resolve("facts.txt"));
+        assertEquals(Simulation.getStateEncoding().size(), facts.size());
+        assertFalse(facts.contains("null"));
+        List<String> actions = Files.readAllLines(directory.resolve("actions.tsv"));
+
+        ByteBuffer rowPointers = mapLittleEndian(directory.resolve("row_ptr.i32"));
+        ByteBuffer columns = mapLittleEndian(directory.resolve("col_idx.i32"));
+        ByteBuffer actionIds = mapLittleEndian(directory.resolve("action_idx.i32"));
+        ByteBuffer rewards = mapLittleEndian(directory.resolve("reward.f64"));
+        ByteBuffer finalRewards = mapLittleEndian(directory.resolve("final_reward.f64"));
+        ByteBuffer finalStates = mapLittleEndian(directory.resolve("final.u8"));
+        ByteBuffer states = mapLittleEndian(directory.resolve("states.i64"));
+        int words = states.capacity() / Long.BYTES / mdp.stateCount();
+        assertEquals((mdp.stateCount() + 1) * Integer.BYTES, rowPointers.capacity());
+        assertEquals(mdp.transitionCount(), rowPointers.getInt(mdp.stateCount() * Integer.BYTES));
+        for (int id = 0; id < mdp.stateCount(); id++) {
+            int row = rowPointers.getInt(id * Integer.BYTES);
+            assertEquals(mdp.actionCount(id), rowPointers.getInt((id + 1) * Integer.BYTES) - row);
+            assertEquals(mdp.isFinalState(id), finalStates.get(id) == 1);
+            assertEquals(mdp.reward(id, -1), finalRewards.getDouble(id * Double.BYTES), 0.0);
+            long[] packedFacts = new long[words];
+            for (int word = 0; word < words; word++) {
+                packedFacts[word] = states.getLong((id * words + word) * Long.BYTES);
+            }
+            assertEquals(mdp.getState(id), State.fromPackedFacts(packedFacts, id == mdp.getInitialStateId()));
+            for (int i = 0; i < mdp.actionCount(id); i++) {
+                NodeAction action = mdp.getAction(id, i);
+                assertEquals(mdp.stateTransition(id, i), columns.getInt((row + i) * Integer.BYTES));
+                assertEquals(mdp.reward(id, i), rewards.getDouble((row + i) * Double.BYTES), 0.0);
+                assertEquals(action.getAction() + "\t" + action.getCurrentActor() + "\t" + action.getTarget(),
+                        actions.get(actionIds.getInt((row + i) * Integer.BYTES)));
+            }
+        }
+    }
+
+    private static ByteBuffer mapLittleEndian(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedFile_angryPath() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("mdp.bin");
+        BinaryMDPFormat.write(mdp, file, FINGERPRINT);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        new MappedMDP(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void otherVersion_angryPath() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("mdp.bin");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(BinaryMDPFormat.MAGIC);
+            out.writeInt(BinaryMDPFormat.VERSION + 1);
+            for (int i = 0; i < 8; i++) {
+                out.writeInt(0);
+            }
+        }
+        BinaryMDPFormat.read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void noMDPFile_angryPath() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("mdp.ser");
+        Files.write(file, new byte[]{(byte) 0xAC, (byte) 0xED, 0, 5, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+                0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0});
+        BinaryMDPFormat.read(file);
+    }
+}
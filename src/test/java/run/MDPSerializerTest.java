@@ -0,0 +1,107 @@
+package run;
+
+import core.CheckpointStore;
+import core.NodeAction;
+import core.State;
+import core.StateSpace;
+import org.junit.AfterClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import q_learning.mdp.LazyMDP;
+import q_learning.mdp.MDP;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class MDPSerializerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @AfterClass
+    public static void tearDown() {
+        Simulation.setupWorld(false);
+    }
+
+    @Test
+    public void mdpFingerprint_happyPath() {
+        Simulation.setupWorld(false);
+        long fingerprint = MDPSerializer.getMDPFingerprint();
+        Simulation.setupWorld(false);
+        assertEquals(fingerprint, MDPSerializer.getMDPFingerprint());
+        assertNotEquals(Simulation.getWorldFingerprint(), fingerprint);
+    }
+
+    @Test
+    public void mdpFingerprintOfOtherFilter_happyPath() {
+        Simulation.setupWorld(false);
+        long fingerprint = MDPSerializer.getMDPFingerprint();
+        Simulation.setupWorld(true);
+        assertNotEquals(fingerprint, MDPSerializer.getMDPFingerprint());
+    }
+
+    @Test
+    public void generationResumesFromCheckpoint_happyPath() throws IOException {
+        Simulation.setupWorld(true);
+        StateSpace stateSpace = State.computeStateSpace(State.getStartState());
+        Set<State> states = stateSpace.getStates();
+
+        Path directory = folder.newFolder("checkpoints").toPath();
+        //the generation dies after all actions and the first batch of transitions were saved
+        int batches = (states.size() + 4095) / 4096;
+        CheckpointStore dying = new CheckpointStore(directory, Simulation.getWorldFingerprint(), 0) {
+            private int saved;
+
+            @Override
+            public void save(String name, Serializable checkpoint) {
+                super.save(name, checkpoint);
+                if (++saved == batches + 1) {
+                    throw new IllegalStateException("JVM died");
+                }
+            }
+        };
+        try {
+            MDPSerializer.generateMDP(states, dying);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("JVM died", e.getMessage());
+        }
+
+        CheckpointStore checkpoints = new CheckpointStore(directory, Simulation.getWorldFingerprint(), Long.MAX_VALUE);
+        MDP<State, NodeAction> resumed = MDPSerializer.generateMDP(states, checkpoints);
+        //every action changing a state was executed once while exploring the state space
+        assertEquals(states.size(), resumed.stateCount());
+        assertEquals(stateSpace.getTransitionCount(), resumed.transitionCount());
+        assertEquals(State.getStartState(), resumed.getInitialState());
+        for (State state : states) {
+            Map<NodeAction, State> transitions = stateSpace.getTransitions(state);
+            assertEquals(state.isFinalState(), resumed.isFinalState(state));
+            assertEquals(transitions.keySet(), resumed.actions(state));
+            for (Map.Entry<NodeAction, State> transition : transitions.entrySet()) {
+                assertEquals(transition.getValue(), resumed.stateTransition(state, transition.getKey()));
+            }
+        }
+    }
+
+    @Test
+    public void lazyMDPStates_happyPath() {
+        Simulation.setupWorld(true);
+        State startState = State.getStartState();
+        LazyMDP<State, NodeAction> mdp = MDPSerializer.createLazyMDP();
+        assertEquals(startState, mdp.getInitialState());
+        int initialState = mdp.getInitialStateId();
+        for (int action = 0; action < mdp.actionCount(initialState); action++) {
+            State target = mdp.getState(mdp.stateTransition(initialState, action));
+            //the discovered states are kept in the mode of the simulation
+            assertEquals(Simulation.isCompactStatesEnabled(), target.isCompact());
+            assertEquals(NodeAction.performNodeAction(mdp.getAction(initialState, action), startState), target);
+            assertEquals(mdp.getActionsFunction().actions(target), mdp.actions(target.unpacked()));
+        }
+        assertEquals(Simulation.isCompactStatesEnabled(), mdp.getInitialState().isCompact());
+    }
+}